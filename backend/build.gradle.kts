@@ -1,5 +1,6 @@
 plugins {
     application
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "io.github.pandier"
@@ -23,6 +24,52 @@ java {
     }
 }
 
+val loadgen: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[loadgen.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[loadgen.compileOnlyConfigurationName].extendsFrom(configurations.compileOnly.get())
+
+// Runs the load generator against a local server, configured by multisnake.loadgen.* system properties
+tasks.register<JavaExec>("loadgen") {
+    group = "application"
+    description = "Runs the headless load generator against a running server."
+    classpath = loadgen.runtimeClasspath
+    mainClass.set("io.github.pandier.multisnake.loadgen.LoadGenerator")
+    systemProperties(System.getProperties().filterKeys { (it as String).startsWith("multisnake.loadgen.") }.mapKeys { it.key as String })
+}
+
+// Replays recorded matches headlessly, e.g. ./gradlew replay --args="replays/room-1-1700000000000-1.replay"
+tasks.register<JavaExec>("replay") {
+    group = "application"
+    description = "Replays recorded matches and checks them for desynchronization."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("io.github.pandier.multisnake.replay.ReplayTool")
+}
+
+// Simulates headless matches as fast as possible, configured by multisnake.game.* and multisnake.simulation.* system properties
+tasks.register<JavaExec>("simulate") {
+    group = "application"
+    description = "Simulates a batch of headless matches and reports ticks per second."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("io.github.pandier.multisnake.simulation.SimulationTool")
+    systemProperties(System.getProperties().filterKeys { (it as String).startsWith("multisnake.") }.mapKeys { it.key as String })
+}
+
+// Benchmark allocation rates are reported by the GC profiler, results are kept as JSON to compare runs
+jmh {
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+}
+
 application {
     mainClass.set("io.github.pandier.multisnake.Main")
 }
+
+// Forwards server settings and the logging profile, e.g. -Dlogback.configurationFile=logback-production.xml
+tasks.named<JavaExec>("run") {
+    systemProperties(System.getProperties().filterKeys { (it as String).startsWith("multisnake.") || (it as String).startsWith("logback.") }.mapKeys { it.key as String })
+}
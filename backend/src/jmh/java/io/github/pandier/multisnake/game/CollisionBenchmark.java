@@ -0,0 +1,99 @@
+package io.github.pandier.multisnake.game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares collision checks of every head against the {@link Board}
+ * with a naive scan over all body segments.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+    @Param({"8", "64", "256"})
+    public int players;
+
+    @Param({"16", "128"})
+    public int length;
+
+    private Snake[] snakes;
+    private Board board;
+    private int[] heads;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int width = length * 2;
+        int height = players * 2;
+
+        snakes = new Snake[players];
+        board = new Board(width, height);
+        for (int i = 0; i < players; i++) {
+            snakes[i] = new Snake(i, Cell.pack(0, i * 2), Direction.RIGHT, length);
+            for (int j = 0; j < length; j++)
+                board.set(snakes[i].getSegment(j), Board.owner(i));
+        }
+
+        SplittableRandom random = new SplittableRandom(0);
+        heads = new int[players];
+        for (int i = 0; i < players; i++)
+            heads[i] = Cell.pack(random.nextInt(width), random.nextInt(height));
+    }
+
+    @Benchmark
+    public int board() {
+        int collisions = 0;
+        for (int head : heads) {
+            if (board.get(head) != Board.EMPTY)
+                collisions++;
+        }
+        return collisions;
+    }
+
+    @Benchmark
+    public int naiveScan() {
+        int collisions = 0;
+        for (int head : heads) {
+            if (head < 0 || Cell.x(head) >= length * 2 || Cell.y(head) >= players * 2) {
+                collisions++;
+                continue;
+            }
+
+            scan:
+            for (Snake snake : snakes) {
+                for (int i = 0; i < snake.getLength(); i++) {
+                    if (snake.getSegment(i) == head) {
+                        collisions++;
+                        break scan;
+                    }
+                }
+            }
+        }
+        return collisions;
+    }
+
+    @Benchmark
+    public Game simulate() {
+        Game game = new Game(new GameSettings(length * 2, players * 2, 10, 1, length, players, 64, 50, 3), players, 0);
+        for (int i = 0; i < length; i++)
+            game.tick();
+        return game;
+    }
+}
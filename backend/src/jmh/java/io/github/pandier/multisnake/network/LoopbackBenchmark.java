@@ -0,0 +1,119 @@
+package io.github.pandier.multisnake.network;
+
+import io.github.pandier.multisnake.Multisnake;
+import io.github.pandier.multisnake.network.packet.PacketHandler;
+import io.github.pandier.multisnake.network.packet.server.ServerKeepAlivePacket;
+import io.github.pandier.multisnake.network.packet.server.ServerLoginSuccessPacket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the round-trip of a keep-alive packet through a server running in the same process,
+ * connected over a loopback {@link SocketChannel}.
+ * <p>
+ * This covers the whole network path of a packet: reading and framing on a network worker,
+ * dispatching and decoding, the listener, and encoding and writing the response.
+ * The benchmark runs for every {@link NetworkSettings.Transport transport}, so they can be compared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoopbackBenchmark {
+    private static final int PORT = 35236;
+    private static final int RESPONSE_SIZE = PacketHandler.FRAME_HEADER_SIZE + 1 + Long.BYTES;
+
+    @Param({"SELECTOR", "VIRTUAL_THREADS"})
+    public String transport;
+
+    private Multisnake multisnake;
+    private SocketChannel channel;
+
+    private final ByteBuffer request = ByteBuffer.allocateDirect(PacketHandler.FRAME_HEADER_SIZE + 1 + Long.BYTES);
+    private final ByteBuffer response = ByteBuffer.allocateDirect(RESPONSE_SIZE);
+    private long id = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        System.setProperty("multisnake.network.transport", transport);
+        multisnake = new Multisnake();
+        Thread thread = new Thread(() -> {
+            try {
+                multisnake.start();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }, "multisnake-server");
+        thread.setDaemon(true);
+        thread.start();
+
+        channel = connect();
+        channel.socket().setTcpNoDelay(true);
+
+        byte[] username = "benchmark".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer login = ByteBuffer.allocate(PacketHandler.FRAME_HEADER_SIZE + 1 + Integer.BYTES + username.length);
+        login.putInt(1 + Integer.BYTES + username.length).put((byte) 0).putInt(username.length).put(username).flip();
+        while (login.hasRemaining())
+            channel.write(login);
+
+        ByteBuffer loginSuccess = ByteBuffer.allocate(PacketHandler.FRAME_HEADER_SIZE + 1);
+        while (loginSuccess.hasRemaining())
+            channel.read(loginSuccess);
+        if (loginSuccess.get(PacketHandler.FRAME_HEADER_SIZE) != ServerLoginSuccessPacket.IDENTIFIER)
+            throw new IllegalStateException("Login failed");
+    }
+
+    private SocketChannel connect() throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return SocketChannel.open(new InetSocketAddress("localhost", PORT));
+            } catch (ConnectException e) {
+                if (attempt >= 50)
+                    throw e;
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        channel.close();
+        multisnake.stop();
+    }
+
+    @Benchmark
+    public long keepAliveRoundTrip() throws IOException {
+        request.clear();
+        request.putInt(1 + Long.BYTES).put((byte) 3).putLong(++id).flip();
+        while (request.hasRemaining())
+            channel.write(request);
+
+        response.clear();
+        while (response.hasRemaining())
+            channel.read(response);
+        if (response.get(PacketHandler.FRAME_HEADER_SIZE) != ServerKeepAlivePacket.IDENTIFIER)
+            throw new IllegalStateException("Unexpected response");
+        return response.getLong(PacketHandler.FRAME_HEADER_SIZE + 1);
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.pandier.multisnake.network.packet;
+
+import io.github.pandier.multisnake.network.packet.client.ClientKeepAlivePacket;
+import io.github.pandier.multisnake.network.packet.client.ClientLoginPacket;
+import io.github.pandier.multisnake.network.packet.client.ClientPacket;
+import io.github.pandier.multisnake.network.packet.client.ClientReadyPacket;
+import io.github.pandier.multisnake.network.packet.client.ClientWorldAckPacket;
+import io.github.pandier.multisnake.network.packet.message.InvalidPacketMessageException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding of client packets with and without reusing packet objects.
+ * <p>
+ * Run with the GC profiler ({@code -prof gc}) to compare the allocations per packet,
+ * which should be zero for reused packets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+    @Param({"false", "true"})
+    public boolean reuse;
+
+    @Param({"false", "true"})
+    public boolean direct;
+
+    private final PacketDecoder decoder = new PacketDecoder();
+    private final ClientReadyPacket.Factory readyFactory = new ClientReadyPacket.Factory();
+    private final ClientWorldAckPacket.Factory ackFactory = new ClientWorldAckPacket.Factory();
+    private final ClientLoginPacket.Factory loginFactory = new ClientLoginPacket.Factory();
+    private final ClientKeepAlivePacket.Factory keepAliveFactory = new ClientKeepAlivePacket.Factory();
+
+    private ByteBuffer ready;
+    private ByteBuffer ack;
+    private ByteBuffer login;
+    private ByteBuffer keepAlive;
+
+    @Setup
+    public void setup() {
+        ready = allocate(1).put((byte) 1).flip();
+        ack = allocate(Long.BYTES).putLong(123456789L).flip();
+        keepAlive = allocate(Long.BYTES).putLong(987654321L).flip();
+
+        byte[] name = "snake_charmer".getBytes(StandardCharsets.UTF_8);
+        login = allocate(Integer.BYTES + name.length).putInt(name.length).put(name).flip();
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    @Benchmark
+    public ClientPacket ready() throws InvalidPacketMessageException {
+        ready.rewind();
+        return decoder.read((byte) 1, readyFactory, ready, reuse);
+    }
+
+    @Benchmark
+    public ClientPacket worldAck() throws InvalidPacketMessageException {
+        ack.rewind();
+        return decoder.read((byte) 2, ackFactory, ack, reuse);
+    }
+
+    @Benchmark
+    public ClientPacket keepAlive() throws InvalidPacketMessageException {
+        keepAlive.rewind();
+        return decoder.read((byte) 3, keepAliveFactory, keepAlive, reuse);
+    }
+
+    @Benchmark
+    public ClientPacket login() throws InvalidPacketMessageException {
+        login.rewind();
+        return decoder.read((byte) 0, loginFactory, login, reuse);
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.pandier.multisnake.network.packet;
+
+import io.github.pandier.multisnake.network.buffer.BufferPool;
+import io.github.pandier.multisnake.network.packet.client.ClientKeepAlivePacket;
+import io.github.pandier.multisnake.network.packet.client.ClientLoginPacket;
+import io.github.pandier.multisnake.network.packet.client.ClientPacketFactory;
+import io.github.pandier.multisnake.network.packet.client.ClientReadyPacket;
+import io.github.pandier.multisnake.network.packet.client.ClientWorldAckPacket;
+import io.github.pandier.multisnake.network.packet.listener.PacketListener;
+import io.github.pandier.multisnake.network.packet.message.InvalidPacketMessageException;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures choosing a client packet factory in the array-indexed registry of {@link PacketHandler},
+ * compared to a map keyed by boxed identifiers, and the full dispatch of a packet
+ * including decoding and calling its listener.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+    private static final int PACKETS = 1024;
+
+    private final PacketHandler packetHandler = new PacketHandler(new BufferPool(PacketHandler.MAX_SERVER_FRAME_SIZE, false), true, 0);
+    private final Map<Byte, ClientPacketFactory<?>> map = new HashMap<>();
+
+    private final PacketDecoder decoder = new PacketDecoder();
+    private final CountingListener listener = new CountingListener();
+
+    private final byte[] identifiers = new byte[PACKETS];
+    private final ByteBuffer[] payloads = new ByteBuffer[4];
+
+    @Setup
+    public void setup() {
+        register((byte) 0, new ClientLoginPacket.Factory());
+        register((byte) 1, new ClientReadyPacket.Factory());
+        register((byte) 2, new ClientWorldAckPacket.Factory());
+        register((byte) 3, new ClientKeepAlivePacket.Factory());
+        packetHandler.freeze();
+
+        payloads[1] = ByteBuffer.allocate(1).put((byte) 1).flip();
+        payloads[2] = ByteBuffer.allocate(Long.BYTES).putLong(42).flip();
+        payloads[3] = ByteBuffer.allocate(Long.BYTES).putLong(7).flip();
+
+        // Login packets are excluded, because decoding the username would dominate the dispatch
+        SplittableRandom random = new SplittableRandom(0);
+        for (int i = 0; i < PACKETS; i++)
+            identifiers[i] = (byte) random.nextInt(1, 4);
+    }
+
+    private void register(byte identifier, ClientPacketFactory<?> factory) {
+        packetHandler.registerClientPacket(identifier, factory);
+        map.put(identifier, factory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public void arrayLookup(Blackhole blackhole) {
+        for (byte identifier : identifiers)
+            blackhole.consume(packetHandler.getClientPacketFactory(identifier));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public void mapLookup(Blackhole blackhole) {
+        for (byte identifier : identifiers)
+            blackhole.consume(map.get(identifier));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public long dispatch() throws InvalidPacketMessageException {
+        for (byte identifier : identifiers) {
+            ClientPacketFactory<?> factory = packetHandler.getClientPacketFactory(identifier);
+            ByteBuffer payload = payloads[identifier].rewind();
+            decoder.read(identifier, factory, payload, true).apply(listener);
+        }
+        return listener.sum;
+    }
+
+    private static class CountingListener implements PacketListener {
+        long sum = 0;
+
+        @Override
+        public void onReady(@NotNull ClientReadyPacket packet) {
+            sum += packet.ready() ? 1 : 0;
+        }
+
+        @Override
+        public void onWorldAck(@NotNull ClientWorldAckPacket packet) {
+            sum += packet.tick();
+        }
+
+        @Override
+        public void onKeepAlive(@NotNull ClientKeepAlivePacket packet) {
+            sum += packet.id();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.pandier.multisnake.network.packet;
+
+import io.github.pandier.multisnake.game.Game;
+import io.github.pandier.multisnake.game.GameSettings;
+import io.github.pandier.multisnake.network.buffer.BufferPool;
+import io.github.pandier.multisnake.network.buffer.PooledBuffer;
+import io.github.pandier.multisnake.network.packet.server.ServerErrorPacket;
+import io.github.pandier.multisnake.network.packet.server.ServerGameStartPacket;
+import io.github.pandier.multisnake.network.packet.server.ServerKeepAlivePacket;
+import io.github.pandier.multisnake.network.packet.server.ServerLoginSuccessPacket;
+import io.github.pandier.multisnake.network.packet.server.ServerPacket;
+import io.github.pandier.multisnake.network.packet.server.ServerWorldKeyframePacket;
+import io.github.pandier.multisnake.network.packet.server.ServerWorldUpdatePacket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding of every server packet type with {@link PacketHandler#write(ByteBuffer, ServerPacket)},
+ * and encoding into a pooled buffer with {@link PacketHandler#encode(ServerPacket)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodeBenchmark {
+    private static final int TICKS = 8;
+
+    @Param({"8", "64"})
+    public int players;
+
+    private final PacketHandler packetHandler = new PacketHandler(new BufferPool(PacketHandler.MAX_SERVER_FRAME_SIZE, false), false, 0);
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(PacketHandler.MAX_SERVER_FRAME_SIZE);
+
+    private final ServerErrorPacket error = new ServerErrorPacket(ServerErrorPacket.Error.INVALID_PACKET_IDENTIFIER);
+    private final ServerLoginSuccessPacket loginSuccess = new ServerLoginSuccessPacket();
+    private final ServerGameStartPacket gameStart = new ServerGameStartPacket();
+    private final ServerKeepAlivePacket keepAlive = new ServerKeepAlivePacket(123456789L);
+
+    private ServerWorldKeyframePacket keyframe;
+    private ServerWorldUpdatePacket update;
+    private ServerWorldUpdatePacket delayedUpdate;
+
+    @Setup
+    public void setup() {
+        Game game = new Game(new GameSettings(64, players * 2, 10, 1, 8, players, 64, 50, 3), players, 0);
+        for (int i = 0; i < TICKS; i++)
+            game.tick();
+
+        keyframe = new ServerWorldKeyframePacket(game);
+        update = new ServerWorldUpdatePacket(game.getHistory(), game.getTick() - 1);
+        delayedUpdate = new ServerWorldUpdatePacket(game.getHistory(), game.getTick() - TICKS / 2);
+    }
+
+    private int write(ServerPacket packet) {
+        buffer.clear();
+        packetHandler.write(buffer, packet);
+        return buffer.position();
+    }
+
+    @Benchmark
+    public int error() {
+        return write(error);
+    }
+
+    @Benchmark
+    public int loginSuccess() {
+        return write(loginSuccess);
+    }
+
+    @Benchmark
+    public int gameStart() {
+        return write(gameStart);
+    }
+
+    @Benchmark
+    public int keepAlive() {
+        return write(keepAlive);
+    }
+
+    @Benchmark
+    public int worldKeyframe() {
+        return write(keyframe);
+    }
+
+    @Benchmark
+    public int worldUpdate() {
+        return write(update);
+    }
+
+    @Benchmark
+    public int delayedWorldUpdate() {
+        return write(delayedUpdate);
+    }
+
+    @Benchmark
+    public int pooledWorldUpdate() {
+        PooledBuffer frame = packetHandler.encode(update);
+        int size = frame.buffer().remaining();
+        frame.release();
+        return size;
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.pandier.multisnake.network.packet;
+
+import io.github.pandier.multisnake.game.Game;
+import io.github.pandier.multisnake.game.GameSettings;
+import io.github.pandier.multisnake.game.Viewport;
+import io.github.pandier.multisnake.network.buffer.BufferPool;
+import io.github.pandier.multisnake.network.packet.server.ServerPacket;
+import io.github.pandier.multisnake.network.packet.server.ServerWorldKeyframePacket;
+import io.github.pandier.multisnake.network.packet.server.ServerWorldViewPacket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-player cost of a tick in a large arena, updating a {@link Viewport}
+ * and writing a {@link ServerWorldViewPacket} compared to writing a full {@link ServerWorldKeyframePacket}.
+ * The arena grows with the amount of snakes, so the density around the viewport stays the same.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewportBenchmark {
+    private static final int RADIUS = 20;
+
+    @Param({"128", "1024"})
+    public int snakes;
+
+    private final PacketHandler packetHandler = new PacketHandler(new BufferPool(PacketHandler.MAX_SERVER_FRAME_SIZE, false), false, 0);
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(PacketHandler.MAX_SERVER_FRAME_SIZE);
+
+    private Game game;
+    private Viewport viewport;
+    private ServerWorldKeyframePacket keyframe;
+    private ServerWorldViewPacket view;
+
+    @Setup
+    public void setup() {
+        int size = (int) Math.sqrt(snakes * 64.0);
+        game = new Game(new GameSettings(size, snakes, 10, 1, 8, snakes, 64, 50, 3), snakes, 0);
+        game.tick();
+
+        viewport = new Viewport(game, RADIUS);
+        keyframe = new ServerWorldKeyframePacket(game);
+        view = new ServerWorldViewPacket(game, viewport);
+    }
+
+    private int write(ServerPacket packet) {
+        buffer.clear();
+        packetHandler.write(buffer, packet);
+        return buffer.position();
+    }
+
+    @Benchmark
+    public int worldKeyframe() {
+        return write(keyframe);
+    }
+
+    @Benchmark
+    public int worldView() {
+        viewport.update(game, game.getSnake(snakes / 2).getHead(), true);
+        return write(view);
+    }
+}
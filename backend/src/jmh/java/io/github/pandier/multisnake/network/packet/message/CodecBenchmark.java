@@ -0,0 +1,87 @@
+package io.github.pandier.multisnake.network.packet.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the string and uuid codecs of {@link PacketMessage}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"snake_charmer", "hadí_krotitel_🐍"})
+    public String string;
+
+    @Param({"false", "true"})
+    public boolean direct;
+
+    private final UUID uuid = UUID.randomUUID();
+
+    private PacketMessage output;
+    private ByteBuffer encodedString;
+    private ByteBuffer encodedUuid;
+    private PacketMessage input;
+
+    @Setup
+    public void setup() {
+        output = new PacketMessage(allocate(256));
+
+        encodedString = allocate(256);
+        new PacketMessage(encodedString).putString(string);
+        encodedString.flip();
+
+        encodedUuid = allocate(2 * Long.BYTES);
+        new PacketMessage(encodedUuid).putUuid(uuid);
+        encodedUuid.flip();
+
+        input = new PacketMessage(ByteBuffer.allocate(0));
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    @Benchmark
+    public int putString() {
+        output.getBuffer().clear();
+        output.putString(string);
+        return output.getBuffer().position();
+    }
+
+    @Benchmark
+    public String getString() throws InvalidPacketMessageException {
+        encodedString.rewind();
+        return input.wrap(encodedString).getString();
+    }
+
+    @Benchmark
+    public int putUuid() {
+        output.getBuffer().clear();
+        output.putUuid(uuid);
+        return output.getBuffer().position();
+    }
+
+    @Benchmark
+    public UUID getUuid() throws InvalidPacketMessageException {
+        encodedUuid.rewind();
+        return input.wrap(encodedUuid).getUuid();
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.pandier.multisnake.simulation;
+
+import io.github.pandier.multisnake.game.Direction;
+import io.github.pandier.multisnake.game.Game;
+import io.github.pandier.multisnake.game.GameSettings;
+import io.github.pandier.multisnake.game.Snake;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the decisions of every bot in a crowded arena for a single tick,
+ * compared to simulating the tick itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BotBenchmark {
+    private static final int WARMUP_TICKS = 50;
+
+    @Param({"64", "256"})
+    public int bots;
+
+    @Param({"64", "256"})
+    public int budget;
+
+    private Game game;
+    private BotController controller;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        game = new Game(new GameSettings(256, 256, 10, 1, 8, bots, 64, 50, 3), bots, 0);
+        controller = new BotController(budget);
+        for (int i = 0; i < WARMUP_TICKS; i++) {
+            decide();
+            game.tick();
+        }
+    }
+
+    @Benchmark
+    public int decide() {
+        int turns = 0;
+        for (Snake snake : game.getSnakes()) {
+            if (!snake.isAlive())
+                continue;
+            Direction direction = controller.control(game, snake);
+            if (direction != null && direction != snake.getNextDirection()) {
+                game.queueInput(snake.getId(), game.getTick(), direction);
+                turns++;
+            }
+        }
+        return turns;
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.pandier.multisnake.loadgen;
+
+import io.github.pandier.multisnake.game.Direction;
+import io.github.pandier.multisnake.network.packet.PacketHandler;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A simulated client connection of the {@link LoadGenerator}.
+ * <p>
+ * Packets are written with the same framing as the server uses,
+ * see {@link PacketHandler}.
+ */
+final class BotConnection {
+    static final byte LOGIN = 0;
+    static final byte READY = 1;
+    static final byte WORLD_ACK = 2;
+    static final byte KEEP_ALIVE = 3;
+    static final byte INPUT = 4;
+
+    private static final int INITIAL_INPUT_CAPACITY = 65536;
+    private static final int OUTPUT_CAPACITY = 65536;
+
+    enum State {
+        CONNECTING,
+        LOGGING_IN,
+        LOGGED_IN,
+        CLOSED
+    }
+
+    final int id;
+    final SocketChannel channel;
+    SelectionKey key;
+
+    State state = State.CONNECTING;
+    long connectStartNanos;
+    long loginStartNanos;
+    long lastUpdateNanos;
+    long lastReadyNanos;
+    long latestTick = -1;
+    Direction direction = Direction.RIGHT;
+    long bytesWritten = 0;
+
+    ByteBuffer input = ByteBuffer.allocate(INITIAL_INPUT_CAPACITY);
+    final ByteBuffer output = ByteBuffer.allocate(OUTPUT_CAPACITY);
+
+    BotConnection(int id, @NotNull SocketChannel channel) {
+        this.id = id;
+        this.channel = channel;
+    }
+
+    void sendLogin(@NotNull String username) throws IOException {
+        byte[] bytes = username.getBytes(StandardCharsets.UTF_8);
+        beginFrame(1 + Integer.BYTES + bytes.length, LOGIN).putInt(bytes.length).put(bytes);
+        flush();
+    }
+
+    void sendReady(boolean ready) throws IOException {
+        beginFrame(1 + 1, READY).put((byte) (ready ? 1 : 0));
+        flush();
+    }
+
+    void sendWorldAck(long tick) throws IOException {
+        beginFrame(1 + Long.BYTES, WORLD_ACK).putLong(tick);
+        flush();
+    }
+
+    void sendKeepAlive(long id) throws IOException {
+        beginFrame(1 + Long.BYTES, KEEP_ALIVE).putLong(id);
+        flush();
+    }
+
+    void sendInput(long tick, @NotNull Direction direction) throws IOException {
+        beginFrame(1 + Long.BYTES + 1, INPUT).putLong(tick).put((byte) direction.ordinal());
+        flush();
+    }
+
+    private ByteBuffer beginFrame(int length, byte identifier) throws IOException {
+        if (output.remaining() < PacketHandler.FRAME_HEADER_SIZE + length)
+            throw new IOException("Server is not reading, output buffer of connection " + id + " overflowed");
+        return output.putInt(length).put(identifier);
+    }
+
+    /**
+     * Writes buffered output to the channel and registers write interest
+     * if the channel could not accept everything.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void flush() throws IOException {
+        if (state == State.CONNECTING)
+            return;
+
+        output.flip();
+        try {
+            bytesWritten += channel.write(output);
+        } finally {
+            output.compact();
+        }
+        key.interestOps(output.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    /**
+     * Doubles the capacity of the input buffer, up to the largest frame the server can send.
+     *
+     * @throws BufferOverflowException if the buffer cannot grow anymore
+     */
+    void growInput() {
+        int capacity = Math.min(input.capacity() * 2, PacketHandler.MAX_SERVER_FRAME_SIZE);
+        if (capacity <= input.capacity())
+            throw new BufferOverflowException();
+        input = ByteBuffer.allocate(capacity).put(input.flip());
+    }
+}
@@ -0,0 +1,367 @@
+package io.github.pandier.multisnake.loadgen;
+
+import io.github.pandier.multisnake.game.Direction;
+import io.github.pandier.multisnake.metrics.Histogram;
+import io.github.pandier.multisnake.network.packet.PacketHandler;
+import io.github.pandier.multisnake.network.packet.server.ServerErrorPacket;
+import io.github.pandier.multisnake.network.packet.server.ServerGameStartPacket;
+import io.github.pandier.multisnake.network.packet.server.ServerKeepAlivePacket;
+import io.github.pandier.multisnake.network.packet.server.ServerLoginSuccessPacket;
+import io.github.pandier.multisnake.network.packet.server.ServerWorldKeyframePacket;
+import io.github.pandier.multisnake.network.packet.server.ServerWorldUpdatePacket;
+import io.github.pandier.multisnake.scheduler.TimingWheel;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A headless client simulating many players connected to a multisnake server.
+ * <p>
+ * Every simulated client opens a non-blocking connection, logs in, declares
+ * that it is ready and acknowledges every received world state. While logged in,
+ * it sends keep-alive packets at the configured rate and measures the time until
+ * the server echoes them back. During a game, it also turns its snake at the configured input rate,
+ * stamping every input with the latest tick it has seen like a real client.
+ * Clients that have not received a world update for a second
+ * declare that they are ready again, so new games keep starting.
+ * <p>
+ * All connections are driven by a single selector thread, so the load generator
+ * itself stays cheap compared to the server under test.
+ */
+public class LoadGenerator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final long TIMER_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int TIMER_WHEEL_SIZE = 1024;
+    private static final long READY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LoadGeneratorSettings settings;
+    private final InetSocketAddress address;
+    private final Selector selector;
+    private final TimingWheel timers;
+    private final long start;
+    private final SplittableRandom random = new SplittableRandom();
+
+    private final List<BotConnection> connections = new ArrayList<>();
+
+    private final Histogram connectLatency = new Histogram();
+    private final Histogram loginLatency = new Histogram();
+    private final Histogram roundTripLatency = new Histogram();
+
+    private int connected = 0;
+    private int loggedIn = 0;
+    private int closed = 0;
+    private long errors = 0;
+    private long gamesStarted = 0;
+
+    private long packetsIn = 0;
+    private long packetsOut = 0;
+    private long bytesIn = 0;
+
+    /**
+     * Constructs a load generator.
+     *
+     * @param settings the load generator settings
+     * @throws IOException if the selector could not be opened
+     */
+    public LoadGenerator(@NotNull LoadGeneratorSettings settings) throws IOException {
+        this.settings = settings;
+        this.address = new InetSocketAddress(settings.host(), settings.port());
+        this.selector = Selector.open();
+        this.start = System.nanoTime();
+        this.timers = new TimingWheel(TIMER_TICK_NANOS, TIMER_WHEEL_SIZE, start);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGeneratorSettings settings = LoadGeneratorSettings.fromSystemProperties();
+        LOGGER.info("Generating load with {} connections against {}:{} for {} seconds", settings.connections(), settings.host(), settings.port(), settings.duration());
+
+        LoadGenerator generator = new LoadGenerator(settings);
+        generator.run();
+        generator.report();
+    }
+
+    /**
+     * Generates load until the configured duration elapses, then closes every connection.
+     *
+     * @throws IOException if the selector fails
+     */
+    public void run() throws IOException {
+        long end = start + TimeUnit.SECONDS.toNanos(settings.duration());
+        long nextReport = start + REPORT_INTERVAL_NANOS;
+        long lastPacketsIn = 0, lastPacketsOut = 0, lastBytesIn = 0, lastBytesOut = 0;
+
+        try (selector) {
+            long now;
+            while ((now = System.nanoTime()) - end < 0) {
+                openConnections(now);
+
+                long timeout = nextReport - now;
+                long timerTimeout = timers.timeUntilNextTick(now);
+                if (timerTimeout >= 0)
+                    timeout = Math.min(timeout, timerTimeout);
+                if (connections.size() < settings.connections())
+                    timeout = Math.min(timeout, TIMER_TICK_NANOS);
+                selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeout)));
+
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    process((BotConnection) key.attachment());
+                }
+
+                now = System.nanoTime();
+                timers.advance(now);
+
+                if (now - nextReport >= 0) {
+                    long bytesOut = getBytesOut();
+                    LOGGER.info("{}s: {} connected, {} logged in, {} closed, in {} packets/s ({} KB/s), out {} packets/s ({} KB/s)",
+                            TimeUnit.NANOSECONDS.toSeconds(now - start), connected, loggedIn, closed,
+                            packetsIn - lastPacketsIn, (bytesIn - lastBytesIn) / 1024,
+                            packetsOut - lastPacketsOut, (bytesOut - lastBytesOut) / 1024);
+                    lastPacketsIn = packetsIn;
+                    lastPacketsOut = packetsOut;
+                    lastBytesIn = bytesIn;
+                    lastBytesOut = bytesOut;
+                    nextReport += REPORT_INTERVAL_NANOS;
+                }
+            }
+
+            for (BotConnection connection : connections)
+                connection.channel.close();
+        }
+    }
+
+    private void openConnections(long now) throws IOException {
+        long due = settings.connectRate() == 0
+                ? settings.connections()
+                : Math.min(settings.connections(), (now - start) * settings.connectRate() / TimeUnit.SECONDS.toNanos(1) + 1);
+
+        while (connections.size() < due) {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+
+            BotConnection connection = new BotConnection(connections.size(), channel);
+            connections.add(connection);
+            connection.connectStartNanos = System.nanoTime();
+            connection.key = channel.register(selector, SelectionKey.OP_CONNECT, connection);
+            try {
+                if (channel.connect(address))
+                    onConnected(connection);
+            } catch (IOException e) {
+                close(connection, e);
+            }
+        }
+    }
+
+    private void process(@NotNull BotConnection connection) {
+        try {
+            if (connection.key.isConnectable()) {
+                if (connection.channel.finishConnect())
+                    onConnected(connection);
+                return;
+            }
+            if (connection.key.isWritable())
+                connection.flush();
+            if (connection.key.isReadable())
+                read(connection);
+        } catch (IOException | BufferOverflowException e) {
+            close(connection, e);
+        }
+    }
+
+    private void onConnected(@NotNull BotConnection connection) throws IOException {
+        long now = System.nanoTime();
+        connectLatency.record(now - connection.connectStartNanos);
+        connected++;
+
+        connection.state = BotConnection.State.LOGGING_IN;
+        connection.key.interestOps(SelectionKey.OP_READ);
+        connection.loginStartNanos = now;
+        connection.sendLogin("bot-" + connection.id);
+        packetsOut++;
+    }
+
+    private void read(@NotNull BotConnection connection) throws IOException {
+        if (!connection.input.hasRemaining())
+            connection.growInput();
+
+        int read = connection.channel.read(connection.input);
+        if (read < 0) {
+            close(connection, null);
+            return;
+        }
+        bytesIn += read;
+
+        ByteBuffer input = connection.input.flip();
+        try {
+            while (input.remaining() >= PacketHandler.FRAME_HEADER_SIZE) {
+                int length = input.getInt(input.position());
+                if (length <= 0 || length > PacketHandler.MAX_SERVER_FRAME_SIZE - PacketHandler.FRAME_HEADER_SIZE)
+                    throw new IOException("Invalid frame length " + length);
+                if (input.remaining() < PacketHandler.FRAME_HEADER_SIZE + length)
+                    break;
+
+                int end = input.position() + PacketHandler.FRAME_HEADER_SIZE + length;
+                input.position(input.position() + PacketHandler.FRAME_HEADER_SIZE);
+                handle(connection, input.get(), input);
+                input.position(end);
+                packetsIn++;
+            }
+        } finally {
+            input.compact();
+        }
+    }
+
+    private void handle(@NotNull BotConnection connection, byte identifier, @NotNull ByteBuffer payload) throws IOException {
+        long now = System.nanoTime();
+        switch (identifier) {
+            case ServerErrorPacket.IDENTIFIER -> {
+                errors++;
+                LOGGER.warn("Connection {} received error {}", connection.id, payload.get());
+            }
+            case ServerLoginSuccessPacket.IDENTIFIER -> {
+                loginLatency.record(now - connection.loginStartNanos);
+                loggedIn++;
+                connection.state = BotConnection.State.LOGGED_IN;
+                sendReady(connection, now);
+                scheduleKeepAlive(connection);
+                if (settings.inputRate() > 0)
+                    scheduleInput(connection);
+            }
+            case ServerGameStartPacket.IDENTIFIER -> gamesStarted++;
+            case ServerWorldKeyframePacket.IDENTIFIER -> acknowledge(connection, payload.getLong(), now);
+            case ServerWorldUpdatePacket.IDENTIFIER -> {
+                long baseTick = payload.getLong();
+                acknowledge(connection, baseTick + payload.getShort(), now);
+            }
+            case ServerKeepAlivePacket.IDENTIFIER -> roundTripLatency.record(now - payload.getLong());
+            default -> LOGGER.warn("Connection {} received unknown packet {}", connection.id, identifier);
+        }
+    }
+
+    private void acknowledge(@NotNull BotConnection connection, long tick, long now) throws IOException {
+        connection.lastUpdateNanos = now;
+        if (tick <= connection.latestTick)
+            return;
+        connection.latestTick = tick;
+        connection.sendWorldAck(tick);
+        packetsOut++;
+    }
+
+    private void sendReady(@NotNull BotConnection connection, long now) throws IOException {
+        connection.lastReadyNanos = now;
+        connection.latestTick = -1;
+        connection.direction = Direction.RIGHT;
+        connection.sendReady(true);
+        packetsOut++;
+    }
+
+    private void scheduleKeepAlive(@NotNull BotConnection connection) {
+        timers.schedule(TimeUnit.SECONDS.toNanos(1) / settings.rate(), () -> {
+            if (connection.state != BotConnection.State.LOGGED_IN)
+                return;
+
+            long now = System.nanoTime();
+            try {
+                connection.sendKeepAlive(now);
+                packetsOut++;
+
+                // The game has ended, so become ready for the next one
+                if (now - connection.lastUpdateNanos > READY_INTERVAL_NANOS && now - connection.lastReadyNanos > READY_INTERVAL_NANOS)
+                    sendReady(connection, now);
+            } catch (IOException e) {
+                close(connection, e);
+                return;
+            }
+            scheduleKeepAlive(connection);
+        });
+    }
+
+    private void scheduleInput(@NotNull BotConnection connection) {
+        timers.schedule(TimeUnit.SECONDS.toNanos(1) / settings.inputRate(), () -> {
+            if (connection.state != BotConnection.State.LOGGED_IN)
+                return;
+
+            // Inputs are only sent during a game, after the first world state was received
+            if (connection.latestTick >= 0) {
+                // Turn left or right, reversing would be ignored by the server
+                int turn = random.nextBoolean() ? 1 : 3;
+                Direction direction = Direction.byOrdinal((connection.direction.ordinal() + turn) % 4);
+                try {
+                    connection.sendInput(connection.latestTick, direction);
+                    connection.direction = direction;
+                    packetsOut++;
+                } catch (IOException e) {
+                    close(connection, e);
+                    return;
+                }
+            }
+            scheduleInput(connection);
+        });
+    }
+
+    private void close(@NotNull BotConnection connection, Exception cause) {
+        if (connection.state == BotConnection.State.CLOSED)
+            return;
+        if (connection.state == BotConnection.State.LOGGED_IN)
+            loggedIn--;
+        if (connection.state != BotConnection.State.CONNECTING)
+            connected--;
+
+        connection.state = BotConnection.State.CLOSED;
+        closed++;
+        if (cause != null)
+            LOGGER.warn("Connection {} failed ({})", connection.id, cause.toString());
+
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Logs the latency percentiles and totals measured during the run.
+     */
+    public void report() {
+        long bytesOut = getBytesOut();
+        long elapsed = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+        LOGGER.info("Connections: {} opened, {} closed, {} errors, {} games started", connections.size(), closed, errors, gamesStarted);
+        LOGGER.info("Throughput: in {} packets/s ({} KB/s), out {} packets/s ({} KB/s)",
+                packetsIn / elapsed, bytesIn / 1024 / elapsed, packetsOut / elapsed, bytesOut / 1024 / elapsed);
+        report("Connect", connectLatency);
+        report("Login", loginLatency);
+        report("Round-trip", roundTripLatency);
+    }
+
+    private long getBytesOut() {
+        long bytesOut = 0;
+        for (BotConnection connection : connections)
+            bytesOut += connection.bytesWritten;
+        return bytesOut;
+    }
+
+    private static void report(@NotNull String name, @NotNull Histogram histogram) {
+        LOGGER.info("{} latency: count={} p50={}us p99={}us p999={}us max={}us", name, histogram.getCount(),
+                TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(50)),
+                TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(99)),
+                TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(99.9)),
+                TimeUnit.NANOSECONDS.toMicros(histogram.getMax()));
+    }
+}
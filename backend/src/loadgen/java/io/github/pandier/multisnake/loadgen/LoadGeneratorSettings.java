@@ -0,0 +1,65 @@
+package io.github.pandier.multisnake.loadgen;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Settings of the load generator.
+ *
+ * @param host        the host of the server
+ * @param port        the port of the server
+ * @param connections the amount of simulated clients
+ * @param connectRate the amount of connections opened per second, 0 to open all at once
+ * @param rate        the amount of keep-alive packets every client sends per second
+ * @param inputRate   the amount of input packets every client sends per second during a game, 0 to send none
+ * @param duration    the amount of seconds the load is generated for
+ */
+public record LoadGeneratorSettings(
+        @NotNull String host,
+        int port,
+        int connections,
+        int connectRate,
+        int rate,
+        int inputRate,
+        int duration
+) {
+
+    public LoadGeneratorSettings {
+        if (connections < 1)
+            throw new IllegalArgumentException("There must be at least one connection");
+        if (connectRate < 0)
+            throw new IllegalArgumentException("Connect rate cannot be negative");
+        if (rate < 1)
+            throw new IllegalArgumentException("Rate must be at least one packet per second");
+        if (inputRate < 0)
+            throw new IllegalArgumentException("Input rate cannot be negative");
+        if (duration < 1)
+            throw new IllegalArgumentException("Duration must be at least one second");
+    }
+
+    /**
+     * Creates load generator settings using values of system properties.
+     * If a property is not defined, its default value is used.
+     * <ul>
+     *     <li>{@code multisnake.loadgen.host} (default localhost)</li>
+     *     <li>{@code multisnake.loadgen.port} (default 35236)</li>
+     *     <li>{@code multisnake.loadgen.connections} (default 500)</li>
+     *     <li>{@code multisnake.loadgen.connectRate} (default 0)</li>
+     *     <li>{@code multisnake.loadgen.rate} (default 10)</li>
+     *     <li>{@code multisnake.loadgen.inputRate} (default 2)</li>
+     *     <li>{@code multisnake.loadgen.duration} (default 30)</li>
+     * </ul>
+     *
+     * @return the load generator settings
+     */
+    public static @NotNull LoadGeneratorSettings fromSystemProperties() {
+        return new LoadGeneratorSettings(
+                System.getProperty("multisnake.loadgen.host", "localhost"),
+                Integer.getInteger("multisnake.loadgen.port", 35236),
+                Integer.getInteger("multisnake.loadgen.connections", 500),
+                Integer.getInteger("multisnake.loadgen.connectRate", 0),
+                Integer.getInteger("multisnake.loadgen.rate", 10),
+                Integer.getInteger("multisnake.loadgen.inputRate", 2),
+                Integer.getInteger("multisnake.loadgen.duration", 30)
+        );
+    }
+}
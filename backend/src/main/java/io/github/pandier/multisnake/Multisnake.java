@@ -1,92 +1,101 @@
 package io.github.pandier.multisnake;
 
+import io.github.pandier.multisnake.game.GameSettings;
+import io.github.pandier.multisnake.metrics.MetricsRegistry;
+import io.github.pandier.multisnake.metrics.MetricsServer;
+import io.github.pandier.multisnake.metrics.MetricsSettings;
 import io.github.pandier.multisnake.network.MultisnakeServer;
+import io.github.pandier.multisnake.network.NetworkSettings;
 import io.github.pandier.multisnake.network.NetworkingException;
-import io.github.pandier.multisnake.network.packet.server.ServerGameStartPacket;
+import io.github.pandier.multisnake.network.datagram.DatagramSettings;
 import io.github.pandier.multisnake.player.Player;
 import io.github.pandier.multisnake.player.PlayerManager;
+import io.github.pandier.multisnake.replay.ReplaySettings;
+import io.github.pandier.multisnake.replay.ReplayWriter;
+import io.github.pandier.multisnake.room.RoomManager;
+import io.github.pandier.multisnake.room.RoomSettings;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.List;
 
 public class Multisnake {
     public static final Logger LOGGER = LoggerFactory.getLogger(Multisnake.class);
 
+    private final MetricsRegistry metrics;
+    private final MetricsServer metricsServer;
     private final MultisnakeServer server;
 
     private final PlayerManager playerManager;
-
-    private boolean runningGame = false;
+    private final RoomManager roomManager;
+    private final ReplayWriter replayWriter;
 
     /**
      * Creates a new multisnake instance.
      * <p>
-     * This opens a new server.
+     * This opens a new server and, if they are enabled, the metrics endpoint and the replay writer.
      *
      * @throws Exception if an error occurs
      */
     public Multisnake() throws Exception {
+        this.metrics = new MetricsRegistry();
         this.playerManager = new PlayerManager();
+        metrics.gauge("multisnake_players", "Logged in players", playerManager::getPlayerCount);
 
         try {
-            this.server = MultisnakeServer.open(this);
+            this.server = MultisnakeServer.open(this, NetworkSettings.fromSystemProperties(), DatagramSettings.fromSystemProperties());
         } catch (NetworkingException e) {
             throw new Exception("Failed to open server", e);
         }
-    }
-
-    /**
-     * Starts the game.
-     * If force is false, it first checks if the game can start.
-     * If the game cannot start, false is returned.
-     *
-     * @param force true if checks should be ignored
-     * @return true if the game started successfully
-     * @see #canStartGame()
-     */
-    public boolean startGame(boolean force) {
-        if (!force && !canStartGame())
-            return false;
 
-        LOGGER.info("Starting the game");
+        ReplaySettings replaySettings = ReplaySettings.fromSystemProperties();
+        this.replayWriter = replaySettings.enabled() ? new ReplayWriter(replaySettings, metrics) : null;
 
-        runningGame = true;
+        this.roomManager = new RoomManager(server, GameSettings.fromSystemProperties(), RoomSettings.fromSystemProperties());
+        metrics.gauge("multisnake_rooms", "Open rooms", roomManager::getRoomCount);
+        metrics.gauge("multisnake_spectators", "Connected spectators", roomManager::getSpectatorCount);
 
-        for (Player player : getPlayers()) {
-            try {
-                player.getConnection().send(new ServerGameStartPacket());
-            } catch (NetworkingException e) {
-                LOGGER.error("Failed to sent game start packet to {}", player.getUuid(), e);
-                player.getConnection().disconnect();
-            }
+        MetricsSettings metricsSettings = MetricsSettings.fromSystemProperties();
+        try {
+            this.metricsServer = metricsSettings.enabled() ? MetricsServer.open(metrics, metricsSettings) : null;
+        } catch (IOException e) {
+            throw new Exception("Failed to open metrics server", e);
         }
-        return true;
     }
 
     /**
-     * Returns true if a game isn't already running,
-     * if there are at least two players connected and if everyone is ready.
+     * Starts the replay writer, the room workers, the metrics endpoint and the server loop.
      *
-     * @return true if the game can start
+     * @throws Exception if an error occurs
      */
-    public boolean canStartGame() {
-        return !runningGame && getPlayers().size() > 1 && getPlayers()
-                .stream()
-                .filter(player -> !player.isReady())
-                .findFirst()
-                .isEmpty();
+    public void start() throws Exception {
+        if (replayWriter != null)
+            replayWriter.start();
+        roomManager.start();
+        if (metricsServer != null)
+            metricsServer.start();
+        try {
+            server.start(new InetSocketAddress(35236));
+        } finally {
+            if (metricsServer != null)
+                metricsServer.stop();
+            roomManager.stop();
+            if (replayWriter != null)
+                replayWriter.stop();
+        }
     }
 
     /**
-     * Starts the server loop.
+     * Stops the server loop, which also stops the room workers.
      *
-     * @throws Exception if an error occurs
+     * @throws NetworkingException if the server could not be stopped
      */
-    public void start() throws Exception {
-        server.start(new InetSocketAddress(35236));
+    public void stop() throws NetworkingException {
+        server.stop();
     }
 
     /**
@@ -98,6 +107,42 @@ public class Multisnake {
         return playerManager.getPlayers();
     }
 
+    /**
+     * Returns the metrics registry of this multisnake instance.
+     *
+     * @return the metrics registry
+     */
+    public @NotNull MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the metrics endpoint of this multisnake instance.
+     *
+     * @return the metrics server, null if the endpoint is disabled
+     */
+    public @Nullable MetricsServer getMetricsServer() {
+        return metricsServer;
+    }
+
+    /**
+     * Returns the replay writer of this multisnake instance.
+     *
+     * @return the replay writer, null if recording is disabled
+     */
+    public @Nullable ReplayWriter getReplayWriter() {
+        return replayWriter;
+    }
+
+    /**
+     * Returns the server of this multisnake instance.
+     *
+     * @return the server
+     */
+    public @NotNull MultisnakeServer getServer() {
+        return server;
+    }
+
     /**
      * Returns the player manager of this multisnake instance.
      *
@@ -106,4 +151,13 @@ public class Multisnake {
     public @NotNull PlayerManager getPlayerManager() {
         return playerManager;
     }
+
+    /**
+     * Returns the room manager of this multisnake instance.
+     *
+     * @return the room manager
+     */
+    public @NotNull RoomManager getRoomManager() {
+        return roomManager;
+    }
 }
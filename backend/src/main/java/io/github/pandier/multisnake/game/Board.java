@@ -0,0 +1,135 @@
+package io.github.pandier.multisnake.game;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * An occupancy grid of the arena, storing the owner of every cell.
+ * <p>
+ * The grid is surrounded by a border of {@link #WALL} cells, so any cell a head
+ * can move to, including the cells right outside of the arena, is answered
+ * by a single array lookup. Cells occupied by a snake contain the snake identifier
+ * incremented by one, see {@link #owner(int)}.
+ */
+public class Board {
+
+    /**
+     * The value of an empty cell.
+     */
+    public static final short EMPTY = 0;
+
+    /**
+     * The value of a cell outside of the arena.
+     */
+    public static final short WALL = -1;
+
+    /**
+     * The value of a cell containing food.
+     */
+    public static final short FOOD = -2;
+
+    /**
+     * The maximum amount of snakes that can be stored on a board.
+     */
+    public static final int MAX_SNAKES = Short.MAX_VALUE;
+
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final short[] cells;
+
+    /**
+     * Constructs an empty board.
+     *
+     * @param width  the width of the arena
+     * @param height the height of the arena
+     */
+    public Board(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.stride = width + 2;
+        this.cells = new short[stride * (height + 2)];
+
+        Arrays.fill(cells, 0, stride, WALL);
+        Arrays.fill(cells, cells.length - stride, cells.length, WALL);
+        for (int y = 1; y <= height; y++) {
+            cells[y * stride] = WALL;
+            cells[y * stride + width + 1] = WALL;
+        }
+    }
+
+    /**
+     * Returns the value stored in a cell of snakes with the given identifier.
+     *
+     * @param snakeId the snake identifier
+     * @return the owner value
+     */
+    public static short owner(int snakeId) {
+        return (short) (snakeId + 1);
+    }
+
+    private int index(int cell) {
+        return (Cell.y(cell) + 1) * stride + Cell.x(cell) + 1;
+    }
+
+    /**
+     * Returns the value of a cell.
+     * The cell must be inside the arena or directly next to it.
+     *
+     * @param cell the packed cell
+     * @return the value, either {@link #EMPTY}, {@link #WALL}, {@link #FOOD} or an {@link #owner(int) owner}
+     */
+    public short get(int cell) {
+        return cells[index(cell)];
+    }
+
+    /**
+     * Changes the value of a cell inside the arena.
+     *
+     * @param cell  the packed cell
+     * @param value the value
+     */
+    public void set(int cell, short value) {
+        cells[index(cell)] = value;
+    }
+
+    /**
+     * Clears a cell if it contains the given value.
+     *
+     * @param cell  the packed cell
+     * @param value the expected value
+     */
+    public void clear(int cell, short value) {
+        int index = index(cell);
+        if (cells[index] == value)
+            cells[index] = EMPTY;
+    }
+
+    /**
+     * Replaces the content of this board with the content of another board of the same size.
+     *
+     * @param other the other board
+     */
+    void copyFrom(@NotNull Board other) {
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+    }
+
+    /**
+     * Returns the width of the arena.
+     *
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the arena.
+     *
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+}
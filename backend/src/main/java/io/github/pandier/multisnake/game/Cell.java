@@ -0,0 +1,56 @@
+package io.github.pandier.multisnake.game;
+
+/**
+ * Utility methods for grid cells packed into a single integer.
+ * <p>
+ * The x coordinate is stored in the upper sixteen bits and the y coordinate
+ * in the lower sixteen bits, both as signed values, so cells outside
+ * of the arena can still be represented.
+ */
+public final class Cell {
+
+    private Cell() {
+    }
+
+    /**
+     * Packs the given coordinates into a cell.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the packed cell
+     */
+    public static int pack(int x, int y) {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    /**
+     * Returns the x coordinate of a packed cell.
+     *
+     * @param cell the packed cell
+     * @return the x coordinate
+     */
+    public static int x(int cell) {
+        return cell >> 16;
+    }
+
+    /**
+     * Returns the y coordinate of a packed cell.
+     *
+     * @param cell the packed cell
+     * @return the y coordinate
+     */
+    public static int y(int cell) {
+        return (short) cell;
+    }
+
+    /**
+     * Returns the cell next to the given cell in a direction.
+     *
+     * @param cell      the packed cell
+     * @param direction the direction
+     * @return the packed neighbouring cell
+     */
+    public static int offset(int cell, Direction direction) {
+        return pack(x(cell) + direction.getOffsetX(), y(cell) + direction.getOffsetY());
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.pandier.multisnake.game;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A ring buffer of the {@link WorldDelta deltas} of the most recent ticks of a game.
+ * <p>
+ * Deltas are preallocated and reused, so recording a tick does not allocate.
+ */
+public class DeltaHistory {
+    private final WorldDelta[] deltas;
+    private long latestTick = 0;
+
+    /**
+     * Constructs a history.
+     *
+     * @param capacity the amount of ticks kept in the history
+     * @param snakes   the amount of snakes in the game
+     * @param food     the amount of food in the game
+     */
+    public DeltaHistory(int capacity, int snakes, int food) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("History capacity must be at least one");
+
+        this.deltas = new WorldDelta[capacity];
+        for (int i = 0; i < capacity; i++)
+            deltas[i] = new WorldDelta(snakes, food);
+    }
+
+    @NotNull WorldDelta begin(long tick) {
+        WorldDelta delta = deltas[(int) (tick % deltas.length)];
+        delta.reset(tick);
+        latestTick = tick;
+        return delta;
+    }
+
+    /**
+     * Returns the delta of a tick.
+     *
+     * @param tick the tick
+     * @return the delta, null if the tick is not in the history
+     */
+    public @Nullable WorldDelta get(long tick) {
+        if (!contains(tick))
+            return null;
+        return deltas[(int) (tick % deltas.length)];
+    }
+
+    /**
+     * Returns true if the delta of a tick is in the history.
+     *
+     * @param tick the tick
+     * @return true if the history contains the tick
+     */
+    public boolean contains(long tick) {
+        return tick > 0 && tick <= latestTick && latestTick - tick < deltas.length;
+    }
+
+    /**
+     * Returns the latest recorded tick.
+     *
+     * @return the latest tick
+     */
+    public long getLatestTick() {
+        return latestTick;
+    }
+
+    /**
+     * Returns the amount of ticks kept in the history.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return deltas.length;
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.pandier.multisnake.game;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A direction in which a snake moves on the grid.
+ */
+public enum Direction {
+    UP(0, -1),
+    RIGHT(1, 0),
+    DOWN(0, 1),
+    LEFT(-1, 0);
+
+    private static final Direction[] VALUES = values();
+
+    private final int offsetX;
+    private final int offsetY;
+
+    Direction(int offsetX, int offsetY) {
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+    }
+
+    /**
+     * Returns the direction with the given ordinal.
+     *
+     * @param ordinal the ordinal of the direction
+     * @return the direction
+     * @throws IllegalArgumentException if no direction has the ordinal
+     */
+    public static @NotNull Direction byOrdinal(int ordinal) throws IllegalArgumentException {
+        if (ordinal < 0 || ordinal >= VALUES.length)
+            throw new IllegalArgumentException("Invalid direction ordinal " + ordinal);
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Returns the direction opposite to this direction.
+     *
+     * @return the opposite direction
+     */
+    public @NotNull Direction opposite() {
+        return VALUES[(ordinal() + 2) % VALUES.length];
+    }
+
+    /**
+     * Returns the horizontal offset of a single step in this direction.
+     *
+     * @return the x offset
+     */
+    public int getOffsetX() {
+        return offsetX;
+    }
+
+    /**
+     * Returns the vertical offset of a single step in this direction.
+     *
+     * @return the y offset
+     */
+    public int getOffsetY() {
+        return offsetY;
+    }
+}
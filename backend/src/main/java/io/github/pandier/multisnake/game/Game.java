@@ -0,0 +1,467 @@
+package io.github.pandier.multisnake.game;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The authoritative state of a single match.
+ * <p>
+ * The game is simulated in discrete ticks by calling {@link #tick()}.
+ * It is not thread-safe and must only be accessed by the thread that ticks it.
+ * <p>
+ * Direction inputs are stamped with the tick the client saw when it made them
+ * and are applied right before the tick after it is simulated. An input that arrives late
+ * makes the game {@link #rewind() rewind} to a {@link GameSnapshot snapshot} of its tick
+ * and simulate the ticks since then again, at most {@link GameSettings#maxRewindTicks()} ticks.
+ * The food spawns come from a random generator whose state is part of the snapshot,
+ * so the ticks are simulated again the same way except for the late inputs.
+ */
+public class Game {
+    private static final int FOOD_SPAWN_ATTEMPTS = 32;
+    private static final long NO_REWIND = Long.MAX_VALUE;
+
+    private final GameSettings settings;
+    private long randomState;
+
+    private final Board board;
+    private final DeltaHistory history;
+    private final Snake[] snakes;
+    private final int[] food;
+    private int foodCount = 0;
+
+    private final InputBuffer[] inputs;
+    private final GameSnapshot[] snapshots;
+    private final boolean[] forfeited;
+    private final boolean[] pendingDeaths;
+    private SpatialGrid grid = null;
+    private long rewindTick = NO_REWIND;
+
+    private long tick = 0;
+
+    /**
+     * Constructs a game with the given amount of snakes.
+     * The snakes are spread evenly along the left side of the arena, heading right.
+     * If there are more snakes than rows, the arena is split into as few columns as needed
+     * and the snakes are spread evenly along the left side of every column.
+     *
+     * @param settings the game settings
+     * @param snakes   the amount of snakes
+     * @param seed     the seed of the random generator used for spawning food
+     * @throws IllegalArgumentException if more snakes than {@link GameSettings#maxSnakes()} are requested
+     */
+    public Game(@NotNull GameSettings settings, int snakes, long seed) throws IllegalArgumentException {
+        if (snakes > settings.maxSnakes())
+            throw new IllegalArgumentException("Too many snakes, the arena fits at most " + settings.maxSnakes());
+
+        this.settings = settings;
+        this.randomState = seed;
+        this.board = new Board(settings.width(), settings.height());
+        this.history = new DeltaHistory(settings.deltaHistory(), snakes, settings.food());
+        this.snakes = new Snake[snakes];
+        this.food = new int[settings.food()];
+        this.inputs = new InputBuffer[snakes];
+        this.snapshots = new GameSnapshot[settings.maxRewindTicks() + 1];
+        this.forfeited = new boolean[snakes];
+        this.pendingDeaths = new boolean[snakes];
+
+        for (int i = 0; i < snapshots.length; i++)
+            snapshots[i] = new GameSnapshot(settings, snakes);
+
+        int columns = Math.max(1, Math.ceilDiv(snakes, settings.height()));
+        int rows = Math.max(1, Math.ceilDiv(snakes, columns));
+        for (int i = 0; i < snakes; i++) {
+            int x = i / rows * settings.width() / columns;
+            int y = (i % rows + 1) * settings.height() / (rows + 1);
+            Snake snake = new Snake(i, Cell.pack(x, y), Direction.RIGHT, settings.spawnLength());
+            for (int j = 0; j < snake.getLength(); j++)
+                board.set(snake.getSegment(j), Board.owner(i));
+            this.snakes[i] = snake;
+            this.inputs[i] = new InputBuffer();
+        }
+
+        while (foodCount < food.length && spawnFood()) ;
+        save();
+    }
+
+    /**
+     * Queues a direction input of a snake.
+     * <p>
+     * The input is applied right before the tick after the given tick is simulated.
+     * If that tick was already simulated, the game is rewound on the next call to {@link #rewind()}.
+     * Inputs stamped with a tick further than {@link GameSettings#maxRewindTicks()} ticks
+     * from the current tick are moved to the nearest tick within that distance.
+     *
+     * @param snakeId   the snake identifier
+     * @param tick      the tick the input is stamped with
+     * @param direction the direction
+     * @throws IndexOutOfBoundsException if no snake has the identifier
+     */
+    public void queueInput(int snakeId, long tick, @NotNull Direction direction) throws IndexOutOfBoundsException {
+        int maxRewind = settings.maxRewindTicks();
+        long stamped = Math.clamp(tick, Math.max(0, this.tick - maxRewind), this.tick + maxRewind);
+        inputs[snakeId].add(stamped, direction);
+        if (stamped < this.tick)
+            rewindTick = Math.min(rewindTick, stamped);
+    }
+
+    /**
+     * Applies the late inputs queued since the last tick.
+     * <p>
+     * The game is restored to the snapshot of the oldest tick a late input is stamped with,
+     * and the ticks after it are simulated again with every queued input.
+     * Deltas of the simulated ticks are {@link WorldDelta#isRewritten() marked as rewritten},
+     * because clients may have received the previous version of those ticks.
+     *
+     * @return the amount of ticks simulated again, zero if there were no late inputs
+     */
+    public int rewind() {
+        if (rewindTick == NO_REWIND)
+            return 0;
+
+        long target = tick;
+        long from = rewindTick;
+        rewindTick = NO_REWIND;
+
+        restore(snapshots[(int) (from % snapshots.length)]);
+        while (tick < target) {
+            tick();
+            history.get(tick).markRewritten();
+        }
+        return (int) (target - from);
+    }
+
+    /**
+     * Kills a snake whose player has left the game.
+     * Unlike a death in a tick, this is not undone by a rewind.
+     * The body is removed from the board immediately
+     * and the death is reported in the {@link WorldDelta} of the next tick,
+     * or of the first tick simulated again if a rewind restores the snake alive.
+     *
+     * @param snakeId the snake identifier
+     * @throws IndexOutOfBoundsException if no snake has the identifier
+     */
+    public void forfeit(int snakeId) throws IndexOutOfBoundsException {
+        Snake snake = snakes[snakeId];
+        forfeited[snakeId] = true;
+        if (!snake.isAlive())
+            return;
+        snake.kill();
+        clearBody(snake);
+        pendingDeaths[snakeId] = true;
+        if (grid != null)
+            grid.invalidate();
+    }
+
+    private void save() {
+        GameSnapshot snapshot = snapshots[(int) (tick % snapshots.length)];
+        snapshot.tick = tick;
+        snapshot.randomState = randomState;
+        snapshot.board.copyFrom(board);
+        for (int i = 0; i < snakes.length; i++)
+            snapshot.snakes[i].copyFrom(snakes[i]);
+        System.arraycopy(food, 0, snapshot.food, 0, foodCount);
+        snapshot.foodCount = foodCount;
+    }
+
+    private void restore(@NotNull GameSnapshot snapshot) {
+        tick = snapshot.tick;
+        randomState = snapshot.randomState;
+        board.copyFrom(snapshot.board);
+        for (int i = 0; i < snakes.length; i++) {
+            snakes[i].copyFrom(snapshot.snakes[i]);
+            if (forfeited[i] && snakes[i].isAlive()) {
+                // The ticks reporting the death may be simulated again, so it is reported again
+                snakes[i].kill();
+                clearBody(snakes[i]);
+                pendingDeaths[i] = true;
+            }
+        }
+        System.arraycopy(snapshot.food, 0, food, 0, snapshot.foodCount);
+        foodCount = snapshot.foodCount;
+        if (grid != null)
+            grid.invalidate();
+    }
+
+    /**
+     * Simulates a single tick.
+     * <p>
+     * First the inputs stamped with the previous tick are applied.
+     * Then the tails of all living snakes that do not grow are retracted.
+     * Then every head moves by one cell and is checked against the {@link Board},
+     * so a collision with a wall, a body or food costs a single lookup.
+     * Two heads moving into the same cell kill both snakes.
+     * <p>
+     * All changes are recorded into a {@link WorldDelta} of the {@link DeltaHistory}.
+     */
+    public void tick() {
+        for (int i = 0; i < snakes.length; i++)
+            inputs[i].apply(tick, snakes[i]);
+
+        tick++;
+        WorldDelta delta = history.begin(tick);
+
+        for (int i = 0; i < pendingDeaths.length; i++) {
+            if (pendingDeaths[i]) {
+                pendingDeaths[i] = false;
+                delta.addFlags(i, WorldDelta.DIED);
+            }
+        }
+
+        for (Snake snake : snakes) {
+            if (snake.isAlive() && !snake.consumeGrowth()) {
+                board.clear(snake.popTail(), Board.owner(snake.getId()));
+                delta.addFlags(snake.getId(), WorldDelta.TAIL_REMOVED);
+            }
+        }
+
+        int eaten = 0;
+        for (Snake snake : snakes) {
+            if (!snake.isAlive())
+                continue;
+
+            int next = snake.turn();
+            short value = board.get(next);
+            snake.pushHead(next);
+            delta.setHead(snake.getId(), next);
+
+            if (value == Board.EMPTY || value == Board.FOOD) {
+                board.set(next, Board.owner(snake.getId()));
+                if (value == Board.FOOD) {
+                    removeFood(next);
+                    delta.addFoodDespawn(next);
+                    snake.grow(1);
+                    eaten++;
+                }
+            } else {
+                if (value != Board.WALL) {
+                    // A head that already moved into the same cell in this tick is a head-on collision,
+                    // the head of a snake that has not moved yet is only a body it is about to leave
+                    Snake other = snakes[value - 1];
+                    if (other != snake && other.isAlive() && other.getHead() == next
+                            && (delta.getFlags(other.getId()) & WorldDelta.MOVED) != 0)
+                        kill(other, delta);
+                }
+                kill(snake, delta);
+            }
+        }
+
+        for (int i = 0; i < eaten; i++) {
+            if (spawnFood())
+                delta.addFoodSpawn(food[foodCount - 1]);
+        }
+
+        long oldest = tick - settings.maxRewindTicks();
+        for (InputBuffer buffer : inputs)
+            buffer.prune(oldest);
+        save();
+    }
+
+    private void kill(@NotNull Snake snake, @NotNull WorldDelta delta) {
+        snake.kill();
+        delta.addFlags(snake.getId(), WorldDelta.DIED);
+        clearBody(snake);
+    }
+
+    private void clearBody(@NotNull Snake snake) {
+        short owner = Board.owner(snake.getId());
+        for (int i = 0; i < snake.getLength(); i++)
+            board.clear(snake.getSegment(i), owner);
+    }
+
+    private boolean spawnFood() {
+        for (int attempt = 0; attempt < FOOD_SPAWN_ATTEMPTS; attempt++) {
+            int cell = Cell.pack(nextInt(settings.width()), nextInt(settings.height()));
+            if (board.get(cell) == Board.EMPTY) {
+                board.set(cell, Board.FOOD);
+                food[foodCount++] = cell;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int nextInt(int bound) {
+        // SplitMix64, its whole state is a single long that is part of the snapshots
+        long z = randomState += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) (((z >>> 32) * bound) >>> 32);
+    }
+
+    private void removeFood(int cell) {
+        int index = indexOfFood(cell);
+        if (index >= 0)
+            food[index] = food[--foodCount];
+    }
+
+    private int indexOfFood(int cell) {
+        for (int i = 0; i < foodCount; i++) {
+            if (food[i] == cell)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if the packed cell is inside of the arena.
+     *
+     * @param cell the packed cell
+     * @return true if inside
+     */
+    public boolean isInside(int cell) {
+        int x = Cell.x(cell);
+        int y = Cell.y(cell);
+        return x >= 0 && y >= 0 && x < settings.width() && y < settings.height();
+    }
+
+    /**
+     * Returns the occupancy grid of this game.
+     *
+     * @return the board
+     */
+    public @NotNull Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Returns true if the state of a tick may differ from what clients received,
+     * because the tick was simulated again by a rewind.
+     * Clients whose state is at such a tick need a keyframe.
+     *
+     * @param tick the tick
+     * @return true if the tick was rewritten
+     */
+    public boolean isRewritten(long tick) {
+        WorldDelta delta = history.get(tick);
+        return delta != null && delta.isRewritten();
+    }
+
+    /**
+     * Returns true if a client cannot be brought up to date with the deltas of the history.
+     * <p>
+     * The deltas are applied to the state of the base tick, but the client may have already applied
+     * any tick up to the sent tick and only applies ticks newer than its state.
+     * A keyframe is therefore needed if the tick after the base is no longer in the history,
+     * or if any tick from the base to the sent tick was {@link #isRewritten(long) rewritten},
+     * because the client would keep the old version of such a tick.
+     *
+     * @param baseTick the tick of the state the deltas would be applied to
+     * @param sentTick the latest tick sent to the client, which may not have been acknowledged
+     * @return true if the client needs a keyframe
+     */
+    public boolean needsKeyframe(long baseTick, long sentTick) {
+        if (!history.contains(baseTick + 1))
+            return true;
+        for (long tick = baseTick; tick <= sentTick; tick++) {
+            if (isRewritten(tick))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the amount of living snakes.
+     *
+     * @return the amount of living snakes
+     */
+    public int getAliveSnakes() {
+        int alive = 0;
+        for (Snake snake : snakes) {
+            if (snake.isAlive())
+                alive++;
+        }
+        return alive;
+    }
+
+    /**
+     * Returns the snake with the given identifier.
+     *
+     * @param id the snake identifier
+     * @return the snake
+     * @throws IndexOutOfBoundsException if no snake has the identifier
+     */
+    public @NotNull Snake getSnake(int id) throws IndexOutOfBoundsException {
+        return snakes[id];
+    }
+
+    /**
+     * Returns all snakes of this game, including dead ones.
+     *
+     * @return unmodifiable list of snakes
+     */
+    public @NotNull List<Snake> getSnakes() {
+        return List.of(snakes);
+    }
+
+    /**
+     * Returns the packed cells containing food.
+     *
+     * @return a copy of the food cells
+     */
+    public int @NotNull [] getFood() {
+        return Arrays.copyOf(food, foodCount);
+    }
+
+    /**
+     * Returns the amount of food in the arena.
+     *
+     * @return the amount of food
+     */
+    public int getFoodCount() {
+        return foodCount;
+    }
+
+    /**
+     * Returns the packed cell of a food without copying the food cells.
+     *
+     * @param index the index of the food, smaller than {@link #getFoodCount()}
+     * @return the packed cell
+     */
+    public int getFoodCell(int index) {
+        return food[index];
+    }
+
+    /**
+     * Returns the spatial index of the heads and food of the current tick.
+     * The grid is created on first use and rebuilt at most once per tick,
+     * so games that are not culled by area of interest do not pay for it.
+     *
+     * @return the spatial grid
+     */
+    public @NotNull SpatialGrid getGrid() {
+        if (grid == null)
+            grid = new SpatialGrid(settings.width(), settings.height(), snakes.length, food.length);
+        grid.update(this);
+        return grid;
+    }
+
+    /**
+     * Returns the history of the deltas of recent ticks.
+     *
+     * @return the delta history
+     */
+    public @NotNull DeltaHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Returns the number of ticks simulated so far.
+     *
+     * @return the current tick
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the settings of this game.
+     *
+     * @return the game settings
+     */
+    public @NotNull GameSettings getSettings() {
+        return settings;
+    }
+}
@@ -0,0 +1,188 @@
+package io.github.pandier.multisnake.game;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs ticks at a fixed rate on a dedicated game thread.
+ * <p>
+ * Tick deadlines are derived from the start time of the loop rather than from the end
+ * of the previous tick, so the loop does not drift. If the loop falls behind,
+ * up to {@link GameSettings#maxCatchUpTicks()} ticks are simulated back to back,
+ * and any further missed ticks are skipped.
+ * <p>
+ * Tasks submitted with {@link #execute(Runnable)} are executed on the game thread between ticks,
+ * which makes the game thread the single writer of the game state.
+ */
+public class GameLoop implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GameLoop.class);
+
+    private static final double AVERAGE_WEIGHT = 0.05;
+
+    private final GameSettings settings;
+    private final Runnable tick;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private volatile Thread thread;
+    private volatile boolean running = true;
+
+    private volatile long lastTickNanos = 0;
+    private volatile long maxTickNanos = 0;
+    private volatile double averageTickNanos = 0;
+    private volatile long skippedTicks = 0;
+
+    /**
+     * Constructs a game loop.
+     *
+     * @param settings the game settings containing the tick rate
+     * @param tick     the action executed every tick
+     */
+    public GameLoop(@NotNull GameSettings settings, @NotNull Runnable tick) {
+        this.settings = settings;
+        this.tick = tick;
+    }
+
+    /**
+     * Starts the loop on a new thread with the given name.
+     *
+     * @param name the thread name
+     * @throws IllegalStateException if the loop has already been started
+     */
+    public synchronized void start(@NotNull String name) throws IllegalStateException {
+        if (thread != null)
+            throw new IllegalStateException("Game loop has already been started");
+        thread = new Thread(this, name);
+        thread.start();
+    }
+
+    /**
+     * Stops the loop after the current tick.
+     */
+    public void stop() {
+        running = false;
+        Thread thread = this.thread;
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * Executes a task on the game thread before the next tick.
+     * Tasks are executed in the order they were submitted.
+     *
+     * @param task the task
+     */
+    public void execute(@NotNull Runnable task) {
+        tasks.add(task);
+        Thread thread = this.thread;
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void run() {
+        long tickNanos = settings.tickNanos();
+        long nextTick = System.nanoTime() + tickNanos;
+
+        while (running) {
+            runTasks();
+
+            long now = System.nanoTime();
+            if (now - nextTick < 0) {
+                LockSupport.parkNanos(this, nextTick - now);
+                continue;
+            }
+
+            int ticks = 0;
+            do {
+                runTick();
+                nextTick += tickNanos;
+                ticks++;
+            } while (ticks < settings.maxCatchUpTicks() && System.nanoTime() - nextTick >= 0);
+
+            now = System.nanoTime();
+            if (now - nextTick >= 0) {
+                long skipped = (now - nextTick) / tickNanos + 1;
+                nextTick += skipped * tickNanos;
+                skippedTicks += skipped;
+                LOGGER.warn("Game loop is {} ticks behind, skipping them", skipped);
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                LOGGER.error("Failed to execute a game task", e);
+            }
+        }
+    }
+
+    private void runTick() {
+        long start = System.nanoTime();
+        try {
+            tick.run();
+        } catch (Exception e) {
+            LOGGER.error("Failed to run a tick", e);
+        }
+        long duration = System.nanoTime() - start;
+
+        lastTickNanos = duration;
+        if (duration > maxTickNanos)
+            maxTickNanos = duration;
+        averageTickNanos += (duration - averageTickNanos) * AVERAGE_WEIGHT;
+    }
+
+    /**
+     * Returns the duration of the last tick in nanoseconds.
+     *
+     * @return the last tick duration
+     */
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    /**
+     * Returns the longest tick duration in nanoseconds.
+     *
+     * @return the maximum tick duration
+     */
+    public long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+
+    /**
+     * Returns the exponential moving average of tick durations in nanoseconds.
+     *
+     * @return the average tick duration
+     */
+    public double getAverageTickNanos() {
+        return averageTickNanos;
+    }
+
+    /**
+     * Returns the amount of ticks that were skipped, because the loop fell too far behind.
+     *
+     * @return the amount of skipped ticks
+     */
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+    /**
+     * Returns true if the current thread is the game thread of this loop.
+     *
+     * @return true if on the game thread
+     */
+    public boolean isGameThread() {
+        return Thread.currentThread() == thread;
+    }
+}
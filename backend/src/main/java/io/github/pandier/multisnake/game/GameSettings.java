@@ -0,0 +1,112 @@
+package io.github.pandier.multisnake.game;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Settings of the multisnake game simulation.
+ *
+ * @param width            the width of the arena in cells
+ * @param height           the height of the arena in cells
+ * @param tickRate         the amount of ticks simulated per second
+ * @param maxCatchUpTicks  the maximum amount of ticks simulated at once when the loop falls behind
+ * @param initialLength    the length of every snake at the start of a game
+ * @param food             the amount of food present in the arena
+ * @param deltaHistory     the amount of recent ticks whose changes are kept to build world updates
+ * @param keyframeInterval the amount of ticks between two full world keyframes
+ * @param maxRewindTicks   the maximum amount of ticks the game is rewound to apply a late input at its tick,
+ *                         inputs arriving later are applied at the oldest tick that can be rewound to
+ */
+public record GameSettings(
+        int width,
+        int height,
+        int tickRate,
+        int maxCatchUpTicks,
+        int initialLength,
+        int food,
+        int deltaHistory,
+        int keyframeInterval,
+        int maxRewindTicks
+) {
+
+    public GameSettings {
+        if (width < 1 || height < 1 || width > Short.MAX_VALUE || height > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid arena size " + width + "x" + height);
+        if (tickRate < 1)
+            throw new IllegalArgumentException("Tick rate must be at least one");
+        if (maxCatchUpTicks < 1)
+            throw new IllegalArgumentException("At least one tick must be simulated at once");
+        if (initialLength < 1)
+            throw new IllegalArgumentException("Initial length must be at least one");
+        if (food < 0)
+            throw new IllegalArgumentException("Amount of food cannot be negative");
+        if (deltaHistory < 1 || deltaHistory > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Delta history must keep between 1 and " + Short.MAX_VALUE + " ticks");
+        if (keyframeInterval < 1)
+            throw new IllegalArgumentException("Keyframe interval must be at least one tick");
+        if (maxRewindTicks < 0)
+            throw new IllegalArgumentException("Maximum rewind cannot be negative");
+    }
+
+    /**
+     * Creates game settings using values of system properties.
+     * If a property is not defined, its default value is used.
+     * <ul>
+     *     <li>{@code multisnake.game.width} (default 40)</li>
+     *     <li>{@code multisnake.game.height} (default 30)</li>
+     *     <li>{@code multisnake.game.tickRate} (default 10)</li>
+     *     <li>{@code multisnake.game.maxCatchUpTicks} (default 5)</li>
+     *     <li>{@code multisnake.game.initialLength} (default 3)</li>
+     *     <li>{@code multisnake.game.food} (default 3)</li>
+     *     <li>{@code multisnake.game.deltaHistory} (default 64)</li>
+     *     <li>{@code multisnake.game.keyframeInterval} (default 50)</li>
+     *     <li>{@code multisnake.game.maxRewindTicks} (default 3)</li>
+     * </ul>
+     *
+     * @return the game settings
+     */
+    public static @NotNull GameSettings fromSystemProperties() {
+        return new GameSettings(
+                Integer.getInteger("multisnake.game.width", 40),
+                Integer.getInteger("multisnake.game.height", 30),
+                Integer.getInteger("multisnake.game.tickRate", 10),
+                Integer.getInteger("multisnake.game.maxCatchUpTicks", 5),
+                Integer.getInteger("multisnake.game.initialLength", 3),
+                Integer.getInteger("multisnake.game.food", 3),
+                Integer.getInteger("multisnake.game.deltaHistory", 64),
+                Integer.getInteger("multisnake.game.keyframeInterval", 50),
+                Integer.getInteger("multisnake.game.maxRewindTicks", 3)
+        );
+    }
+
+    /**
+     * Returns the length of every snake when it spawns,
+     * which is the initial length limited by the width of the arena.
+     *
+     * @return the spawn length
+     */
+    public int spawnLength() {
+        return Math.min(initialLength, width);
+    }
+
+    /**
+     * Returns the maximum amount of snakes that can spawn in the arena without overlapping.
+     * <p>
+     * Every row of the arena fits one snake. Once every row is taken, the arena is split into columns,
+     * each wide enough for a snake and an empty cell in front of its head.
+     *
+     * @return the maximum amount of snakes
+     */
+    public int maxSnakes() {
+        int columns = Math.max(1, width / (spawnLength() + 1));
+        return (int) Math.min(Board.MAX_SNAKES, (long) columns * height);
+    }
+
+    /**
+     * Returns the duration of a single tick in nanoseconds.
+     *
+     * @return the tick duration
+     */
+    public long tickNanos() {
+        return 1_000_000_000L / tickRate;
+    }
+}
@@ -0,0 +1,26 @@
+package io.github.pandier.multisnake.game;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A copy of the state of a {@link Game} after a tick, which the game can be rewound to.
+ * <p>
+ * Snapshots are preallocated and overwritten by the game, so saving a tick does not allocate
+ * unless a snake has grown past the capacity of its copy.
+ */
+final class GameSnapshot {
+    final Board board;
+    final Snake[] snakes;
+    final int[] food;
+    int foodCount = 0;
+    long tick = -1;
+    long randomState = 0;
+
+    GameSnapshot(@NotNull GameSettings settings, int snakes) {
+        this.board = new Board(settings.width(), settings.height());
+        this.snakes = new Snake[snakes];
+        for (int i = 0; i < snakes; i++)
+            this.snakes[i] = new Snake(i, 0, Direction.RIGHT, 1);
+        this.food = new int[settings.food()];
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.pandier.multisnake.game;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The direction inputs of a single snake, ordered by the tick they are stamped with.
+ * <p>
+ * Inputs are kept for as long as the game can be rewound to their tick,
+ * so they can be applied again when the ticks after them are simulated again.
+ * The buffer is preallocated, when it is full the oldest input is dropped.
+ */
+class InputBuffer {
+    private static final int CAPACITY = 32;
+
+    private final long[] ticks = new long[CAPACITY];
+    private final Direction[] directions = new Direction[CAPACITY];
+    private int size = 0;
+
+    /**
+     * Adds an input after every input stamped with the same or an older tick.
+     *
+     * @param tick      the tick the input is stamped with
+     * @param direction the direction
+     */
+    void add(long tick, @NotNull Direction direction) {
+        if (size == CAPACITY)
+            remove(1);
+
+        int index = size;
+        while (index > 0 && ticks[index - 1] > tick) {
+            ticks[index] = ticks[index - 1];
+            directions[index] = directions[index - 1];
+            index--;
+        }
+        ticks[index] = tick;
+        directions[index] = direction;
+        size++;
+    }
+
+    /**
+     * Applies the inputs stamped with the given tick to a snake, in the order they were added.
+     *
+     * @param tick  the tick
+     * @param snake the snake
+     */
+    void apply(long tick, @NotNull Snake snake) {
+        for (int i = 0; i < size && ticks[i] <= tick; i++) {
+            if (ticks[i] == tick)
+                snake.setNextDirection(directions[i]);
+        }
+    }
+
+    /**
+     * Removes the inputs stamped with an older tick than the given one.
+     *
+     * @param oldest the oldest tick that is kept
+     */
+    void prune(long oldest) {
+        int count = 0;
+        while (count < size && ticks[count] < oldest)
+            count++;
+        if (count > 0)
+            remove(count);
+    }
+
+    private void remove(int count) {
+        size -= count;
+        System.arraycopy(ticks, count, ticks, 0, size);
+        System.arraycopy(directions, count, directions, 0, size);
+        for (int i = size; i < size + count; i++)
+            directions[i] = null;
+    }
+}
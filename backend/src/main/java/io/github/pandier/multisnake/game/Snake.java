@@ -0,0 +1,223 @@
+package io.github.pandier.multisnake.game;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A snake moving on the grid of a {@link Game}.
+ * <p>
+ * The body of the snake is stored as a ring buffer of {@link Cell packed cells},
+ * so advancing the head and retracting the tail never moves the other segments.
+ */
+public class Snake {
+    private final int id;
+
+    private int[] body;
+    private int head = -1;
+    private int length = 0;
+
+    private Direction direction;
+    private Direction nextDirection;
+    private int growth = 0;
+    private boolean alive = true;
+
+    /**
+     * Constructs a snake with its body stretched from the given tail cell in a direction.
+     *
+     * @param id        the identifier of the snake, unique in a game
+     * @param tail      the packed tail cell
+     * @param direction the direction of the snake
+     * @param length    the initial length of the snake
+     */
+    public Snake(int id, int tail, @NotNull Direction direction, int length) {
+        if (length < 1)
+            throw new IllegalArgumentException("Snake length must be at least one");
+
+        this.id = id;
+        this.body = new int[Integer.highestOneBit(Math.max(length, 8) - 1) << 1];
+        this.direction = direction;
+        this.nextDirection = direction;
+
+        int cell = tail;
+        for (int i = 0; i < length; i++) {
+            pushHead(cell);
+            cell = Cell.offset(cell, direction);
+        }
+    }
+
+    /**
+     * Returns the identifier of this snake, unique in a game.
+     *
+     * @return the snake identifier
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Adds a new head segment to the body.
+     *
+     * @param cell the packed cell of the new head
+     */
+    public void pushHead(int cell) {
+        if (length == body.length)
+            resize();
+        head = (head + 1) & (body.length - 1);
+        body[head] = cell;
+        length++;
+    }
+
+    /**
+     * Removes the tail segment of the body.
+     *
+     * @return the packed cell of the removed tail
+     * @throws IllegalStateException if the snake has no body
+     */
+    public int popTail() throws IllegalStateException {
+        if (length == 0)
+            throw new IllegalStateException("Snake has no body");
+        int tail = getTail();
+        length--;
+        return tail;
+    }
+
+    /**
+     * Replaces the state of this snake with the state of another snake.
+     * The body array is reused if it has the same capacity.
+     *
+     * @param other the other snake
+     */
+    void copyFrom(@NotNull Snake other) {
+        if (body.length != other.body.length)
+            body = new int[other.body.length];
+        System.arraycopy(other.body, 0, body, 0, body.length);
+        head = other.head;
+        length = other.length;
+        direction = other.direction;
+        nextDirection = other.nextDirection;
+        growth = other.growth;
+        alive = other.alive;
+    }
+
+    private void resize() {
+        int[] resized = new int[body.length << 1];
+        for (int i = 0; i < length; i++)
+            resized[length - 1 - i] = getSegment(i);
+        body = resized;
+        head = length - 1;
+    }
+
+    /**
+     * Returns a segment of the body, where zero is the head
+     * and {@link #getLength()} - 1 is the tail.
+     *
+     * @param index the index of the segment
+     * @return the packed cell of the segment
+     */
+    public int getSegment(int index) {
+        return body[(head - index) & (body.length - 1)];
+    }
+
+    /**
+     * Returns the packed cell of the head.
+     *
+     * @return the head cell
+     */
+    public int getHead() {
+        return body[head];
+    }
+
+    /**
+     * Returns the packed cell of the tail.
+     *
+     * @return the tail cell
+     */
+    public int getTail() {
+        return getSegment(length - 1);
+    }
+
+    /**
+     * Returns the amount of segments of the body.
+     *
+     * @return the length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the direction the snake moved in the last tick.
+     *
+     * @return the direction
+     */
+    public @NotNull Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Changes the direction the snake moves in the next tick.
+     * Turning back into the body is ignored.
+     *
+     * @param direction the direction
+     */
+    public void setNextDirection(@NotNull Direction direction) {
+        if (direction != this.direction.opposite())
+            this.nextDirection = direction;
+    }
+
+    /**
+     * Returns the direction the snake moves in the next tick.
+     *
+     * @return the next direction
+     */
+    public @NotNull Direction getNextDirection() {
+        return nextDirection;
+    }
+
+    /**
+     * Applies the next direction and returns the cell the head moves to.
+     *
+     * @return the packed cell of the next head
+     */
+    int turn() {
+        direction = nextDirection;
+        return Cell.offset(getHead(), direction);
+    }
+
+    /**
+     * Makes the snake grow by the given amount of segments in the next ticks.
+     *
+     * @param segments the amount of segments
+     */
+    public void grow(int segments) {
+        growth += segments;
+    }
+
+    /**
+     * Consumes one pending segment of growth.
+     *
+     * @return true if the snake grows in this tick
+     */
+    boolean consumeGrowth() {
+        if (growth == 0)
+            return false;
+        growth--;
+        return true;
+    }
+
+    /**
+     * Returns true if the snake is alive.
+     *
+     * @return true if alive
+     */
+    public boolean isAlive() {
+        return alive;
+    }
+
+    /**
+     * Kills the snake. Dead snakes do not move
+     * and do not take part in collisions.
+     */
+    public void kill() {
+        alive = false;
+    }
+}
@@ -0,0 +1,223 @@
+package io.github.pandier.multisnake.game;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid of square chunks over the arena, indexing the body segments of living snakes and food by chunk.
+ * <p>
+ * The entries of every chunk are stored contiguously in a single array, sorted by chunk
+ * using a counting sort, so rebuilding the grid is linear in the amount of segments and food.
+ * The segment arrays only grow when the living snakes are longer than ever before, otherwise rebuilding does not allocate.
+ * Entries of a chunk are read with the start and end indices of the chunk, for example:
+ * <pre>{@code
+ * for (int i = grid.getSegmentStart(chunk); i < grid.getSegmentEnd(chunk); i++)
+ *     Snake snake = game.getSnake(grid.getSegmentSnake(i));
+ * }</pre>
+ */
+public class SpatialGrid {
+
+    /**
+     * The size of the side of a chunk in cells.
+     */
+    public static final int CHUNK_SIZE = 8;
+
+    private final int chunksX;
+    private final int chunksY;
+
+    private final int snakes;
+    private final int[] segmentOffsets;
+    private int[] segmentSnakes;
+    private int[] segmentCells;
+    private final int[] foodOffsets;
+    private final int[] food;
+    private final int[] cursors;
+
+    private long tick = -1;
+
+    /**
+     * Constructs an empty grid.
+     *
+     * @param width  the width of the arena
+     * @param height the height of the arena
+     * @param snakes the amount of snakes
+     * @param food   the maximum amount of food
+     */
+    SpatialGrid(int width, int height, int snakes, int food) {
+        this.chunksX = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.chunksY = (height + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.snakes = snakes;
+        this.segmentOffsets = new int[chunksX * chunksY + 1];
+        this.segmentSnakes = new int[snakes];
+        this.segmentCells = new int[snakes];
+        this.foodOffsets = new int[chunksX * chunksY + 1];
+        this.food = new int[food];
+        this.cursors = new int[chunksX * chunksY];
+    }
+
+    /**
+     * Indexes the current segments of living snakes and food of a game,
+     * unless they are already indexed for its tick.
+     *
+     * @param game the game
+     */
+    void update(Game game) {
+        if (tick == game.getTick())
+            return;
+        tick = game.getTick();
+
+        int segments = 0;
+        Arrays.fill(segmentOffsets, 0);
+        for (int id = 0; id < snakes; id++) {
+            Snake snake = game.getSnake(id);
+            if (!snake.isAlive())
+                continue;
+            for (int i = 0; i < snake.getLength(); i++)
+                segmentOffsets[chunk(snake.getSegment(i)) + 1]++;
+            segments += snake.getLength();
+        }
+        if (segments > segmentCells.length) {
+            int capacity = Math.max(segments, segmentCells.length * 2);
+            segmentSnakes = new int[capacity];
+            segmentCells = new int[capacity];
+        }
+        prefixSum(segmentOffsets);
+        System.arraycopy(segmentOffsets, 0, cursors, 0, cursors.length);
+        for (int id = 0; id < snakes; id++) {
+            Snake snake = game.getSnake(id);
+            if (!snake.isAlive())
+                continue;
+            for (int i = 0; i < snake.getLength(); i++) {
+                int cell = snake.getSegment(i);
+                int index = cursors[chunk(cell)]++;
+                segmentSnakes[index] = id;
+                segmentCells[index] = cell;
+            }
+        }
+
+        int foodCount = game.getFoodCount();
+        Arrays.fill(foodOffsets, 0);
+        for (int i = 0; i < foodCount; i++)
+            foodOffsets[chunk(game.getFoodCell(i)) + 1]++;
+        prefixSum(foodOffsets);
+        System.arraycopy(foodOffsets, 0, cursors, 0, cursors.length);
+        for (int i = 0; i < foodCount; i++) {
+            int cell = game.getFoodCell(i);
+            food[cursors[chunk(cell)]++] = cell;
+        }
+    }
+
+    /**
+     * Forgets the indexed tick, so the grid is rebuilt even if the game returns to the same tick number.
+     */
+    void invalidate() {
+        tick = -1;
+    }
+
+    private static void prefixSum(int[] offsets) {
+        for (int i = 1; i < offsets.length; i++)
+            offsets[i] += offsets[i - 1];
+    }
+
+    private int chunk(int cell) {
+        return Cell.y(cell) / CHUNK_SIZE * chunksX + Cell.x(cell) / CHUNK_SIZE;
+    }
+
+    /**
+     * Returns the index of the chunk at the given chunk coordinates.
+     *
+     * @param chunkX the horizontal chunk coordinate
+     * @param chunkY the vertical chunk coordinate
+     * @return the chunk index
+     */
+    public int chunk(int chunkX, int chunkY) {
+        return chunkY * chunksX + chunkX;
+    }
+
+    /**
+     * Returns the index of the first segment entry of a chunk.
+     *
+     * @param chunk the chunk index
+     * @return the start index
+     */
+    public int getSegmentStart(int chunk) {
+        return segmentOffsets[chunk];
+    }
+
+    /**
+     * Returns the index after the last segment entry of a chunk.
+     *
+     * @param chunk the chunk index
+     * @return the end index
+     */
+    public int getSegmentEnd(int chunk) {
+        return segmentOffsets[chunk + 1];
+    }
+
+    /**
+     * Returns the identifier of the snake a segment entry belongs to.
+     *
+     * @param index the entry index
+     * @return the snake identifier
+     */
+    public int getSegmentSnake(int index) {
+        return segmentSnakes[index];
+    }
+
+    /**
+     * Returns the packed cell of a segment entry.
+     *
+     * @param index the entry index
+     * @return the packed cell
+     */
+    public int getSegmentCell(int index) {
+        return segmentCells[index];
+    }
+
+    /**
+     * Returns the index of the first food entry of a chunk.
+     *
+     * @param chunk the chunk index
+     * @return the start index
+     */
+    public int getFoodStart(int chunk) {
+        return foodOffsets[chunk];
+    }
+
+    /**
+     * Returns the index after the last food entry of a chunk.
+     *
+     * @param chunk the chunk index
+     * @return the end index
+     */
+    public int getFoodEnd(int chunk) {
+        return foodOffsets[chunk + 1];
+    }
+
+    /**
+     * Returns the packed cell of the food of an entry.
+     *
+     * @param index the entry index
+     * @return the packed cell
+     */
+    public int getFood(int index) {
+        return food[index];
+    }
+
+    /**
+     * Returns the amount of chunks in a row.
+     *
+     * @return the horizontal amount of chunks
+     */
+    public int getChunksX() {
+        return chunksX;
+    }
+
+    /**
+     * Returns the amount of chunks in a column.
+     *
+     * @return the vertical amount of chunks
+     */
+    public int getChunksY() {
+        return chunksY;
+    }
+}
@@ -0,0 +1,319 @@
+package io.github.pandier.multisnake.game;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * The area of interest of a single client, a rectangle around a cell of the arena
+ * together with the snakes and food the client knows about.
+ * <p>
+ * Every tick, {@link #update(Game, int, boolean)} moves the rectangle and computes
+ * what changed for the client since the previous tick: snakes that entered the view,
+ * snakes that left it, changes of snakes that stayed in it, and food that appeared or was eaten.
+ * Snakes are visible while any segment of their body is inside the rectangle and food while its cell is inside.
+ * The client drops food outside the rectangle on its own, so food that leaves the view is not listed.
+ * <p>
+ * The lookups go through the {@link SpatialGrid} of the game, so the cost of an update
+ * depends on the amount of entities near the rectangle rather than in the whole arena.
+ * All arrays are preallocated, so an update does not allocate.
+ */
+public class Viewport {
+    private final int radius;
+
+    private int minX = 0;
+    private int minY = 0;
+    private int maxX = -1;
+    private int maxY = -1;
+    private long tick = -1;
+    private boolean reset = true;
+
+    private long[] visible;
+    private long[] nextVisible;
+
+    private final int[] entered;
+    private int enteredCount = 0;
+    private final int[] left;
+    private int leftCount = 0;
+    private final int[] updated;
+    private int updatedCount = 0;
+    private final int[] foodEntered;
+    private int foodEnteredCount = 0;
+    private final int[] foodLeft;
+    private int foodLeftCount = 0;
+
+    /**
+     * Constructs a viewport that is not placed yet.
+     *
+     * @param game   the game
+     * @param radius the amount of cells visible in every direction from the center
+     */
+    public Viewport(@NotNull Game game, int radius) {
+        if (radius < 0)
+            throw new IllegalArgumentException("Radius cannot be negative");
+
+        int snakes = game.getSnakes().size();
+        int food = game.getSettings().food();
+        this.radius = radius;
+        this.visible = new long[(snakes + Long.SIZE - 1) / Long.SIZE];
+        this.nextVisible = new long[visible.length];
+        this.entered = new int[snakes];
+        this.left = new int[snakes];
+        this.updated = new int[snakes];
+        this.foodEntered = new int[food];
+        this.foodLeft = new int[food];
+    }
+
+    /**
+     * Moves the viewport to the given center and computes the changes since the previous update.
+     * This must be called after every tick, so the changes of consecutive ticks are not lost.
+     *
+     * @param game   the game, at the tick after the previous update
+     * @param center the packed cell in the center of the view
+     * @param reset  true if the client has to forget everything and receive every visible entity,
+     *               which is forced for the first update
+     */
+    public void update(@NotNull Game game, int center, boolean reset) {
+        reset |= this.tick < 0;
+        SpatialGrid grid = game.getGrid();
+        WorldDelta delta = reset ? null : game.getHistory().get(game.getTick());
+
+        int oldMinX = minX, oldMinY = minY, oldMaxX = maxX, oldMaxY = maxY;
+        int width = game.getSettings().width();
+        int height = game.getSettings().height();
+        minX = Math.max(0, Cell.x(center) - radius);
+        minY = Math.max(0, Cell.y(center) - radius);
+        maxX = Math.min(width - 1, Cell.x(center) + radius);
+        maxY = Math.min(height - 1, Cell.y(center) + radius);
+
+        enteredCount = 0;
+        leftCount = 0;
+        updatedCount = 0;
+        foodEnteredCount = 0;
+        foodLeftCount = 0;
+
+        // Find the snakes and new food inside of the rectangle, chunk by chunk
+        Arrays.fill(nextVisible, 0);
+        int chunkMaxX = maxX / SpatialGrid.CHUNK_SIZE;
+        int chunkMaxY = maxY / SpatialGrid.CHUNK_SIZE;
+        for (int chunkY = minY / SpatialGrid.CHUNK_SIZE; chunkY <= chunkMaxY; chunkY++) {
+            for (int chunkX = minX / SpatialGrid.CHUNK_SIZE; chunkX <= chunkMaxX; chunkX++) {
+                int chunk = grid.chunk(chunkX, chunkY);
+                for (int i = grid.getSegmentStart(chunk); i < grid.getSegmentEnd(chunk); i++) {
+                    if (contains(grid.getSegmentCell(i))) {
+                        int id = grid.getSegmentSnake(i);
+                        nextVisible[id >>> 6] |= 1L << id;
+                    }
+                }
+                for (int i = grid.getFoodStart(chunk); i < grid.getFoodEnd(chunk); i++) {
+                    int cell = grid.getFood(i);
+                    if (contains(cell) && (reset || !contains(cell, oldMinX, oldMinY, oldMaxX, oldMaxY)))
+                        foodEntered[foodEnteredCount++] = cell;
+                }
+            }
+        }
+
+        // Compare the visible snakes with the snakes the client knows about
+        for (int word = 0; word < visible.length; word++) {
+            long old = reset ? 0 : visible[word];
+            long now = nextVisible[word];
+            long bits = old | now;
+            while (bits != 0) {
+                int id = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                long bit = Long.lowestOneBit(bits);
+                bits &= bits - 1;
+
+                byte flags = delta != null ? delta.getFlags(id) : 0;
+                if ((old & bit) == 0) {
+                    entered[enteredCount++] = id;
+                } else if ((now & bit) != 0 || (flags & WorldDelta.DIED) != 0) {
+                    // Snakes that die are updated once more, so the client sees them die
+                    if (flags != 0)
+                        updated[updatedCount++] = id;
+                } else {
+                    left[leftCount++] = id;
+                }
+            }
+        }
+
+        // Food the client already knows about can only change by spawning or being eaten in this tick
+        if (delta != null) {
+            for (int i = 0; i < delta.getFoodSpawnCount(); i++) {
+                int cell = delta.getFoodSpawn(i);
+                if (contains(cell) && contains(cell, oldMinX, oldMinY, oldMaxX, oldMaxY))
+                    foodEntered[foodEnteredCount++] = cell;
+            }
+            for (int i = 0; i < delta.getFoodDespawnCount(); i++) {
+                int cell = delta.getFoodDespawn(i);
+                if (contains(cell) && contains(cell, oldMinX, oldMinY, oldMaxX, oldMaxY))
+                    foodLeft[foodLeftCount++] = cell;
+            }
+        }
+
+        long[] swap = visible;
+        visible = nextVisible;
+        nextVisible = swap;
+        this.tick = game.getTick();
+        this.reset = reset;
+    }
+
+    private boolean contains(int cell) {
+        return contains(cell, minX, minY, maxX, maxY);
+    }
+
+    private static boolean contains(int cell, int minX, int minY, int maxX, int maxY) {
+        int x = Cell.x(cell);
+        int y = Cell.y(cell);
+        return x >= minX && y >= minY && x <= maxX && y <= maxY;
+    }
+
+    /**
+     * Returns the tick of the last update.
+     *
+     * @return the tick, -1 if the viewport was never updated
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns true if the last update was a reset, so the client has to forget everything it knew.
+     *
+     * @return true if reset
+     */
+    public boolean isReset() {
+        return reset;
+    }
+
+    /**
+     * Returns the smallest visible x coordinate.
+     *
+     * @return the minimum x
+     */
+    public int getMinX() {
+        return minX;
+    }
+
+    /**
+     * Returns the smallest visible y coordinate.
+     *
+     * @return the minimum y
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * Returns the largest visible x coordinate.
+     *
+     * @return the maximum x
+     */
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Returns the largest visible y coordinate.
+     *
+     * @return the maximum y
+     */
+    public int getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Returns the amount of snakes that entered the view in the last update.
+     *
+     * @return the amount of entered snakes
+     */
+    public int getEnteredCount() {
+        return enteredCount;
+    }
+
+    /**
+     * Returns the identifier of a snake that entered the view in the last update.
+     *
+     * @param index the index, smaller than {@link #getEnteredCount()}
+     * @return the snake identifier
+     */
+    public int getEntered(int index) {
+        return entered[index];
+    }
+
+    /**
+     * Returns the amount of snakes that left the view in the last update.
+     *
+     * @return the amount of left snakes
+     */
+    public int getLeftCount() {
+        return leftCount;
+    }
+
+    /**
+     * Returns the identifier of a snake that left the view in the last update.
+     *
+     * @param index the index, smaller than {@link #getLeftCount()}
+     * @return the snake identifier
+     */
+    public int getLeft(int index) {
+        return left[index];
+    }
+
+    /**
+     * Returns the amount of visible snakes that changed in the last update.
+     *
+     * @return the amount of updated snakes
+     */
+    public int getUpdatedCount() {
+        return updatedCount;
+    }
+
+    /**
+     * Returns the identifier of a visible snake that changed in the last update.
+     * Its changes are in the delta of the tick of the update.
+     *
+     * @param index the index, smaller than {@link #getUpdatedCount()}
+     * @return the snake identifier
+     */
+    public int getUpdated(int index) {
+        return updated[index];
+    }
+
+    /**
+     * Returns the amount of food that appeared to the client in the last update.
+     *
+     * @return the amount of entered food
+     */
+    public int getFoodEnteredCount() {
+        return foodEnteredCount;
+    }
+
+    /**
+     * Returns the packed cell of a food that appeared to the client in the last update.
+     *
+     * @param index the index, smaller than {@link #getFoodEnteredCount()}
+     * @return the packed cell
+     */
+    public int getFoodEntered(int index) {
+        return foodEntered[index];
+    }
+
+    /**
+     * Returns the amount of visible food that was eaten in the last update.
+     *
+     * @return the amount of eaten food
+     */
+    public int getFoodLeftCount() {
+        return foodLeftCount;
+    }
+
+    /**
+     * Returns the packed cell of a visible food that was eaten in the last update.
+     *
+     * @param index the index, smaller than {@link #getFoodLeftCount()}
+     * @return the packed cell
+     */
+    public int getFoodLeft(int index) {
+        return foodLeft[index];
+    }
+}
@@ -0,0 +1,175 @@
+package io.github.pandier.multisnake.game;
+
+import java.util.Arrays;
+
+/**
+ * Changes of the game state that happened in a single tick.
+ * <p>
+ * Instances are owned and reused by a {@link DeltaHistory},
+ * so they must not be retained after the history moves past their tick.
+ */
+public class WorldDelta {
+
+    /**
+     * Set if the snake moved its head in the tick.
+     */
+    public static final byte MOVED = 0x01;
+
+    /**
+     * Set if the tail of the snake was removed in the tick.
+     * A snake that moved without removing its tail has grown.
+     */
+    public static final byte TAIL_REMOVED = 0x02;
+
+    /**
+     * Set if the snake died in the tick.
+     */
+    public static final byte DIED = 0x04;
+
+    private long tick = -1;
+    private boolean rewritten = false;
+
+    private final int[] heads;
+    private final byte[] flags;
+    private int updatedSnakes = 0;
+
+    private final int[] foodSpawns;
+    private int foodSpawnCount = 0;
+    private final int[] foodDespawns;
+    private int foodDespawnCount = 0;
+
+    WorldDelta(int snakes, int food) {
+        this.heads = new int[snakes];
+        this.flags = new byte[snakes];
+        this.foodSpawns = new int[food];
+        this.foodDespawns = new int[food];
+    }
+
+    void reset(long tick) {
+        this.tick = tick;
+        this.rewritten = false;
+        Arrays.fill(flags, (byte) 0);
+        updatedSnakes = 0;
+        foodSpawnCount = 0;
+        foodDespawnCount = 0;
+    }
+
+    void markRewritten() {
+        rewritten = true;
+    }
+
+    void addFlags(int snakeId, byte flags) {
+        if (this.flags[snakeId] == 0)
+            updatedSnakes++;
+        this.flags[snakeId] |= flags;
+    }
+
+    void setHead(int snakeId, int head) {
+        addFlags(snakeId, MOVED);
+        heads[snakeId] = head;
+    }
+
+    void addFoodSpawn(int cell) {
+        foodSpawns[foodSpawnCount++] = cell;
+    }
+
+    void addFoodDespawn(int cell) {
+        foodDespawns[foodDespawnCount++] = cell;
+    }
+
+    /**
+     * Returns the tick of this delta.
+     *
+     * @return the tick
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns true if the tick of this delta was simulated again after a rewind,
+     * so the state of the tick may differ from what was sent to clients before.
+     *
+     * @return true if rewritten
+     */
+    public boolean isRewritten() {
+        return rewritten;
+    }
+
+    /**
+     * Returns the amount of snake identifiers, which is the exclusive upper bound
+     * for {@link #getFlags(int)} and {@link #getHead(int)}.
+     *
+     * @return the amount of snakes
+     */
+    public int getSnakes() {
+        return flags.length;
+    }
+
+    /**
+     * Returns the amount of snakes that changed in this tick.
+     *
+     * @return the amount of updated snakes
+     */
+    public int getUpdatedSnakes() {
+        return updatedSnakes;
+    }
+
+    /**
+     * Returns the flags of a snake, zero if the snake did not change in this tick.
+     *
+     * @param snakeId the snake identifier
+     * @return the combination of {@link #MOVED}, {@link #TAIL_REMOVED} and {@link #DIED}
+     */
+    public byte getFlags(int snakeId) {
+        return flags[snakeId];
+    }
+
+    /**
+     * Returns the new head of a snake that has the {@link #MOVED} flag.
+     *
+     * @param snakeId the snake identifier
+     * @return the packed head cell
+     */
+    public int getHead(int snakeId) {
+        return heads[snakeId];
+    }
+
+    /**
+     * Returns the amount of food that spawned in this tick.
+     *
+     * @return the amount of spawned food
+     */
+    public int getFoodSpawnCount() {
+        return foodSpawnCount;
+    }
+
+    /**
+     * Returns a cell where food spawned in this tick.
+     *
+     * @param index the index of the spawn
+     * @return the packed cell
+     */
+    public int getFoodSpawn(int index) {
+        return foodSpawns[index];
+    }
+
+    /**
+     * Returns the amount of food that was eaten in this tick.
+     *
+     * @return the amount of despawned food
+     */
+    public int getFoodDespawnCount() {
+        return foodDespawnCount;
+    }
+
+    /**
+     * Returns a cell where food was eaten in this tick.
+     *
+     * @param index the index of the despawn
+     * @return the packed cell
+     */
+    public int getFoodDespawn(int index) {
+        return foodDespawns[index];
+    }
+}
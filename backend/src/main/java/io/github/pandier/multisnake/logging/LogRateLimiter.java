@@ -0,0 +1,61 @@
+package io.github.pandier.multisnake.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how many messages of a kind are logged per second.
+ * <p>
+ * Messages that can be triggered by every received packet are guarded by a limiter,
+ * so a misbehaving client cannot flood the log and slow down the threads logging for it.
+ * Suppressed messages are only counted, the events themselves are visible in the metrics.
+ * <p>
+ * This class is thread-safe and does not allocate.
+ */
+public final class LogRateLimiter {
+    private static final long INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int rate;
+    private final AtomicLong intervalStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger permits = new AtomicInteger();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    /**
+     * Constructs a log rate limiter.
+     *
+     * @param rate the maximum amount of messages per second, 0 to suppress every message
+     */
+    public LogRateLimiter(int rate) {
+        if (rate < 0)
+            throw new IllegalArgumentException("Rate cannot be negative");
+        this.rate = rate;
+    }
+
+    /**
+     * Returns true if a message can be logged now.
+     * Callers should check the level of the logger first, so no permit is taken for a message that is not logged.
+     *
+     * @return true if the message should be logged, false if it is suppressed
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        long start = intervalStart.get();
+        if (now - start >= INTERVAL_NANOS && intervalStart.compareAndSet(start, now))
+            permits.set(0);
+
+        if (permits.get() < rate && permits.incrementAndGet() <= rate)
+            return true;
+        suppressed.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Returns the amount of suppressed messages.
+     *
+     * @return the amount of suppressed messages
+     */
+    public long getSuppressed() {
+        return suppressed.get();
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.pandier.multisnake.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count.
+ * <p>
+ * The count is striped across cells by a {@link LongAdder},
+ * so many threads can increment it without contending on a single value.
+ */
+public final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    /**
+     * Increments the count by one.
+     */
+    public void increment() {
+        value.increment();
+    }
+
+    /**
+     * Increments the count by the given amount.
+     *
+     * @param amount the amount, which must not be negative
+     */
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    /**
+     * Returns the current count.
+     *
+     * @return the count
+     */
+    public long get() {
+        return value.sum();
+    }
+}
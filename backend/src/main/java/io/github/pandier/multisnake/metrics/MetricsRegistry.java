@@ -0,0 +1,157 @@
+package io.github.pandier.multisnake.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Holds named metrics and writes them in the Prometheus text exposition format.
+ * <p>
+ * Metrics are registered once, usually when a component is constructed, and the component
+ * keeps the returned {@link Counter} or {@link Histogram} to record to it on hot paths
+ * without any lookups. Registering a metric with the same name and labels again
+ * returns the existing metric.
+ * <p>
+ * This class is thread-safe.
+ */
+public class MetricsRegistry {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private enum Type {
+        COUNTER,
+        GAUGE,
+        SUMMARY
+    }
+
+    private record Family(
+            @NotNull String name,
+            @NotNull String help,
+            @NotNull Type type,
+            double scale,
+            @NotNull Map<String, Object> metrics
+    ) {
+    }
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Registers a counter.
+     *
+     * @param name   the metric name, which should end with {@code _total}
+     * @param help   the description of the metric
+     * @param labels the label names and values in pairs
+     * @return the counter
+     * @throws IllegalArgumentException if the name is already used by a metric of another type
+     */
+    public @NotNull Counter counter(@NotNull String name, @NotNull String help, @NotNull String... labels) throws IllegalArgumentException {
+        return (Counter) register(name, help, Type.COUNTER, 1, labels, Counter::new);
+    }
+
+    /**
+     * Registers a histogram, which is exposed as a summary with quantiles.
+     * <p>
+     * The recorded values are multiplied by the scale when they are exposed,
+     * so for example durations can be recorded in nanoseconds and exposed in seconds.
+     *
+     * @param name   the metric name
+     * @param help   the description of the metric
+     * @param scale  the factor of exposed values
+     * @param labels the label names and values in pairs
+     * @return the histogram
+     * @throws IllegalArgumentException if the name is already used by a metric of another type
+     */
+    public @NotNull Histogram histogram(@NotNull String name, @NotNull String help, double scale, @NotNull String... labels) throws IllegalArgumentException {
+        return (Histogram) register(name, help, Type.SUMMARY, scale, labels, Histogram::new);
+    }
+
+    /**
+     * Registers a gauge, whose value is read from the supplier whenever the metrics are written.
+     * The supplier is called by the thread writing the metrics, so it must be thread-safe.
+     *
+     * @param name     the metric name
+     * @param help     the description of the metric
+     * @param supplier the supplier of the current value
+     * @param labels   the label names and values in pairs
+     * @throws IllegalArgumentException if the name is already used by a metric of another type
+     */
+    public void gauge(@NotNull String name, @NotNull String help, @NotNull LongSupplier supplier, @NotNull String... labels) throws IllegalArgumentException {
+        requireNonNull(supplier, "Supplier cannot be null");
+        register(name, help, Type.GAUGE, 1, labels, () -> supplier);
+    }
+
+    private Object register(String name, String help, Type type, double scale, String[] labels, Supplier<Object> factory) {
+        requireNonNull(name, "Name cannot be null");
+        requireNonNull(help, "Help cannot be null");
+
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type, scale, new ConcurrentSkipListMap<>()));
+        if (family.type() != type)
+            throw new IllegalArgumentException("Metric " + name + " is already registered as " + family.type());
+        return family.metrics().computeIfAbsent(formatLabels(labels), key -> factory.get());
+    }
+
+    private static String formatLabels(String[] labels) {
+        if (labels.length % 2 != 0)
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0)
+                builder.append(',');
+            builder.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\' -> builder.append("\\\\");
+                    case '"' -> builder.append("\\\"");
+                    case '\n' -> builder.append("\\n");
+                    default -> builder.append(c);
+                }
+            }
+            builder.append('"');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes every registered metric in the Prometheus text exposition format.
+     *
+     * @param out the destination
+     */
+    public void write(@NotNull StringBuilder out) {
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name()).append(' ').append(family.help()).append('\n');
+            out.append("# TYPE ").append(family.name()).append(' ').append(family.type().name().toLowerCase(Locale.ROOT)).append('\n');
+
+            for (Map.Entry<String, Object> entry : family.metrics().entrySet()) {
+                String labels = entry.getKey();
+                switch (entry.getValue()) {
+                    case Counter counter -> sample(out, family.name(), labels, counter.get());
+                    case LongSupplier gauge -> sample(out, family.name(), labels, gauge.getAsLong());
+                    case Histogram histogram -> {
+                        for (double quantile : QUANTILES) {
+                            String quantileLabels = (labels.isEmpty() ? "" : labels + ",") + "quantile=\"" + quantile + "\"";
+                            sample(out, family.name(), quantileLabels, histogram.getValueAtPercentile(quantile * 100) * family.scale());
+                        }
+                        sample(out, family.name() + "_sum", labels, histogram.getSum() * family.scale());
+                        sample(out, family.name() + "_count", labels, histogram.getCount());
+                    }
+                    default -> throw new IllegalStateException("Unknown metric " + entry.getValue());
+                }
+            }
+        }
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, Object value) {
+        out.append(name);
+        if (!labels.isEmpty())
+            out.append('{').append(labels).append('}');
+        out.append(' ').append(value).append('\n');
+    }
+}
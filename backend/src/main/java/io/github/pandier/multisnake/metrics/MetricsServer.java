@@ -0,0 +1,84 @@
+package io.github.pandier.multisnake.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Serves the metrics of a {@link MetricsRegistry} over HTTP on {@code /metrics},
+ * so they can be scraped by Prometheus.
+ * <p>
+ * Requests are handled by a single thread of the built-in HTTP server,
+ * which only reads the metrics and never blocks the recording threads.
+ */
+public class MetricsServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsServer.class);
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry registry;
+    private final HttpServer server;
+
+    private MetricsServer(@NotNull MetricsRegistry registry, @NotNull HttpServer server) {
+        this.registry = registry;
+        this.server = server;
+        server.createContext("/metrics", this::handle);
+    }
+
+    /**
+     * Binds a metrics server to the address from the settings.
+     *
+     * @param registry the registry whose metrics are served
+     * @param settings the metrics settings
+     * @return the metrics server
+     * @throws IOException if the address could not be bound
+     */
+    public static @NotNull MetricsServer open(@NotNull MetricsRegistry registry, @NotNull MetricsSettings settings) throws IOException {
+        requireNonNull(registry, "Registry cannot be null");
+        requireNonNull(settings, "Metrics settings cannot be null");
+        return new MetricsServer(registry, HttpServer.create(new InetSocketAddress(settings.host(), settings.port()), 0));
+    }
+
+    /**
+     * Starts serving requests on a background thread.
+     */
+    public void start() {
+        server.start();
+        LOGGER.info("Serving metrics on http://{}:{}/metrics", server.getAddress().getHostString(), server.getAddress().getPort());
+    }
+
+    /**
+     * Stops serving requests.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+    private void handle(@NotNull HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            StringBuilder builder = new StringBuilder(4096);
+            registry.write(builder);
+            byte[] body = builder.toString().getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.pandier.multisnake.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Settings of the metrics endpoint.
+ *
+ * @param enabled true if the metrics endpoint should be served
+ * @param host    the host the metrics endpoint is bound to
+ * @param port    the port of the metrics endpoint
+ */
+public record MetricsSettings(
+        boolean enabled,
+        @NotNull String host,
+        int port
+) {
+
+    public MetricsSettings {
+        if (port < 0 || port > 65535)
+            throw new IllegalArgumentException("Invalid port " + port);
+    }
+
+    /**
+     * Creates metrics settings using values of system properties.
+     * If a property is not defined, its default value is used.
+     * <ul>
+     *     <li>{@code multisnake.metrics.enabled} (default true)</li>
+     *     <li>{@code multisnake.metrics.host} (default 127.0.0.1)</li>
+     *     <li>{@code multisnake.metrics.port} (default 35237)</li>
+     * </ul>
+     *
+     * @return the metrics settings
+     */
+    public static @NotNull MetricsSettings fromSystemProperties() {
+        return new MetricsSettings(
+                Boolean.parseBoolean(System.getProperty("multisnake.metrics.enabled", "true")),
+                System.getProperty("multisnake.metrics.host", "127.0.0.1"),
+                Integer.getInteger("multisnake.metrics.port", 35237)
+        );
+    }
+}
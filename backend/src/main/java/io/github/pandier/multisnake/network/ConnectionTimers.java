@@ -0,0 +1,90 @@
+package io.github.pandier.multisnake.network;
+
+import io.github.pandier.multisnake.network.connection.ClientConnection;
+import io.github.pandier.multisnake.network.packet.listener.LoginPacketListener;
+import io.github.pandier.multisnake.scheduler.TimingWheel;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disconnects clients that do not log in or stay idle for too long,
+ * see {@link NetworkSettings#loginTimeout()} and {@link NetworkSettings#idleTimeout()}.
+ * <p>
+ * The timeouts are scheduled in a {@link TimingWheel}, so this class
+ * must only be used by the thread that owns it.
+ */
+final class ConnectionTimers {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionTimers.class);
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int WHEEL_SIZE = 512;
+
+    private final NetworkSettings settings;
+    private final TimingWheel wheel = new TimingWheel(TICK_NANOS, WHEEL_SIZE, System.nanoTime());
+
+    ConnectionTimers(@NotNull NetworkSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Schedules the login timeout and the idle checks of a new connection.
+     *
+     * @param clientConnection the connection
+     * @param loginListener    the login listener of the connection, which cancels the login timeout
+     */
+    void watch(@NotNull ClientConnection clientConnection, @NotNull LoginPacketListener loginListener) {
+        loginListener.setTimeout(wheel.schedule(TimeUnit.MILLISECONDS.toNanos(settings.loginTimeout()), () -> {
+            // The client logged in or started spectating in the meantime
+            if (clientConnection.getPacketListener() != loginListener)
+                return;
+            LOGGER.info("Client {} did not log in in time, closing the connection", clientConnection.getUuid());
+            clientConnection.disconnect();
+        }));
+        if (settings.idleTimeout() > 0)
+            scheduleIdleCheck(clientConnection, TimeUnit.MILLISECONDS.toNanos(settings.idleTimeout()));
+    }
+
+    /**
+     * Schedules a check of whether the connection has been idle for longer than the idle timeout.
+     * Instead of rescheduling on every received packet, the check reschedules itself
+     * for the remaining time if the client has sent something since.
+     */
+    private void scheduleIdleCheck(@NotNull ClientConnection clientConnection, long delay) {
+        wheel.schedule(delay, () -> {
+            if (clientConnection.isClosed())
+                return;
+
+            long idleTimeout = TimeUnit.MILLISECONDS.toNanos(settings.idleTimeout());
+            long idle = System.nanoTime() - clientConnection.getLastReceiveNanos();
+            if (idle >= idleTimeout) {
+                LOGGER.info("Client {} has been idle for too long, closing the connection", clientConnection.getUuid());
+                clientConnection.disconnect();
+            } else {
+                scheduleIdleCheck(clientConnection, idleTimeout - idle);
+            }
+        });
+    }
+
+    /**
+     * Runs the timeouts that expired until the given time.
+     *
+     * @param now the current {@link System#nanoTime()}
+     */
+    void advance(long now) {
+        wheel.advance(now);
+    }
+
+    /**
+     * Returns the time until the next tick of the wheel.
+     *
+     * @param now the current {@link System#nanoTime()}
+     * @return the time in nanoseconds, -1 if nothing is scheduled
+     * @see TimingWheel#timeUntilNextTick(long)
+     */
+    long timeUntilNextTick(long now) {
+        return wheel.timeUntilNextTick(now);
+    }
+}
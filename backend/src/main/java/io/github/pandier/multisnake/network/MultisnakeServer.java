@@ -1,22 +1,24 @@
 package io.github.pandier.multisnake.network;
 
 import io.github.pandier.multisnake.Multisnake;
-import io.github.pandier.multisnake.network.connection.ClientConnection;
+import io.github.pandier.multisnake.network.buffer.BufferPool;
 import io.github.pandier.multisnake.network.connection.ClientConnectionHandler;
+import io.github.pandier.multisnake.network.datagram.DatagramServer;
+import io.github.pandier.multisnake.network.datagram.DatagramSettings;
 import io.github.pandier.multisnake.network.packet.PacketHandler;
+import io.github.pandier.multisnake.network.packet.client.ClientInputPacket;
+import io.github.pandier.multisnake.network.packet.client.ClientKeepAlivePacket;
 import io.github.pandier.multisnake.network.packet.client.ClientLoginPacket;
 import io.github.pandier.multisnake.network.packet.client.ClientReadyPacket;
-import io.github.pandier.multisnake.network.packet.listener.LoginPacketListener;
-import io.github.pandier.multisnake.network.packet.server.ServerErrorPacket;
-import io.github.pandier.multisnake.network.packet.server.ServerGameStartPacket;
-import io.github.pandier.multisnake.network.packet.server.ServerLoginSuccessPacket;
+import io.github.pandier.multisnake.network.packet.client.ClientSpectatePacket;
+import io.github.pandier.multisnake.network.packet.client.ClientWorldAckPacket;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
@@ -33,54 +35,81 @@ public class MultisnakeServer {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultisnakeServer.class);
 
     private final Multisnake multisnake;
+    private final NetworkSettings settings;
 
     private final ServerSocketChannel channel;
     private final Selector selector;
 
+    private final BufferPool bufferPool;
     private final PacketHandler packetHandler;
     private final ClientConnectionHandler clientConnectionHandler;
+    private final NetworkMetrics metrics;
+    private DatagramServer datagramServer = null;
 
-    private final ByteBuffer inputBuffer;
-
-    private MultisnakeServer(Multisnake multisnake, ServerSocketChannel channel, Selector selector) {
+    private MultisnakeServer(Multisnake multisnake, NetworkSettings settings, ServerSocketChannel channel, Selector selector) {
         this.multisnake = multisnake;
+        this.settings = settings;
 
         this.channel = channel;
         this.selector = selector;
 
-        this.packetHandler = new PacketHandler();
+        this.bufferPool = new BufferPool(PacketHandler.MAX_SERVER_FRAME_SIZE, settings.leakDetection());
+        this.packetHandler = new PacketHandler(bufferPool, settings.reusePackets(), settings.packetLogRate());
         this.clientConnectionHandler = new ClientConnectionHandler(this);
+        this.metrics = new NetworkMetrics(multisnake.getMetrics());
 
-        this.inputBuffer = ByteBuffer.allocate(256);
+        multisnake.getMetrics().gauge("multisnake_connections", "Open client connections", clientConnectionHandler::getConnectionCount);
+        multisnake.getMetrics().gauge("multisnake_outbound_queue_bytes", "Bytes in the outbound queues of all connections", clientConnectionHandler::getOutboundQueueSize);
 
         // Register client packets
         packetHandler.registerClientPacket((byte) 0, new ClientLoginPacket.Factory());
         packetHandler.registerClientPacket((byte) 1, new ClientReadyPacket.Factory());
+        packetHandler.registerClientPacket((byte) 2, new ClientWorldAckPacket.Factory());
+        packetHandler.registerClientPacket((byte) 3, new ClientKeepAlivePacket.Factory());
+        packetHandler.registerClientPacket((byte) 4, new ClientInputPacket.Factory());
+        packetHandler.registerClientPacket((byte) 5, new ClientSpectatePacket.Factory());
 
-        // Register server packets
-        packetHandler.registerServerPacket((byte) 0, ServerErrorPacket.class);
-        packetHandler.registerServerPacket((byte) 1, ServerLoginSuccessPacket.class);
-        packetHandler.registerServerPacket((byte) 2, ServerGameStartPacket.class);
+        packetHandler.freeze();
     }
 
     /**
-     * Opens a server-socket channel and a selector for a multisnake server.
+     * Opens a server-socket channel and an accepting selector for a multisnake server.
      *
      * @param multisnake the {@link Multisnake} instance managing this server
+     * @param settings   the network settings of the server
+     * @return the multisnake server
+     */
+    public static @NotNull MultisnakeServer open(@NotNull Multisnake multisnake, @NotNull NetworkSettings settings) throws NetworkingException {
+        return open(multisnake, settings, null);
+    }
+
+    /**
+     * Opens a server-socket channel and an accepting selector for a multisnake server,
+     * and a {@link DatagramServer} if datagrams are enabled by the given settings.
+     *
+     * @param multisnake       the {@link Multisnake} instance managing this server
+     * @param settings         the network settings of the server
+     * @param datagramSettings the datagram settings, null if datagrams are disabled
      * @return the multisnake server
      */
-    public static @NotNull MultisnakeServer open(@NotNull Multisnake multisnake) throws NetworkingException {
+    public static @NotNull MultisnakeServer open(@NotNull Multisnake multisnake, @NotNull NetworkSettings settings, @Nullable DatagramSettings datagramSettings) throws NetworkingException {
+        requireNonNull(settings, "Network settings cannot be null");
+
         ServerSocketChannel socket = NetworkingException.wrap(ServerSocketChannel::open, "Failed to open server socket channel");
         Selector selector = NetworkingException.wrap(Selector::open, "Failed to open selector");
 
-        return new MultisnakeServer(multisnake, socket, selector);
+        MultisnakeServer server = new MultisnakeServer(multisnake, settings, socket, selector);
+        if (datagramSettings != null && datagramSettings.enabled())
+            server.datagramServer = DatagramServer.open(server, datagramSettings);
+        return server;
     }
 
     /**
-     * Starts processing selection keys from the selector until the channel is closed.
+     * Starts accepting connections until the channel is closed.
      * <p>
-     * This method is blocking and only uses one thread.
-     * It utilizes {@link Selector} for handling multiple channels.
+     * This method is blocking. The calling thread only accepts new connections
+     * and hands them to the {@link NetworkTransport} chosen by {@link NetworkSettings#transport()},
+     * which reads and writes them on its own threads.
      *
      * @throws NetworkingException if an error happens
      */
@@ -100,7 +129,15 @@ public class MultisnakeServer {
             throw new NetworkingException("Failed to configure socket", e);
         }
 
+        NetworkTransport transport = switch (settings.transport()) {
+            case SELECTOR -> new SelectorTransport(this);
+            case VIRTUAL_THREADS -> new VirtualThreadTransport(this);
+        };
+
         try (selector; channel) {
+            if (datagramServer != null)
+                datagramServer.start(address);
+            transport.start();
             LOGGER.info("Accepting connections on {}:{}", address.getAddress().getHostAddress(), address.getPort());
 
             while (channel.isOpen()) {
@@ -110,84 +147,95 @@ public class MultisnakeServer {
                 Iterator<SelectionKey> iterator = keys.iterator();
 
                 while (iterator.hasNext()) {
-                    process(iterator.next());
+                    SelectionKey key = iterator.next();
                     iterator.remove();
+
+                    SocketChannel clientChannel = accept(key);
+                    if (clientChannel != null)
+                        transport.register(clientChannel);
                 }
             }
         } catch (IOException e) {
             throw new NetworkingException("An error occured during server connection loop", e);
+        } finally {
+            transport.shutdown();
+            if (datagramServer != null)
+                datagramServer.shutdown();
         }
     }
 
-    private void process(@NotNull SelectionKey key) throws NetworkingException {
-        if (key.channel() == channel) {
-            if (key.isAcceptable()) {
-                SocketChannel clientChannel = null;
-                try {
-                    clientChannel = channel.accept();
-                    if (clientChannel == null) {
-                        LOGGER.warn("Ignoring acceptable selection key, because no connection can be accepted");
-                        return;
-                    }
-
-                    clientChannel.configureBlocking(false);
-                    clientChannel.register(selector, SelectionKey.OP_READ);
-
-                    ClientConnection clientConnection = clientConnectionHandler.create(clientChannel);
-                    clientConnection.setPacketListener(new LoginPacketListener(multisnake, clientConnection));
-
-                    LOGGER.info("Accepted new connection from {} as {}", clientChannel.getRemoteAddress(), clientConnection.getUuid());
-                } catch (IOException e) {
-                    LOGGER.error("Failed to accept socket", e);
-                    if (clientChannel != null) {
-                        try {
-                            clientChannel.close();
-                        } catch (IOException closeException) {
-                            throw new NetworkingException("Failed to close a socket channel", closeException);
-                        }
-                    }
-                }
+    /**
+     * Stops accepting connections, which makes {@link #start(InetSocketAddress)} return
+     * after the network transport is shut down.
+     *
+     * @throws NetworkingException if the server socket channel could not be closed
+     */
+    public void stop() throws NetworkingException {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new NetworkingException("Failed to close server socket channel", e);
+        }
+        selector.wakeup();
+    }
+
+    private @Nullable SocketChannel accept(@NotNull SelectionKey key) throws NetworkingException {
+        if (key.channel() != channel || !key.isAcceptable()) {
+            // Cancel unwanted selection keys
+            key.cancel();
+            return null;
+        }
+
+        SocketChannel clientChannel = null;
+        try {
+            clientChannel = channel.accept();
+            if (clientChannel == null) {
+                LOGGER.warn("Ignoring acceptable selection key, because no connection can be accepted");
+                return null;
             }
-        } else if (key.channel() instanceof SocketChannel clientChannel) {
-            if (key.isReadable()) {
-                ClientConnection clientConnection = clientConnectionHandler.get(clientChannel);
-                if (clientConnection == null) {
-                    try {
-                        LOGGER.warn("Client {} does not have an assigned connection instance, closing the connection", clientChannel.getRemoteAddress());
-                        clientChannel.close();
-                        return;
-                    } catch (IOException e) {
-                        throw new NetworkingException("Failed to close a socket channel", e);
-                    }
-                }
 
+            metrics.getAcceptedConnections().increment();
+            return clientChannel;
+        } catch (IOException e) {
+            LOGGER.error("Failed to accept socket", e);
+            if (clientChannel != null) {
                 try {
-                    inputBuffer.clear();
-
-                    int i = clientChannel.read(inputBuffer);
-                    if (i == 0) {
-                        return;
-                    } else if (i < 0) {
-                        clientConnection.getPacketListener().handleDisconnect();
-                        clientConnectionHandler.remove(clientChannel);
-                        clientChannel.close();
-                        key.cancel();
-                        LOGGER.info("Closed connection with client {}", clientConnection.getUuid());
-                        return;
-                    }
-
-                    inputBuffer.flip();
-                    packetHandler.process(clientConnection, inputBuffer);
-                } catch (IOException | NetworkingException e) {
-                    LOGGER.error("Failed to process packet received from client {}", clientConnection.getUuid(), e);
+                    clientChannel.close();
+                } catch (IOException closeException) {
+                    throw new NetworkingException("Failed to close a socket channel", closeException);
                 }
             }
-        } else {
-            // Cancel unwanted selection keys
-            key.cancel();
+            return null;
         }
     }
 
+    /**
+     * Returns the {@link Multisnake} instance managing this server.
+     *
+     * @return the multisnake instance
+     */
+    public @NotNull Multisnake getMultisnake() {
+        return multisnake;
+    }
+
+    /**
+     * Returns the network settings of this server.
+     *
+     * @return the network settings
+     */
+    public @NotNull NetworkSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Returns the {@link BufferPool} used for packet input and output of this server.
+     *
+     * @return the buffer pool
+     */
+    public @NotNull BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
     /**
      * Returns the {@link PacketHandler} of this server.
      *
@@ -206,6 +254,24 @@ public class MultisnakeServer {
         return clientConnectionHandler;
     }
 
+    /**
+     * Returns the metrics of the network layer of this server.
+     *
+     * @return the network metrics
+     */
+    public @NotNull NetworkMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the {@link DatagramServer} carrying world updates and inputs over UDP.
+     *
+     * @return the datagram server, null if datagrams are disabled
+     */
+    public @Nullable DatagramServer getDatagramServer() {
+        return datagramServer;
+    }
+
     /**
      * Returns the {@link ServerSocketChannel} of this server.
      *
@@ -0,0 +1,144 @@
+package io.github.pandier.multisnake.network;
+
+import io.github.pandier.multisnake.metrics.Counter;
+import io.github.pandier.multisnake.metrics.Histogram;
+import io.github.pandier.multisnake.metrics.MetricsRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Metrics of the network layer of a {@link MultisnakeServer}.
+ * <p>
+ * The metrics are registered once when the server is constructed,
+ * so recording them on the network threads is only an increment.
+ * Packet counters are registered lazily for every identifier that is actually seen.
+ */
+public class NetworkMetrics {
+    private static final double NANOS_TO_SECONDS = 1e-9;
+
+    private final MetricsRegistry registry;
+
+    private final Counter acceptedConnections;
+    private final Counter closedConnections;
+    private final Counter receivedBytes;
+    private final Counter sentBytes;
+    private final Counter decodeErrors;
+    private final Histogram loopDuration;
+    private final Histogram outboundQueueSize;
+
+    private final Counter[] receivedPackets = new Counter[256];
+    private final Counter[] sentPackets = new Counter[256];
+
+    /**
+     * Registers the network metrics.
+     *
+     * @param registry the registry
+     */
+    public NetworkMetrics(@NotNull MetricsRegistry registry) {
+        this.registry = requireNonNull(registry, "Registry cannot be null");
+
+        this.acceptedConnections = registry.counter("multisnake_connections_accepted_total", "Accepted client connections");
+        this.closedConnections = registry.counter("multisnake_connections_closed_total", "Closed client connections");
+        this.receivedBytes = registry.counter("multisnake_received_bytes_total", "Bytes received from clients");
+        this.sentBytes = registry.counter("multisnake_sent_bytes_total", "Bytes written to clients");
+        this.decodeErrors = registry.counter("multisnake_decode_errors_total", "Received frames and packets that could not be decoded");
+        this.loopDuration = registry.histogram("multisnake_network_loop_seconds", "Time spent processing one selection of a network worker", NANOS_TO_SECONDS);
+        this.outboundQueueSize = registry.histogram("multisnake_connection_outbound_queue_bytes", "Bytes in the outbound queue of a connection after a packet is sent to it", 1);
+    }
+
+    /**
+     * Returns the counter of received packets with the given identifier.
+     *
+     * @param identifier the client packet identifier
+     * @return the counter
+     */
+    public @NotNull Counter receivedPackets(byte identifier) {
+        Counter counter = receivedPackets[identifier & 0xFF];
+        if (counter == null) {
+            // Racing threads get the same counter from the registry
+            counter = registry.counter("multisnake_received_packets_total", "Packets received from clients", "id", Integer.toString(identifier & 0xFF));
+            receivedPackets[identifier & 0xFF] = counter;
+        }
+        return counter;
+    }
+
+    /**
+     * Returns the counter of sent packets with the given identifier.
+     *
+     * @param identifier the server packet identifier
+     * @return the counter
+     */
+    public @NotNull Counter sentPackets(byte identifier) {
+        Counter counter = sentPackets[identifier & 0xFF];
+        if (counter == null) {
+            counter = registry.counter("multisnake_sent_packets_total", "Packets sent to clients", "id", Integer.toString(identifier & 0xFF));
+            sentPackets[identifier & 0xFF] = counter;
+        }
+        return counter;
+    }
+
+    /**
+     * Returns the counter of accepted connections.
+     *
+     * @return the counter
+     */
+    public @NotNull Counter getAcceptedConnections() {
+        return acceptedConnections;
+    }
+
+    /**
+     * Returns the counter of closed connections.
+     *
+     * @return the counter
+     */
+    public @NotNull Counter getClosedConnections() {
+        return closedConnections;
+    }
+
+    /**
+     * Returns the counter of bytes received from clients.
+     *
+     * @return the counter
+     */
+    public @NotNull Counter getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    /**
+     * Returns the counter of bytes written to clients.
+     *
+     * @return the counter
+     */
+    public @NotNull Counter getSentBytes() {
+        return sentBytes;
+    }
+
+    /**
+     * Returns the counter of frames and packets that could not be decoded.
+     *
+     * @return the counter
+     */
+    public @NotNull Counter getDecodeErrors() {
+        return decodeErrors;
+    }
+
+    /**
+     * Returns the histogram of nanoseconds spent processing one selection of a network worker,
+     * excluding the time spent waiting in the selector.
+     *
+     * @return the histogram
+     */
+    public @NotNull Histogram getLoopDuration() {
+        return loopDuration;
+    }
+
+    /**
+     * Returns the histogram of bytes in the outbound queue of a connection after a packet is sent to it.
+     *
+     * @return the histogram
+     */
+    public @NotNull Histogram getOutboundQueueSize() {
+        return outboundQueueSize;
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.pandier.multisnake.network;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Settings of the multisnake networking.
+ *
+ * @param writeHighWaterMark the maximum amount of bytes that can be queued for a client
+ *                           before the client is disconnected
+ * @param workerThreads      the amount of {@link NetworkWorker} threads reading and writing client connections
+ * @param leakDetection      true if acquisitions of pooled buffers should be tracked to report leaks
+ * @param reusePackets       true if decoded client packets should be reused instead of allocated
+ * @param loginTimeout       the amount of milliseconds a client has to log in before it is disconnected
+ * @param idleTimeout        the amount of milliseconds a client can stay silent before it is disconnected,
+ *                           0 to never disconnect idle clients
+ * @param packetLogRate      the maximum amount of messages about single received packets logged per second,
+ *                           0 to never log them
+ * @param transport          the transport reading and writing client connections
+ */
+public record NetworkSettings(
+        int writeHighWaterMark,
+        int workerThreads,
+        boolean leakDetection,
+        boolean reusePackets,
+        long loginTimeout,
+        long idleTimeout,
+        int packetLogRate,
+        @NotNull Transport transport
+) {
+
+    /**
+     * The ways client connections can be read and written.
+     */
+    public enum Transport {
+        /**
+         * Non-blocking channels multiplexed by the {@link java.nio.channels.Selector} loops
+         * of {@link NetworkWorker network workers}, see {@link SelectorTransport}.
+         */
+        SELECTOR,
+        /**
+         * Blocking channels with a reader and a writer virtual thread per connection,
+         * see {@link VirtualThreadTransport}.
+         */
+        VIRTUAL_THREADS
+    }
+
+    public NetworkSettings {
+        if (workerThreads < 1)
+            throw new IllegalArgumentException("There must be at least one worker thread");
+        if (loginTimeout < 1)
+            throw new IllegalArgumentException("Login timeout must be positive");
+        if (idleTimeout < 0)
+            throw new IllegalArgumentException("Idle timeout cannot be negative");
+        if (packetLogRate < 0)
+            throw new IllegalArgumentException("Packet log rate cannot be negative");
+        requireNonNull(transport, "Transport cannot be null");
+    }
+
+    /**
+     * Creates network settings using values of system properties.
+     * If a property is not defined, its default value is used.
+     * <ul>
+     *     <li>{@code multisnake.network.writeHighWaterMark} (default 262144)</li>
+     *     <li>{@code multisnake.network.workerThreads} (default the amount of available processors)</li>
+     *     <li>{@code multisnake.network.leakDetection} (default false)</li>
+     *     <li>{@code multisnake.network.reusePackets} (default false)</li>
+     *     <li>{@code multisnake.network.loginTimeout} (default 10000)</li>
+     *     <li>{@code multisnake.network.idleTimeout} (default 30000)</li>
+     *     <li>{@code multisnake.network.packetLogRate} (default 10)</li>
+     *     <li>{@code multisnake.network.transport} (default selector, or virtual_threads)</li>
+     * </ul>
+     *
+     * @return the network settings
+     */
+    public static @NotNull NetworkSettings fromSystemProperties() {
+        return new NetworkSettings(
+                Integer.getInteger("multisnake.network.writeHighWaterMark", 262144),
+                Integer.getInteger("multisnake.network.workerThreads", Runtime.getRuntime().availableProcessors()),
+                Boolean.getBoolean("multisnake.network.leakDetection"),
+                Boolean.getBoolean("multisnake.network.reusePackets"),
+                Long.getLong("multisnake.network.loginTimeout", 10000),
+                Long.getLong("multisnake.network.idleTimeout", 30000),
+                Integer.getInteger("multisnake.network.packetLogRate", 10),
+                Transport.valueOf(System.getProperty("multisnake.network.transport", "selector").toUpperCase(Locale.ROOT))
+        );
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.pandier.multisnake.network;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.channels.SocketChannel;
+
+/**
+ * Reads and writes the client connections accepted by a {@link MultisnakeServer}.
+ * <p>
+ * Every transport drives the same {@link io.github.pandier.multisnake.network.packet.PacketHandler PacketHandler}
+ * and packet listeners, only the way the channels are waited on differs.
+ * The transport is chosen at startup by {@link NetworkSettings#transport()}.
+ */
+public interface NetworkTransport {
+
+    /**
+     * Starts the threads of this transport.
+     *
+     * @throws NetworkingException if the transport could not be started
+     */
+    void start() throws NetworkingException;
+
+    /**
+     * Hands an accepted client channel over to this transport.
+     * This is called by the accepting thread of the server.
+     *
+     * @param channel the client channel
+     */
+    void register(@NotNull SocketChannel channel);
+
+    /**
+     * Stops the threads of this transport.
+     */
+    void shutdown();
+}
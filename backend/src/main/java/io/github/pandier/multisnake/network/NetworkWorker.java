@@ -0,0 +1,210 @@
+package io.github.pandier.multisnake.network;
+
+import io.github.pandier.multisnake.network.connection.ClientConnection;
+import io.github.pandier.multisnake.network.packet.listener.LoginPacketListener;
+import io.github.pandier.multisnake.network.packet.message.InvalidPacketMessageException;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes a slice of the client connections of a {@link MultisnakeServer}.
+ * <p>
+ * Every worker owns a {@link Selector} and runs its loop on its own thread.
+ * Client channels accepted by the server are handed to the worker using {@link #register(SocketChannel)},
+ * which is safe to call from any thread.
+ * <p>
+ * Login and idle timeouts of the connections are scheduled in {@link ConnectionTimers}
+ * owned by the worker, which are advanced after every selection. The selector
+ * only waits until the next tick of their wheel, so timeouts need no extra threads.
+ * <p>
+ * Writable connections with a {@link ClientConnection#isLowPriority() low priority} are flushed
+ * after all other selected keys, so their writes never delay the packets of players.
+ */
+public class NetworkWorker implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NetworkWorker.class);
+
+    private final MultisnakeServer server;
+    private final Selector selector;
+
+    private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+    private final ConnectionTimers timers;
+    private final List<ClientConnection> lowPriorityFlushes = new ArrayList<>();
+
+    private volatile boolean running = true;
+
+    private NetworkWorker(@NotNull MultisnakeServer server, @NotNull Selector selector) {
+        this.server = server;
+        this.selector = selector;
+        this.timers = new ConnectionTimers(server.getSettings());
+    }
+
+    /**
+     * Opens a selector for a network worker.
+     *
+     * @param server the server the worker belongs to
+     * @return the network worker
+     * @throws NetworkingException if the selector could not be opened
+     */
+    public static @NotNull NetworkWorker open(@NotNull MultisnakeServer server) throws NetworkingException {
+        Selector selector = NetworkingException.wrap(Selector::open, "Failed to open selector");
+        return new NetworkWorker(server, selector);
+    }
+
+    /**
+     * Hands an accepted client channel over to this worker.
+     * The channel is registered to the selector of this worker
+     * in the next iteration of its loop.
+     *
+     * @param channel the non-blocking client channel
+     */
+    public void register(@NotNull SocketChannel channel) {
+        pendingChannels.add(channel);
+        selector.wakeup();
+    }
+
+    /**
+     * Stops the loop of this worker and closes its selector.
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Processes selection keys from the selector until the worker is shut down.
+     */
+    @Override
+    public void run() {
+        try (selector) {
+            while (running) {
+                long timeout = timers.timeUntilNextTick(System.nanoTime());
+                if (timeout < 0)
+                    selector.select();
+                else
+                    selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeout + 999_999)));
+
+                long start = System.nanoTime();
+                timers.advance(start);
+                registerPendingChannels();
+
+                Set<SelectionKey> keys = selector.selectedKeys();
+                Iterator<SelectionKey> iterator = keys.iterator();
+
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    try {
+                        process(key);
+                    } catch (NetworkingException e) {
+                        LOGGER.error("Failed to process a selection key", e);
+                    }
+                }
+
+                for (int i = 0; i < lowPriorityFlushes.size(); i++)
+                    flush(lowPriorityFlushes.get(i));
+                lowPriorityFlushes.clear();
+
+                server.getMetrics().getLoopDuration().record(System.nanoTime() - start);
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            LOGGER.error("An error occured during network worker loop", e);
+        }
+    }
+
+    private void registerPendingChannels() {
+        SocketChannel clientChannel;
+        while ((clientChannel = pendingChannels.poll()) != null) {
+            try {
+                clientChannel.configureBlocking(false);
+                SelectionKey clientKey = clientChannel.register(selector, SelectionKey.OP_READ);
+
+                ClientConnection clientConnection = server.getClientConnectionHandler().create(clientChannel, clientKey);
+                LoginPacketListener loginPacketListener = new LoginPacketListener(server.getMultisnake(), clientConnection);
+                clientConnection.setPacketListener(loginPacketListener);
+                timers.watch(clientConnection, loginPacketListener);
+
+                LOGGER.info("Accepted new connection from {} as {}", clientChannel.getRemoteAddress(), clientConnection.getUuid());
+            } catch (IOException e) {
+                LOGGER.error("Failed to register socket", e);
+                try {
+                    clientChannel.close();
+                } catch (IOException closeException) {
+                    LOGGER.error("Failed to close a socket channel", closeException);
+                }
+            }
+        }
+    }
+
+    private boolean flush(@NotNull ClientConnection clientConnection) {
+        try {
+            clientConnection.flush();
+            return true;
+        } catch (NetworkingException e) {
+            LOGGER.error("Failed to flush packets to client {}, closing the connection", clientConnection.getUuid(), e);
+            clientConnection.disconnect();
+            return false;
+        }
+    }
+
+    private void process(@NotNull SelectionKey key) throws NetworkingException {
+        if (!(key.channel() instanceof SocketChannel clientChannel)) {
+            // Cancel unwanted selection keys
+            key.cancel();
+            return;
+        }
+
+        ClientConnection clientConnection = server.getClientConnectionHandler().get(clientChannel);
+        if (clientConnection == null) {
+            // The connection was disconnected from another thread after the key was selected
+            if (!clientChannel.isOpen()) {
+                key.cancel();
+                return;
+            }
+
+            try {
+                LOGGER.warn("Client {} does not have an assigned connection instance, closing the connection", clientChannel.getRemoteAddress());
+                clientChannel.close();
+                return;
+            } catch (IOException e) {
+                throw new NetworkingException("Failed to close a socket channel", e);
+            }
+        }
+
+        if (key.isWritable()) {
+            if (clientConnection.isLowPriority())
+                lowPriorityFlushes.add(clientConnection);
+            else if (!flush(clientConnection))
+                return;
+        }
+
+        if (key.isValid() && key.isReadable()) {
+            try {
+                if (clientConnection.receive() < 0)
+                    clientConnection.disconnect();
+            } catch (InvalidPacketMessageException e) {
+                server.getMetrics().getDecodeErrors().increment();
+                LOGGER.info("Received invalid frame from client {}, closing the connection ({})", clientConnection.getUuid(), e.getMessage());
+                clientConnection.disconnect();
+            } catch (IOException e) {
+                LOGGER.error("Failed to read from client {}, closing the connection", clientConnection.getUuid(), e);
+                clientConnection.disconnect();
+            } catch (NetworkingException e) {
+                LOGGER.error("Failed to process packet received from client {}", clientConnection.getUuid(), e);
+            }
+        }
+    }
+}
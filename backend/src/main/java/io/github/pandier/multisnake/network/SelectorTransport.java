@@ -0,0 +1,55 @@
+package io.github.pandier.multisnake.network;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.channels.SocketChannel;
+
+/**
+ * Multiplexes non-blocking client channels on the {@link java.nio.channels.Selector} loops
+ * of a fixed amount of {@link NetworkWorker network workers}.
+ * <p>
+ * Accepted channels are handed to the workers round-robin.
+ * The amount of workers is determined by {@link NetworkSettings#workerThreads()}.
+ */
+public class SelectorTransport implements NetworkTransport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SelectorTransport.class);
+
+    private final MultisnakeServer server;
+    private final NetworkWorker[] workers;
+    private int nextWorker = 0;
+
+    /**
+     * Constructs a selector transport.
+     *
+     * @param server the server the connections belong to
+     */
+    public SelectorTransport(@NotNull MultisnakeServer server) {
+        this.server = server;
+        this.workers = new NetworkWorker[server.getSettings().workerThreads()];
+    }
+
+    @Override
+    public void start() throws NetworkingException {
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = NetworkWorker.open(server);
+            new Thread(workers[i], "multisnake-network-" + i).start();
+        }
+        LOGGER.info("Started {} network workers", workers.length);
+    }
+
+    @Override
+    public void register(@NotNull SocketChannel channel) {
+        workers[nextWorker].register(channel);
+        nextWorker = (nextWorker + 1) % workers.length;
+    }
+
+    @Override
+    public void shutdown() {
+        for (NetworkWorker worker : workers) {
+            if (worker != null)
+                worker.shutdown();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.pandier.multisnake.network;
+
+import io.github.pandier.multisnake.network.connection.ClientConnection;
+import io.github.pandier.multisnake.network.packet.listener.LoginPacketListener;
+import io.github.pandier.multisnake.network.packet.message.InvalidPacketMessageException;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reads and writes blocking client channels with virtual threads.
+ * <p>
+ * Every connection gets a reader thread, which blocks on the channel and processes
+ * received frames, and a writer thread, which writes the outbound queue of the connection,
+ * see {@link ClientConnection#runWriter()}. Packets are still handed to the rooms
+ * using {@link io.github.pandier.multisnake.room.Room#execute(Runnable)}, so the game state
+ * keeps a single writer no matter how many threads read the connections.
+ * <p>
+ * Login and idle timeouts of all connections are handled by one timer thread.
+ */
+public class VirtualThreadTransport implements NetworkTransport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadTransport.class);
+
+    private final MultisnakeServer server;
+    private final ConnectionTimers timers;
+
+    private final ThreadFactory readerFactory = Thread.ofVirtual().name("multisnake-reader-", 0).factory();
+    private final ThreadFactory writerFactory = Thread.ofVirtual().name("multisnake-writer-", 0).factory();
+
+    // Timers are only touched by the timer thread, other threads hand their changes over using this queue
+    private final Queue<Runnable> timerTasks = new ConcurrentLinkedQueue<>();
+    private Thread timerThread;
+
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a virtual thread transport.
+     *
+     * @param server the server the connections belong to
+     */
+    public VirtualThreadTransport(@NotNull MultisnakeServer server) {
+        this.server = server;
+        this.timers = new ConnectionTimers(server.getSettings());
+    }
+
+    @Override
+    public void start() {
+        timerThread = Thread.ofVirtual().name("multisnake-timers").start(this::runTimers);
+        LOGGER.info("Serving connections with virtual threads");
+    }
+
+    @Override
+    public void register(@NotNull SocketChannel channel) {
+        try {
+            channel.configureBlocking(true);
+        } catch (IOException e) {
+            LOGGER.error("Failed to configure socket", e);
+            try {
+                channel.close();
+            } catch (IOException closeException) {
+                LOGGER.error("Failed to close a socket channel", closeException);
+            }
+            return;
+        }
+
+        ClientConnection clientConnection = server.getClientConnectionHandler().create(channel, null);
+        LoginPacketListener loginPacketListener = new LoginPacketListener(server.getMultisnake(), clientConnection);
+        clientConnection.setPacketListener(loginPacketListener);
+
+        timerTasks.add(() -> timers.watch(clientConnection, loginPacketListener));
+        LockSupport.unpark(timerThread);
+
+        readerFactory.newThread(() -> read(clientConnection)).start();
+        writerFactory.newThread(clientConnection::runWriter).start();
+
+        try {
+            LOGGER.info("Accepted new connection from {} as {}", channel.getRemoteAddress(), clientConnection.getUuid());
+        } catch (IOException e) {
+            LOGGER.info("Accepted new connection as {}", clientConnection.getUuid());
+        }
+    }
+
+    /**
+     * Stops the timer thread and disconnects every connection,
+     * which makes their reader and writer threads exit.
+     */
+    @Override
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(timerThread);
+        for (ClientConnection clientConnection : server.getClientConnectionHandler().getConnections())
+            clientConnection.disconnect();
+    }
+
+    private void read(@NotNull ClientConnection clientConnection) {
+        try {
+            while (!clientConnection.isClosed()) {
+                try {
+                    if (clientConnection.receive() < 0)
+                        break;
+                } catch (NetworkingException e) {
+                    LOGGER.error("Failed to process packet received from client {}", clientConnection.getUuid(), e);
+                }
+            }
+        } catch (InvalidPacketMessageException e) {
+            server.getMetrics().getDecodeErrors().increment();
+            LOGGER.info("Received invalid frame from client {}, closing the connection ({})", clientConnection.getUuid(), e.getMessage());
+        } catch (IOException e) {
+            // Reads fail with an exception when the channel is closed by a disconnect
+            if (!clientConnection.isClosed())
+                LOGGER.error("Failed to read from client {}, closing the connection", clientConnection.getUuid(), e);
+        } finally {
+            clientConnection.disconnect();
+        }
+    }
+
+    private void runTimers() {
+        while (running) {
+            // The wheel is brought up to date first, so timers scheduled by the queued tasks
+            // are not measured from a tick that went stale while this thread was parked
+            long now = System.nanoTime();
+            timers.advance(now);
+
+            Runnable task;
+            while ((task = timerTasks.poll()) != null)
+                task.run();
+
+            long timeout = timers.timeUntilNextTick(now);
+            if (timeout < 0)
+                LockSupport.park(this);
+            else
+                LockSupport.parkNanos(this, timeout);
+        }
+    }
+}
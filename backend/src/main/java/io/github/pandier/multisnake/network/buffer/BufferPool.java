@@ -0,0 +1,174 @@
+package io.github.pandier.multisnake.network.buffer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct byte buffers divided into size classes.
+ * <p>
+ * Direct buffers are written to socket channels without the intermediate copy
+ * the JDK makes for heap buffers, and pooling them avoids allocating a buffer per packet.
+ * Every size class is twice as large as the previous one and keeps
+ * a bounded stack of free buffers, buffers beyond that bound are left to the garbage collector.
+ * <p>
+ * Buffers that become unreachable without being released are reported as leaks.
+ * When leak detection is enabled, the report includes the stack trace of the acquisition,
+ * which has a significant cost and is meant for debugging only.
+ */
+public class BufferPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BufferPool.class);
+
+    /**
+     * The size of the smallest size class.
+     */
+    public static final int MIN_SIZE = 256;
+
+    private static final int RETAINED_BYTES_PER_CLASS = 8 * 1024 * 1024;
+    private static final int MIN_RETAINED_BUFFERS = 8;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final int maxSize;
+    private final boolean leakDetection;
+    private final SizeClass[] sizeClasses;
+
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+
+    /**
+     * Constructs a buffer pool.
+     *
+     * @param maxSize       the size of the largest buffer that can be acquired, rounded up to a power of two
+     * @param leakDetection true if leaked buffers should be reported
+     */
+    public BufferPool(int maxSize, boolean leakDetection) {
+        if (maxSize < MIN_SIZE)
+            throw new IllegalArgumentException("Maximum size must be at least " + MIN_SIZE);
+
+        this.leakDetection = leakDetection;
+        this.sizeClasses = new SizeClass[sizeClassOf(maxSize) + 1];
+        for (int i = 0; i < sizeClasses.length; i++) {
+            int size = MIN_SIZE << i;
+            sizeClasses[i] = new SizeClass(size, Math.max(MIN_RETAINED_BUFFERS, RETAINED_BYTES_PER_CLASS / size));
+        }
+        this.maxSize = sizeClasses[sizeClasses.length - 1].size;
+    }
+
+    private static int sizeClassOf(int size) {
+        if (size <= MIN_SIZE)
+            return 0;
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_SIZE);
+    }
+
+    /**
+     * Acquires a cleared buffer that can hold at least the given amount of bytes.
+     * The buffer must be {@link PooledBuffer#release() released} after use.
+     *
+     * @param size the minimum capacity
+     * @return the buffer
+     * @throws IllegalArgumentException if the size is larger than the largest size class
+     */
+    public @NotNull PooledBuffer acquire(int size) throws IllegalArgumentException {
+        if (size > maxSize)
+            throw new IllegalArgumentException("Cannot acquire a buffer of " + size + " bytes, the maximum is " + maxSize);
+
+        int sizeClass = sizeClassOf(size);
+        PooledBuffer buffer = sizeClasses[sizeClass].poll();
+        if (buffer == null)
+            buffer = allocate(sizeClass);
+
+        buffer.buffer().clear();
+        buffer.acquire();
+        outstanding.incrementAndGet();
+        return buffer;
+    }
+
+    private @NotNull PooledBuffer allocate(int sizeClass) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(sizeClasses[sizeClass].size);
+        PooledBuffer.LeakState leakState = new PooledBuffer.LeakState(this);
+        PooledBuffer pooled = new PooledBuffer(this, sizeClass, buffer, leakState);
+        CLEANER.register(pooled, leakState);
+        return pooled;
+    }
+
+    void release(@NotNull PooledBuffer buffer) {
+        outstanding.decrementAndGet();
+        sizeClasses[buffer.sizeClass()].offer(buffer);
+    }
+
+    void reportLeak(@Nullable Throwable acquisition) {
+        outstanding.decrementAndGet();
+        leaks.incrementAndGet();
+        if (acquisition != null) {
+            LOGGER.error("A pooled buffer was garbage collected without being released", acquisition);
+        } else {
+            LOGGER.error("A pooled buffer was garbage collected without being released, enable leak detection to see where it was acquired");
+        }
+    }
+
+    /**
+     * Returns the size of the largest buffer that can be acquired.
+     *
+     * @return the maximum size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns true if acquisitions are tracked to report leaks.
+     *
+     * @return true if leak detection is enabled
+     */
+    public boolean isLeakDetection() {
+        return leakDetection;
+    }
+
+    /**
+     * Returns the amount of buffers that are acquired and not yet released.
+     *
+     * @return the amount of outstanding buffers
+     */
+    public long getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Returns the amount of buffers that were garbage collected without being released.
+     *
+     * @return the amount of leaked buffers
+     */
+    public long getLeaks() {
+        return leaks.get();
+    }
+
+    private static class SizeClass {
+        private final int size;
+        private final PooledBuffer[] free;
+        private int count = 0;
+
+        SizeClass(int size, int retained) {
+            this.size = size;
+            this.free = new PooledBuffer[retained];
+        }
+
+        synchronized @Nullable PooledBuffer poll() {
+            if (count == 0)
+                return null;
+            PooledBuffer buffer = free[--count];
+            free[count] = null;
+            return buffer;
+        }
+
+        synchronized void offer(@NotNull PooledBuffer buffer) {
+            if (count < free.length)
+                free[count++] = buffer;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.pandier.multisnake.network.buffer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A direct byte buffer borrowed from a {@link BufferPool}.
+ * <p>
+ * The buffer is reference counted. It is acquired with a count of one,
+ * every additional owner calls {@link #retain()} and every owner calls {@link #release()}
+ * once it does not need the buffer anymore. When the count drops to zero,
+ * the buffer is returned to its pool and must not be used anymore.
+ */
+public final class PooledBuffer {
+    private final BufferPool pool;
+    private final int sizeClass;
+    private final ByteBuffer buffer;
+    private final LeakState leakState;
+
+    private final AtomicInteger references = new AtomicInteger();
+
+    PooledBuffer(@NotNull BufferPool pool, int sizeClass, @NotNull ByteBuffer buffer, @NotNull LeakState leakState) {
+        this.pool = pool;
+        this.sizeClass = sizeClass;
+        this.buffer = buffer;
+        this.leakState = leakState;
+    }
+
+    void acquire() {
+        references.set(1);
+        leakState.acquire();
+    }
+
+    /**
+     * Adds an owner of this buffer.
+     *
+     * @return this buffer
+     * @throws IllegalStateException if the buffer was already returned to its pool
+     */
+    public @NotNull PooledBuffer retain() throws IllegalStateException {
+        int count;
+        do {
+            count = references.get();
+            if (count <= 0)
+                throw new IllegalStateException("Buffer has already been released");
+        } while (!references.compareAndSet(count, count + 1));
+        return this;
+    }
+
+    /**
+     * Removes an owner of this buffer. The last owner returns the buffer to its pool.
+     *
+     * @throws IllegalStateException if the buffer was already returned to its pool
+     */
+    public void release() throws IllegalStateException {
+        int count = references.decrementAndGet();
+        if (count == 0) {
+            leakState.release();
+            pool.release(this);
+        } else if (count < 0) {
+            references.incrementAndGet();
+            throw new IllegalStateException("Buffer has already been released");
+        }
+    }
+
+    /**
+     * Returns the underlying direct byte buffer.
+     * Its capacity can be larger than the requested size.
+     *
+     * @return the byte buffer
+     */
+    public @NotNull ByteBuffer buffer() {
+        return buffer;
+    }
+
+    int sizeClass() {
+        return sizeClass;
+    }
+
+    /**
+     * State of a pooled buffer observed by the leak detector.
+     * It must not reference the buffer itself, so the buffer can become unreachable.
+     */
+    static class LeakState implements Runnable {
+        private final BufferPool pool;
+        private volatile boolean acquired = false;
+        private volatile Throwable acquisition = null;
+
+        LeakState(@NotNull BufferPool pool) {
+            this.pool = pool;
+        }
+
+        void acquire() {
+            acquired = true;
+            if (pool.isLeakDetection())
+                acquisition = new Throwable("Buffer acquired here");
+        }
+
+        void release() {
+            acquired = false;
+            acquisition = null;
+        }
+
+        /**
+         * Called when the buffer has become unreachable.
+         */
+        @Override
+        public void run() {
+            if (acquired)
+                pool.reportLeak(acquisition);
+        }
+    }
+}
@@ -1,55 +1,346 @@
 package io.github.pandier.multisnake.network.connection;
 
 import io.github.pandier.multisnake.network.MultisnakeServer;
+import io.github.pandier.multisnake.network.NetworkMetrics;
 import io.github.pandier.multisnake.network.NetworkingException;
+import io.github.pandier.multisnake.network.buffer.PooledBuffer;
+import io.github.pandier.multisnake.network.packet.PacketDecoder;
+import io.github.pandier.multisnake.network.packet.PacketHandler;
 import io.github.pandier.multisnake.network.packet.listener.PacketListener;
+import io.github.pandier.multisnake.network.packet.message.InvalidPacketMessageException;
 import io.github.pandier.multisnake.network.packet.server.ServerErrorPacket;
 import io.github.pandier.multisnake.network.packet.server.ServerPacket;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Represents a connection with a client.
+ * <p>
+ * Connections of the {@link io.github.pandier.multisnake.network.SelectorTransport selector transport}
+ * have a non-blocking channel and a selection key, which is used to wait until queued packets can be written.
+ * Connections of the {@link io.github.pandier.multisnake.network.VirtualThreadTransport virtual thread transport}
+ * have a blocking channel without a key, and their queued packets are written by {@link #runWriter()}.
+ * <p>
+ * Connections can have a {@link #setLowPriority(boolean) low priority}, which is used for spectators.
+ * Their packets are never written by the sending thread, only queued,
+ * and the selector transport flushes them after every other connection.
  */
 public class ClientConnection {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClientConnection.class);
+
+    /**
+     * The initial capacity of the input buffer of every connection.
+     */
+    public static final int INITIAL_INPUT_BUFFER_CAPACITY = 256;
+
     private final MultisnakeServer server;
     private final SocketChannel channel;
+    private final SelectionKey key;
     private final UUID uuid;
 
-    private final ByteBuffer outputBuffer;
+    private volatile Thread writer;
+
+    private final ArrayDeque<ByteBuffer> outboundQueue = new ArrayDeque<>();
+    private final ArrayDeque<PooledBuffer> outboundOwners = new ArrayDeque<>();
+    private int outboundQueueSize = 0;
+
+    private final PacketDecoder decoder = new PacketDecoder();
+    private final Object inputLock = new Object();
+    private PooledBuffer inputBuffer;
+    private boolean receiving = false;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile long lastReceiveNanos = System.nanoTime();
 
-    private PacketListener packetListener;
+    private volatile PacketListener packetListener;
+    private volatile boolean lowPriority = false;
 
-    public ClientConnection(@NotNull MultisnakeServer server, @NotNull SocketChannel channel, @NotNull UUID uuid) {
+    public ClientConnection(@NotNull MultisnakeServer server, @NotNull SocketChannel channel, @Nullable SelectionKey key, @NotNull UUID uuid) {
         this.server = server;
         this.channel = channel;
+        this.key = key;
         this.uuid = uuid;
 
-        this.outputBuffer = ByteBuffer.allocate(256);
+        this.inputBuffer = server.getBufferPool().acquire(INITIAL_INPUT_BUFFER_CAPACITY);
 
         this.packetListener = PacketListener.IGNORE;
     }
 
+    /**
+     * Reads available bytes from the socket channel into the input buffer of this connection
+     * and processes every complete frame using {@link PacketHandler#processFrames(ClientConnection, ByteBuffer)}.
+     * <p>
+     * The input buffer accumulates bytes across reads, so frames split between
+     * multiple reads are preserved until they are complete. If the buffer is full,
+     * it is replaced by a pooled buffer of twice the capacity, up to the size of the largest possible frame.
+     * <p>
+     * The read blocks if the channel is blocking. The input lock is not held
+     * while reading, so the connection can still be disconnected from other threads.
+     *
+     * @return the number of bytes read, -1 if the channel has reached end-of-stream
+     * @throws IOException                   if an I/O error occurs
+     * @throws InvalidPacketMessageException if a frame has an invalid length
+     * @throws NetworkingException           if an error occurs while processing a packet
+     */
+    public int receive() throws IOException, InvalidPacketMessageException, NetworkingException {
+        synchronized (inputLock) {
+            if (inputBuffer == null)
+                return -1;
+            receiving = true;
+        }
+
+        // The input buffer is only released by disconnect while nothing is receiving
+        try {
+            if (!inputBuffer.buffer().hasRemaining())
+                growInputBuffer();
+
+            int read = channel.read(inputBuffer.buffer());
+            if (read > 0) {
+                lastReceiveNanos = System.nanoTime();
+                server.getMetrics().getReceivedBytes().add(read);
+                server.getPacketHandler().processFrames(this, inputBuffer.buffer());
+            }
+            return read;
+        } finally {
+            synchronized (inputLock) {
+                receiving = false;
+                if (closed.get())
+                    releaseInputBuffer();
+            }
+        }
+    }
+
+    private void growInputBuffer() {
+        int capacity = Math.min(inputBuffer.buffer().capacity() * 2, PacketHandler.MAX_FRAME_SIZE);
+        if (capacity <= inputBuffer.buffer().capacity())
+            return;
+
+        PooledBuffer buffer = server.getBufferPool().acquire(capacity);
+        inputBuffer.buffer().flip();
+        buffer.buffer().put(inputBuffer.buffer());
+        inputBuffer.release();
+        inputBuffer = buffer;
+    }
+
+    private void releaseInputBuffer() {
+        if (inputBuffer != null) {
+            inputBuffer.release();
+            inputBuffer = null;
+        }
+    }
+
     /**
      * Sents a packet to the client.
+     * <p>
+     * The packet is written to a non-blocking socket channel immediately if nothing is queued,
+     * otherwise it is appended to the outbound queue, which is flushed
+     * when the channel becomes writable. Packets for a blocking channel
+     * or a connection with a low priority are always queued. This method never blocks on the channel,
+     * so it can be called from any thread.
+     * <p>
+     * If the outbound queue exceeds the {@link io.github.pandier.multisnake.network.NetworkSettings#writeHighWaterMark() high-water mark},
+     * the client is considered too slow and is disconnected.
      *
      * @param packet the packet
-     * @throws IllegalArgumentException if the server packet is not registered in the packet handler of the multisnake server
-     * @throws NetworkingException      if an error occurs
+     * @throws NetworkingException if an error occurs
      */
-    public void send(@NotNull ServerPacket packet) throws IllegalArgumentException, NetworkingException {
-        outputBuffer.clear();
-        server.getPacketHandler().write(outputBuffer, packet);
-        outputBuffer.flip();
+    public void send(@NotNull ServerPacket packet) throws NetworkingException {
+        PooledBuffer frame = server.getPacketHandler().encode(packet);
         try {
-            channel.write(outputBuffer);
-        } catch (IOException e) {
-            throw new NetworkingException("Failed to write to a socket channel", e);
+            sendEncoded(frame);
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * Sents a frame encoded by {@link PacketHandler#encode(ServerPacket)} to the client.
+     * <p>
+     * The bytes of the frame are shared, the connection only keeps
+     * its own view of the buffer and retains it while the frame is queued,
+     * so the same frame can be sent to many clients without copying or encoding it again.
+     * The caller keeps its own reference and still has to release it.
+     *
+     * @param frame the encoded frame, which must not be modified afterwards
+     * @throws NetworkingException if an error occurs
+     * @see #send(ServerPacket)
+     */
+    public void sendEncoded(@NotNull PooledBuffer frame) throws NetworkingException {
+        enqueue(frame.buffer().duplicate(), frame);
+    }
+
+    /**
+     * Writes a buffer to the channel or appends it to the outbound queue.
+     *
+     * @param buffer the bytes to be sent
+     * @param shared the pooled buffer owning the bytes, which is retained if they are queued
+     */
+    private void enqueue(@NotNull ByteBuffer buffer, @NotNull PooledBuffer shared) throws NetworkingException {
+        if (closed.get())
+            throw new NetworkingException("Connection is closed");
+
+        NetworkMetrics metrics = server.getMetrics();
+        metrics.sentPackets(buffer.get(buffer.position() + PacketHandler.FRAME_HEADER_SIZE)).increment();
+
+        synchronized (outboundQueue) {
+            if (key != null && outboundQueue.isEmpty() && !lowPriority) {
+                try {
+                    metrics.getSentBytes().add(channel.write(buffer));
+                } catch (IOException e) {
+                    throw new NetworkingException("Failed to write to a socket channel", e);
+                }
+                if (!buffer.hasRemaining()) {
+                    metrics.getOutboundQueueSize().record(0);
+                    return;
+                }
+            }
+
+            if (outboundQueueSize + buffer.remaining() <= server.getSettings().writeHighWaterMark()) {
+                outboundQueue.add(buffer);
+                outboundOwners.add(shared.retain());
+                outboundQueueSize += buffer.remaining();
+                metrics.getOutboundQueueSize().record(outboundQueueSize);
+
+                if (key != null)
+                    setWriteInterest(true);
+                else
+                    LockSupport.unpark(writer);
+                return;
+            }
+        }
+
+        LOGGER.warn("Outbound queue of client {} exceeded the high-water mark, disconnecting", uuid);
+        disconnect();
+        throw new NetworkingException("Outbound queue exceeded the high-water mark");
+    }
+
+    /**
+     * Writes queued packets to the socket channel until the queue is empty
+     * or the channel cannot accept more bytes.
+     * <p>
+     * This is called by the server when the channel becomes writable.
+     *
+     * @throws NetworkingException if an error occurs
+     */
+    public void flush() throws NetworkingException {
+        synchronized (outboundQueue) {
+            try {
+                ByteBuffer buffer;
+                while ((buffer = outboundQueue.peek()) != null) {
+                    int written = channel.write(buffer);
+                    outboundQueueSize -= written;
+                    server.getMetrics().getSentBytes().add(written);
+                    if (buffer.hasRemaining())
+                        return;
+                    outboundQueue.poll();
+                    outboundOwners.poll().release();
+                }
+            } catch (IOException e) {
+                throw new NetworkingException("Failed to write to a socket channel", e);
+            }
+
+            setWriteInterest(false);
+        }
+    }
+
+    /**
+     * Writes queued packets to the blocking socket channel until the connection is closed,
+     * parking the current thread while the queue is empty.
+     * <p>
+     * This is run on a dedicated thread for connections without a selection key.
+     * Packets are taken from the queue under its lock, but written without it,
+     * so a slow client never blocks the threads sending to it.
+     * The connection is disconnected if a write fails.
+     */
+    public void runWriter() {
+        writer = Thread.currentThread();
+        while (!closed.get()) {
+            ByteBuffer buffer;
+            PooledBuffer owner;
+            synchronized (outboundQueue) {
+                buffer = outboundQueue.peek();
+                // Keep the bytes alive even if the queue is cleared by a disconnect while writing
+                owner = buffer != null ? outboundOwners.peek().retain() : null;
+            }
+            if (buffer == null) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            int written = 0;
+            try {
+                while (buffer.hasRemaining())
+                    written += channel.write(buffer);
+            } catch (IOException e) {
+                if (!closed.get())
+                    LOGGER.error("Failed to write to client {}, closing the connection", uuid, e);
+                disconnect();
+                return;
+            } finally {
+                server.getMetrics().getSentBytes().add(written);
+                owner.release();
+            }
+
+            synchronized (outboundQueue) {
+                if (outboundQueue.peek() == buffer) {
+                    outboundQueue.poll();
+                    outboundOwners.poll().release();
+                    outboundQueueSize -= written;
+                }
+            }
+        }
+    }
+
+    private void setWriteInterest(boolean write) {
+        try {
+            int ops = write ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+            if (key.interestOps() != ops) {
+                key.interestOps(ops);
+                key.selector().wakeup();
+            }
+        } catch (CancelledKeyException ignored) {
+            // The connection is being closed
+        }
+    }
+
+    /**
+     * Changes the priority of the packets sent to this connection.
+     *
+     * @param lowPriority true if the packets are only queued and written after other connections
+     */
+    public void setLowPriority(boolean lowPriority) {
+        this.lowPriority = lowPriority;
+    }
+
+    /**
+     * Returns true if the packets sent to this connection have a low priority.
+     *
+     * @return true if low priority
+     */
+    public boolean isLowPriority() {
+        return lowPriority;
+    }
+
+    /**
+     * Returns the amount of bytes waiting in the outbound queue.
+     *
+     * @return the size of the outbound queue in bytes
+     */
+    public int getOutboundQueueSize() {
+        synchronized (outboundQueue) {
+            return outboundQueueSize;
         }
     }
 
@@ -65,13 +356,72 @@ public class ClientConnection {
 
     /**
      * Disconnects the client from the server.
+     * <p>
+     * The packet listener is notified about the disconnect,
+     * the connection is removed from the {@link ClientConnectionHandler}
+     * and its pooled buffers are released.
+     * Calling this method on a closed connection has no effect.
      */
     public void disconnect() {
+        if (!closed.compareAndSet(false, true))
+            return;
+
+        server.getMetrics().getClosedConnections().increment();
+
+        packetListener.handleDisconnect();
+        server.getClientConnectionHandler().remove(channel);
+        if (key != null)
+            key.cancel();
+        LockSupport.unpark(writer);
+
+        synchronized (outboundQueue) {
+            outboundQueue.clear();
+            for (PooledBuffer owner : outboundOwners)
+                owner.release();
+            outboundOwners.clear();
+            outboundQueueSize = 0;
+        }
+
+        synchronized (inputLock) {
+            // The buffer is released by receive if the disconnect happened while processing it
+            if (!receiving)
+                releaseInputBuffer();
+        }
+
         try {
             channel.close();
         } catch (IOException e) {
             throw new RuntimeException("Failed to close client connection", e);
         }
+
+        LOGGER.info("Closed connection with client {}", uuid);
+    }
+
+    /**
+     * Returns true if this connection was disconnected.
+     *
+     * @return true if the connection is closed
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} of the last time bytes were received from the client,
+     * or of the time the connection was created if nothing was received yet.
+     *
+     * @return the time of the last receive in nanoseconds
+     */
+    public long getLastReceiveNanos() {
+        return lastReceiveNanos;
+    }
+
+    /**
+     * Records that the client was heard from on another channel than this connection,
+     * such as its datagram session, so the connection is not closed as idle.
+     */
+    public void markReceived() {
+        lastReceiveNanos = System.nanoTime();
     }
 
     /**
@@ -92,6 +442,15 @@ public class ClientConnection {
         this.packetListener = packetListener != null ? packetListener : PacketListener.IGNORE;
     }
 
+    /**
+     * Returns the decoder of packets received by this connection.
+     *
+     * @return the packet decoder
+     */
+    public @NotNull PacketDecoder getDecoder() {
+        return decoder;
+    }
+
     /**
      * Returns the multisnake server of this connection.
      *
@@ -110,6 +469,15 @@ public class ClientConnection {
         return channel;
     }
 
+    /**
+     * Returns the selection key of this connection's socket channel.
+     *
+     * @return the selection key, null if the channel is blocking
+     */
+    public @Nullable SelectionKey getKey() {
+        return key;
+    }
+
     /**
      * Returns the uuid of this connection.
      *
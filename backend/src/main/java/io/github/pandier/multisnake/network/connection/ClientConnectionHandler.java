@@ -4,17 +4,22 @@ import io.github.pandier.multisnake.network.MultisnakeServer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages {@link ClientConnection} instances.
+ * <p>
+ * This class is thread-safe, connections are created and removed
+ * by multiple threads of the {@link io.github.pandier.multisnake.network.NetworkTransport network transport}.
  */
 public class ClientConnectionHandler {
     private final MultisnakeServer server;
-    private final Map<SocketChannel, ClientConnection> connections = new HashMap<>();
+    private final Map<SocketChannel, ClientConnection> connections = new ConcurrentHashMap<>();
 
     public ClientConnectionHandler(@NotNull MultisnakeServer server) {
         this.server = server;
@@ -26,10 +31,11 @@ public class ClientConnectionHandler {
      * the existing connection is returned.
      *
      * @param channel the client socket channel
+     * @param key     the selection key of the channel, null if the channel is blocking
      * @return the created client connection of the channel
      */
-    public @NotNull ClientConnection create(@NotNull SocketChannel channel) {
-        return connections.computeIfAbsent(channel, computeChannel -> new ClientConnection(server, computeChannel, UUID.randomUUID()));
+    public @NotNull ClientConnection create(@NotNull SocketChannel channel, @Nullable SelectionKey key) {
+        return connections.computeIfAbsent(channel, computeChannel -> new ClientConnection(server, computeChannel, key, UUID.randomUUID()));
     }
 
     /**
@@ -50,4 +56,35 @@ public class ClientConnectionHandler {
     public void remove(@NotNull SocketChannel channel) {
         connections.remove(channel);
     }
+
+    /**
+     * Returns a snapshot of the open client connections.
+     *
+     * @return list of the connections
+     */
+    public @NotNull List<ClientConnection> getConnections() {
+        return List.copyOf(connections.values());
+    }
+
+    /**
+     * Returns the amount of open client connections.
+     *
+     * @return the amount of connections
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Returns the amount of bytes waiting in the outbound queues of all connections.
+     *
+     * @return the total size of the outbound queues in bytes
+     * @see ClientConnection#getOutboundQueueSize()
+     */
+    public long getOutboundQueueSize() {
+        long size = 0;
+        for (ClientConnection connection : connections.values())
+            size += connection.getOutboundQueueSize();
+        return size;
+    }
 }
@@ -0,0 +1,324 @@
+package io.github.pandier.multisnake.network.datagram;
+
+import io.github.pandier.multisnake.game.Direction;
+import io.github.pandier.multisnake.logging.LogRateLimiter;
+import io.github.pandier.multisnake.metrics.Counter;
+import io.github.pandier.multisnake.metrics.MetricsRegistry;
+import io.github.pandier.multisnake.network.MultisnakeServer;
+import io.github.pandier.multisnake.network.NetworkingException;
+import io.github.pandier.multisnake.network.buffer.PooledBuffer;
+import io.github.pandier.multisnake.network.packet.PacketHandler;
+import io.github.pandier.multisnake.network.packet.message.InvalidPacketMessageException;
+import io.github.pandier.multisnake.network.packet.message.PacketMessage;
+import io.github.pandier.multisnake.player.Player;
+import io.github.pandier.multisnake.room.Room;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Carries world updates and inputs of logged in players over UDP,
+ * so a lost datagram does not hold up the packets after it like a lost TCP segment does.
+ * <p>
+ * After a player logs in over TCP, it receives a {@link DatagramSession} token
+ * in a {@link io.github.pandier.multisnake.network.packet.server.ServerDatagramSessionPacket ServerDatagramSessionPacket}.
+ * Every datagram sent by the client starts with a header containing the token,
+ * its sequence, and the newest received server sequence with a bitfield of the 32 before it:
+ * <pre>
+ * [long token][int sequence][int ack][int ackBits][byte identifier][payload]
+ * </pre>
+ * The client sends either an {@link #INPUT} datagram, whose payload is
+ * {@code [int newestInputId][byte count][count x (long tick, byte direction)]} containing the last inputs
+ * oldest first, so an input survives the loss of a few datagrams, or an empty {@link #HEARTBEAT}
+ * that only acknowledges. Like in a
+ * {@link io.github.pandier.multisnake.network.packet.client.ClientInputPacket ClientInputPacket},
+ * every input is stamped with the tick the client saw when it made the input. Datagrams sent by the server have the header
+ * {@code [int sequence][int ack][int ackBits]} followed by a server packet without its frame length.
+ * <p>
+ * Only delta world updates are sent over UDP. Keyframes, errors and the login flow stay on TCP,
+ * because later updates are encoded against keyframes the client is assumed to have.
+ * <p>
+ * Datagrams are received on a single thread. Room threads send directly to the non-blocking channel,
+ * a datagram that does not fit into the socket buffer is dropped like any lost datagram.
+ */
+public class DatagramServer implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatagramServer.class);
+
+    /**
+     * The size of the header of datagrams sent by the server.
+     */
+    public static final int SERVER_HEADER_SIZE = 3 * Integer.BYTES;
+
+    /**
+     * The size of the header of datagrams sent by clients, including the identifier.
+     */
+    public static final int CLIENT_HEADER_SIZE = Long.BYTES + 3 * Integer.BYTES + 1;
+
+    /**
+     * The identifier of a client datagram carrying inputs.
+     */
+    public static final byte INPUT = 0;
+
+    /**
+     * The identifier of a client datagram that only opens the session and acknowledges.
+     */
+    public static final byte HEARTBEAT = 1;
+
+    /**
+     * The maximum amount of inputs in a single input datagram.
+     */
+    public static final int MAX_INPUTS = 16;
+
+    private static final int MAX_CLIENT_DATAGRAM_SIZE = CLIENT_HEADER_SIZE + Integer.BYTES + 1 + MAX_INPUTS * (Long.BYTES + 1);
+
+    private final MultisnakeServer server;
+    private final DatagramSettings settings;
+    private final DatagramChannel channel;
+    private final Selector selector;
+
+    private final Map<Long, DatagramSession> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+
+    private final ThreadLocal<ByteBuffer> sendBuffer;
+    // The receive buffer is larger than any valid datagram, so oversized datagrams are detected
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(MAX_CLIENT_DATAGRAM_SIZE + 1);
+    private final PacketMessage message = new PacketMessage(receiveBuffer);
+    private final long[] inputTicks = new long[MAX_INPUTS];
+    private final Direction[] inputs = new Direction[MAX_INPUTS];
+    private final LogRateLimiter invalidLogLimiter;
+    private final LogRateLimiter sendErrorLogLimiter;
+
+    private final Counter receivedDatagrams;
+    private final Counter sentDatagrams;
+    private final Counter lostDatagrams;
+    private final Counter rejectedDatagrams;
+
+    private volatile boolean running = true;
+
+    private DatagramServer(@NotNull MultisnakeServer server, @NotNull DatagramSettings settings, @NotNull DatagramChannel channel, @NotNull Selector selector) {
+        this.server = server;
+        this.settings = settings;
+        this.channel = channel;
+        this.selector = selector;
+        this.sendBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(settings.maxDatagramSize()));
+        this.invalidLogLimiter = new LogRateLimiter(server.getSettings().packetLogRate());
+        this.sendErrorLogLimiter = new LogRateLimiter(server.getSettings().packetLogRate());
+
+        MetricsRegistry registry = server.getMultisnake().getMetrics();
+        this.receivedDatagrams = registry.counter("multisnake_datagrams_received_total", "Datagrams received from clients");
+        this.sentDatagrams = registry.counter("multisnake_datagrams_sent_total", "Datagrams sent to clients");
+        this.lostDatagrams = registry.counter("multisnake_datagrams_lost_total", "Datagrams sent to clients that were not acknowledged in time");
+        this.rejectedDatagrams = registry.counter("multisnake_datagrams_rejected_total", "Received datagrams with an unknown token or an invalid content");
+        registry.gauge("multisnake_datagram_sessions", "Open datagram sessions", sessions::size);
+    }
+
+    /**
+     * Opens a datagram channel and a selector for a datagram server.
+     *
+     * @param server   the server the players are logged in to
+     * @param settings the datagram settings
+     * @return the datagram server
+     * @throws NetworkingException if the channel or the selector could not be opened
+     */
+    public static @NotNull DatagramServer open(@NotNull MultisnakeServer server, @NotNull DatagramSettings settings) throws NetworkingException {
+        requireNonNull(settings, "Datagram settings cannot be null");
+
+        DatagramChannel channel = NetworkingException.wrap(DatagramChannel::open, "Failed to open datagram channel");
+        Selector selector = NetworkingException.wrap(Selector::open, "Failed to open selector");
+        return new DatagramServer(server, settings, channel, selector);
+    }
+
+    /**
+     * Binds the channel to the port from the settings on the given address
+     * and starts receiving datagrams on a new thread.
+     *
+     * @param address the address of the TCP server, whose port is replaced
+     * @throws NetworkingException if the channel could not be bound
+     */
+    public void start(@NotNull InetSocketAddress address) throws NetworkingException {
+        try {
+            channel.bind(new InetSocketAddress(address.getAddress(), settings.port()));
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            throw new NetworkingException("Failed to bind datagram channel", e);
+        }
+
+        new Thread(this, "multisnake-datagram").start();
+        LOGGER.info("Receiving datagrams on port {}", settings.port());
+    }
+
+    /**
+     * Stops receiving datagrams and closes the channel.
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Opens a session for a logged in player with a new random token.
+     *
+     * @param player the player
+     * @return the session
+     */
+    public @NotNull DatagramSession createSession(@NotNull Player player) {
+        while (true) {
+            DatagramSession session = new DatagramSession(this, player, random.nextLong());
+            if (sessions.putIfAbsent(session.getToken(), session) == null)
+                return session;
+        }
+    }
+
+    /**
+     * Closes a session, so datagrams with its token are rejected.
+     *
+     * @param session the session
+     */
+    public void removeSession(@NotNull DatagramSession session) {
+        sessions.remove(session.getToken(), session);
+    }
+
+    /**
+     * Receives datagrams until the server is shut down.
+     */
+    @Override
+    public void run() {
+        try (selector; channel) {
+            while (running) {
+                selector.select();
+                selector.selectedKeys().clear();
+
+                SocketAddress source;
+                while ((source = channel.receive(receiveBuffer.clear())) != null) {
+                    receiveBuffer.flip();
+                    try {
+                        process(source);
+                    } catch (InvalidPacketMessageException e) {
+                        rejectedDatagrams.increment();
+                        if (LOGGER.isInfoEnabled() && invalidLogLimiter.tryAcquire())
+                            LOGGER.info("Received invalid datagram from {} ({})", source, e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            LOGGER.error("An error occured during datagram loop", e);
+        }
+    }
+
+    private void process(@NotNull SocketAddress source) throws InvalidPacketMessageException {
+        if (receiveBuffer.remaining() > MAX_CLIENT_DATAGRAM_SIZE)
+            throw new InvalidPacketMessageException("Datagram is too large");
+
+        message.wrap(receiveBuffer);
+        DatagramSession session = sessions.get(message.getLong());
+        if (session == null) {
+            rejectedDatagrams.increment();
+            return;
+        }
+
+        int sequence = message.getInt();
+        int ack = message.getInt();
+        int ackBits = message.getInt();
+        byte identifier = message.getByte();
+
+        // The whole datagram is validated before the session is touched
+        int newestInput = 0;
+        int count = 0;
+        switch (identifier) {
+            case INPUT -> {
+                newestInput = message.getInt();
+                count = message.getByte() & 0xFF;
+                if (count < 1 || count > MAX_INPUTS)
+                    throw new InvalidPacketMessageException("Invalid input count " + count);
+                for (int i = 0; i < count; i++) {
+                    inputTicks[i] = message.getLong();
+                    inputs[i] = message.getDirection();
+                }
+            }
+            case HEARTBEAT -> {
+            }
+            default -> throw new InvalidPacketMessageException("Invalid datagram identifier " + identifier);
+        }
+
+        if (!session.receive(source, sequence, ack, ackBits))
+            return;
+        receivedDatagrams.increment();
+
+        Player player = session.getPlayer();
+        player.getConnection().markReceived();
+
+        for (int i = session.acceptInputs(newestInput, count); i < count; i++) {
+            long tick = inputTicks[i];
+            Direction direction = inputs[i];
+            Room room = player.getRoom();
+            if (room != null)
+                room.execute(() -> room.queueInput(player, tick, direction));
+        }
+    }
+
+    /**
+     * Sends a frame as a datagram with the given header.
+     * This can be called from any thread.
+     *
+     * @return false if the frame does not fit into a datagram or the datagram could not be sent
+     */
+    boolean send(@NotNull SocketAddress address, int sequence, int ack, int ackBits, @NotNull PooledBuffer frame) {
+        ByteBuffer source = frame.buffer();
+        int length = source.remaining() - PacketHandler.FRAME_HEADER_SIZE;
+        if (SERVER_HEADER_SIZE + length > settings.maxDatagramSize())
+            return false;
+
+        ByteBuffer buffer = sendBuffer.get().clear();
+        buffer.putInt(sequence).putInt(ack).putInt(ackBits);
+        buffer.put(buffer.position(), source, source.position() + PacketHandler.FRAME_HEADER_SIZE, length);
+        buffer.position(buffer.position() + length).flip();
+
+        try {
+            // A full socket buffer drops the datagram, it is then reported as lost by the session
+            channel.send(buffer, address);
+        } catch (IOException e) {
+            if (LOGGER.isErrorEnabled() && sendErrorLogLimiter.tryAcquire())
+                LOGGER.error("Failed to send a datagram to {}", address, e);
+            return false;
+        }
+        sentDatagrams.increment();
+        return true;
+    }
+
+    void recordLost(int count) {
+        lostDatagrams.add(count);
+    }
+
+    /**
+     * Returns the UDP port of this server.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return settings.port();
+    }
+
+    /**
+     * Returns the server the players of this datagram server are logged in to.
+     *
+     * @return the multisnake server
+     */
+    public @NotNull MultisnakeServer getServer() {
+        return server;
+    }
+}
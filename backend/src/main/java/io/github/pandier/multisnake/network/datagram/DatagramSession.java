@@ -0,0 +1,242 @@
+package io.github.pandier.multisnake.network.datagram;
+
+import io.github.pandier.multisnake.network.buffer.PooledBuffer;
+import io.github.pandier.multisnake.player.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.SocketAddress;
+
+/**
+ * The UDP side of a logged in player, identified by a secret token issued over TCP.
+ * <p>
+ * Both directions number their datagrams with a sequence and acknowledge the datagrams
+ * of the other side in every header: the newest received sequence and a bitfield of the
+ * 32 sequences before it. The server remembers which tick every sent world update was for,
+ * so an acknowledged datagram acknowledges its tick, see {@link #pollAcknowledgedTick()}.
+ * Ticks restart with every game, so the datagrams sent before a game started
+ * are forgotten by {@link #resetTicks()}, while the sequences keep counting.
+ * <p>
+ * State about received datagrams is only written by the thread of the {@link DatagramServer},
+ * state about sent datagrams only by the thread of the player's room.
+ * They exchange the acknowledgements using volatile packed fields.
+ */
+public class DatagramSession {
+    private static final int SENT_HISTORY = 256;
+    private static final int SENT_MASK = SENT_HISTORY - 1;
+    private static final int ACK_WINDOW = Integer.SIZE;
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final DatagramServer server;
+    private final Player player;
+    private final long token;
+
+    private volatile SocketAddress address = null;
+
+    // Written by the datagram thread
+    private int remoteSequence = 0;
+    private int receivedBits = 0;
+    private boolean receivedAny = false;
+    private int lastInputId = 0;
+    private boolean receivedInput = false;
+
+    // Acknowledgement of remote datagrams to put into sent headers, and of sent datagrams received from the client
+    private volatile long remoteAckState = 0;
+    private volatile long localAckState = NONE;
+
+    // Written by the room thread
+    private int sequence = 0;
+    private int gameSequence = 0;
+    private int nextLossCheck = 0;
+    private final int[] sentSequences = new int[SENT_HISTORY];
+    private final long[] sentTicks = new long[SENT_HISTORY];
+    private final boolean[] acknowledged = new boolean[SENT_HISTORY];
+
+    DatagramSession(@NotNull DatagramServer server, @NotNull Player player, long token) {
+        this.server = server;
+        this.player = player;
+        this.token = token;
+    }
+
+    /**
+     * Records a received datagram header.
+     * This is called by the datagram thread.
+     *
+     * @param source         the address the datagram came from
+     * @param remoteSequence the sequence of the datagram
+     * @param ack            the newest sequence of the server received by the client
+     * @param ackBits        the bitfield of the 32 sequences before the acknowledged one
+     * @return false if the datagram is a duplicate or too old and should be ignored
+     */
+    boolean receive(@NotNull SocketAddress source, int remoteSequence, int ack, int ackBits) {
+        if (!receivedAny) {
+            receivedAny = true;
+            this.remoteSequence = remoteSequence;
+            this.receivedBits = 0;
+        } else {
+            int diff = remoteSequence - this.remoteSequence;
+            if (diff > 0) {
+                receivedBits = diff >= Long.SIZE ? 0 : (int) (((long) receivedBits << diff) | (1L << (diff - 1)));
+                this.remoteSequence = remoteSequence;
+            } else if (diff < 0 && diff >= -ACK_WINDOW && (receivedBits & (1 << (-diff - 1))) == 0) {
+                receivedBits |= 1 << (-diff - 1);
+            } else {
+                return false;
+            }
+        }
+        remoteAckState = pack(this.remoteSequence, receivedBits);
+
+        long localAck = localAckState;
+        if (localAck == NONE || ack - (int) (localAck >>> 32) > 0)
+            localAckState = pack(ack, ackBits);
+
+        // The client may roam to another address, the token proves it is the same client
+        if (!source.equals(address))
+            address = source;
+        return true;
+    }
+
+    /**
+     * Returns the index of the first input in a redundant batch that was not received before,
+     * and records the newest input as received.
+     * This is called by the datagram thread.
+     *
+     * @param newestId the identifier of the newest input in the batch
+     * @param count    the amount of inputs in the batch
+     * @return the index of the first new input, count if every input was already received
+     */
+    int acceptInputs(int newestId, int count) {
+        int first = 0;
+        if (receivedInput) {
+            int fresh = newestId - lastInputId;
+            if (fresh <= 0)
+                return count;
+            first = Math.max(0, count - fresh);
+        }
+        receivedInput = true;
+        lastInputId = newestId;
+        return first;
+    }
+
+    /**
+     * Sends an encoded world update frame to the client.
+     * This method must be called on the thread of the player's room.
+     *
+     * @param frame the encoded frame
+     * @param tick  the tick the client is up to date with once it receives the frame
+     * @return true if the frame was sent, false if it has to be sent over TCP
+     *         because the session is not open yet or the frame does not fit into a datagram
+     */
+    public boolean send(@NotNull PooledBuffer frame, long tick) {
+        SocketAddress address = this.address;
+        if (address == null)
+            return false;
+
+        long remoteAck = remoteAckState;
+        int sequence = this.sequence;
+        if (!server.send(address, sequence, (int) (remoteAck >>> 32), (int) remoteAck, frame))
+            return false;
+
+        int index = sequence & SENT_MASK;
+        sentSequences[index] = sequence;
+        sentTicks[index] = tick;
+        acknowledged[index] = false;
+        this.sequence++;
+        return true;
+    }
+
+    /**
+     * Applies the acknowledgements received from the client
+     * and returns the newest tick the client is known to have received.
+     * Sent datagrams that fall out of the acknowledgement window without being acknowledged are counted as lost.
+     * This method must be called on the thread of the player's room.
+     *
+     * @return the acknowledged tick, -1 if no world update datagram was acknowledged
+     */
+    public long pollAcknowledgedTick() {
+        long state = localAckState;
+        if (state == NONE)
+            return -1;
+
+        int ack = (int) (state >>> 32);
+        int bits = (int) state;
+        markAcknowledged(ack);
+        for (int i = 0; i < ACK_WINDOW; i++) {
+            if ((bits & (1 << i)) != 0)
+                markAcknowledged(ack - 1 - i);
+        }
+
+        int lost = 0;
+        while (nextLossCheck - (ack - ACK_WINDOW) < 0 && nextLossCheck - sequence < 0) {
+            int index = nextLossCheck & SENT_MASK;
+            if (sentSequences[index] != nextLossCheck || !acknowledged[index])
+                lost++;
+            nextLossCheck++;
+        }
+        if (lost > 0)
+            server.recordLost(lost);
+
+        // Datagrams sent before the current game started carry ticks of the previous game
+        return isSent(ack) && ack - gameSequence >= 0 ? sentTicks[ack & SENT_MASK] : -1;
+    }
+
+    /**
+     * Forgets the ticks of the world updates sent so far, which is called when a new game starts,
+     * so acknowledgements of datagrams from the previous game do not acknowledge ticks of the new one.
+     * This method must be called on the thread of the player's room.
+     */
+    public void resetTicks() {
+        gameSequence = sequence;
+    }
+
+    private void markAcknowledged(int sequence) {
+        if (isSent(sequence))
+            acknowledged[sequence & SENT_MASK] = true;
+    }
+
+    private boolean isSent(int sequence) {
+        // Acknowledgements of sequences that were never sent, or were sent too long ago, are ignored
+        int age = this.sequence - sequence;
+        return age > 0 && age <= SENT_HISTORY && sentSequences[sequence & SENT_MASK] == sequence;
+    }
+
+    private static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the address of the client.
+     *
+     * @return the address, null if the client has not sent any datagram yet
+     */
+    public @Nullable SocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Returns the datagram server this session belongs to.
+     *
+     * @return the datagram server
+     */
+    public @NotNull DatagramServer getServer() {
+        return server;
+    }
+
+    /**
+     * Returns the player of this session.
+     *
+     * @return the player
+     */
+    public @NotNull Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Returns the secret token identifying this session.
+     *
+     * @return the token
+     */
+    public long getToken() {
+        return token;
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.pandier.multisnake.network.datagram;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Settings of the optional UDP path carrying world updates and inputs.
+ *
+ * @param enabled         true if clients can open a datagram session after logging in
+ * @param port            the UDP port the server receives datagrams on
+ * @param maxDatagramSize the maximum size of a datagram sent by the server in bytes,
+ *                        larger packets are sent over TCP instead
+ */
+public record DatagramSettings(
+        boolean enabled,
+        int port,
+        int maxDatagramSize
+) {
+
+    public DatagramSettings {
+        if (port < 0 || port > 65535)
+            throw new IllegalArgumentException("Invalid port " + port);
+        if (maxDatagramSize < DatagramServer.SERVER_HEADER_SIZE + 1 || maxDatagramSize > 65507)
+            throw new IllegalArgumentException("Invalid maximum datagram size " + maxDatagramSize);
+    }
+
+    /**
+     * Creates datagram settings using values of system properties.
+     * If a property is not defined, its default value is used.
+     * <ul>
+     *     <li>{@code multisnake.datagram.enabled} (default false)</li>
+     *     <li>{@code multisnake.datagram.port} (default 35236)</li>
+     *     <li>{@code multisnake.datagram.maxDatagramSize} (default 1200)</li>
+     * </ul>
+     *
+     * @return the datagram settings
+     */
+    public static @NotNull DatagramSettings fromSystemProperties() {
+        return new DatagramSettings(
+                Boolean.getBoolean("multisnake.datagram.enabled"),
+                Integer.getInteger("multisnake.datagram.port", 35236),
+                Integer.getInteger("multisnake.datagram.maxDatagramSize", 1200)
+        );
+    }
+}
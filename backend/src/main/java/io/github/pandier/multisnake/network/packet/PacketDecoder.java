@@ -0,0 +1,55 @@
+package io.github.pandier.multisnake.network.packet;
+
+import io.github.pandier.multisnake.network.packet.client.ClientPacket;
+import io.github.pandier.multisnake.network.packet.client.ClientPacketFactory;
+import io.github.pandier.multisnake.network.packet.message.InvalidPacketMessageException;
+import io.github.pandier.multisnake.network.packet.message.PacketMessage;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decoding state of a single connection.
+ * <p>
+ * The decoder keeps one {@link PacketMessage} view that is rewrapped for every frame,
+ * and, when packets are reused, one packet object for every packet identifier.
+ * It is only accessed by the thread reading the connection.
+ */
+public class PacketDecoder {
+    private final PacketMessage message = new PacketMessage(ByteBuffer.allocate(0));
+    private ClientPacket[] packets = null;
+
+    /**
+     * Reads a packet from a buffer using a packet factory.
+     * <p>
+     * If reuse is true and the factory supports it, the packet is read into
+     * the packet object of the identifier from the previous read instead of a new one.
+     *
+     * @param identifier the identifier of the packet
+     * @param factory    the factory of the packet
+     * @param buffer     the buffer limited to the packet data
+     * @param reuse      true if packet objects should be reused
+     * @param <T>        the type of the packet
+     * @return the read packet
+     * @throws InvalidPacketMessageException if the packet message is invalid
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends ClientPacket> @NotNull T read(byte identifier, @NotNull ClientPacketFactory<T> factory, @NotNull ByteBuffer buffer, boolean reuse) throws InvalidPacketMessageException {
+        message.wrap(buffer);
+        if (!reuse)
+            return factory.read(message);
+
+        if (packets == null)
+            packets = new ClientPacket[256];
+
+        int index = identifier & 0xFF;
+        T packet = (T) packets[index];
+        if (packet == null) {
+            packet = factory.create();
+            if (packet == null)
+                return factory.read(message);
+            packets[index] = packet;
+        }
+        return factory.read(message, packet);
+    }
+}
@@ -1,6 +1,9 @@
 package io.github.pandier.multisnake.network.packet;
 
+import io.github.pandier.multisnake.logging.LogRateLimiter;
 import io.github.pandier.multisnake.network.NetworkingException;
+import io.github.pandier.multisnake.network.buffer.BufferPool;
+import io.github.pandier.multisnake.network.buffer.PooledBuffer;
 import io.github.pandier.multisnake.network.connection.ClientConnection;
 import io.github.pandier.multisnake.network.packet.client.ClientPacket;
 import io.github.pandier.multisnake.network.packet.client.ClientPacketFactory;
@@ -13,23 +16,74 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.Map;
 
 import static java.util.Objects.requireNonNull;
 
 /**
  * Handles processing and writing of packets into and from a byte buffer.
  * <p>
- * Multisnake packets are registered
- * in {@link io.github.pandier.multisnake.network.MultisnakeServer MultisnakeServer} constructor.
+ * Every packet is sent as a frame, which is prefixed with an integer
+ * containing the amount of bytes that follow it. The frame content
+ * starts with the packet identifier followed by the packet data.
+ * <p>
+ * Client packets are registered
+ * in {@link io.github.pandier.multisnake.network.MultisnakeServer MultisnakeServer} constructor,
+ * after which the registry is {@link #freeze() frozen}. Server packets carry
+ * their identifier themselves, see {@link ServerPacket#getIdentifier()}.
  */
 public class PacketHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(PacketHandler.class);
 
-    private final Map<Byte, ClientPacketFactory<?>> clientPacketRegistry = new HashMap<>();
-    private final Map<Class<? extends ServerPacket>, Byte> serverPacketRegistry = new HashMap<>();
+    /**
+     * The size of the frame header containing the frame length.
+     */
+    public static final int FRAME_HEADER_SIZE = Integer.BYTES;
+
+    /**
+     * The maximum size of a frame received from a client including its header.
+     */
+    public static final int MAX_FRAME_SIZE = 16384;
+
+    /**
+     * The maximum size of a frame sent by the server including its header.
+     */
+    public static final int MAX_SERVER_FRAME_SIZE = 1048576;
+
+    private static final ThreadLocal<PacketMessage> WRITE_MESSAGE = ThreadLocal.withInitial(() -> new PacketMessage(ByteBuffer.allocate(0)));
+
+    private final BufferPool bufferPool;
+    private final boolean reusePackets;
+    private final int[] encodeSizeHints = new int[256];
+    private final LogRateLimiter receivedLogLimiter;
+    private final LogRateLimiter invalidLogLimiter;
+
+    private final ClientPacketFactory<?>[] clientPacketRegistry = new ClientPacketFactory<?>[256];
+    private volatile boolean frozen = false;
+
+    /**
+     * Constructs a packet handler.
+     * <p>
+     * If packets are reused, every connection decodes packets into the same
+     * packet object per identifier, so receiving packets does not allocate.
+     * Listeners then must not keep references to received packets.
+     * <p>
+     * Messages about single received packets are logged at most
+     * the given amount of times per second, see {@link LogRateLimiter}.
+     * Debug messages about received packets and messages about invalid packets are limited separately,
+     * so enabled debug logging cannot hide invalid packets.
+     *
+     * @param bufferPool    the pool used to allocate encoded frames
+     * @param reusePackets  true if decoded packet objects should be reused
+     * @param packetLogRate the maximum amount of messages about received packets logged per second
+     */
+    public PacketHandler(@NotNull BufferPool bufferPool, boolean reusePackets, int packetLogRate) {
+        this.bufferPool = bufferPool;
+        this.reusePackets = reusePackets;
+        this.receivedLogLimiter = new LogRateLimiter(packetLogRate);
+        this.invalidLogLimiter = new LogRateLimiter(packetLogRate);
+    }
 
     /**
      * Registers a new client packet factory with an identifier to this packet handler.
@@ -40,24 +94,28 @@ public class PacketHandler {
      * @param identifier the identifier of the packet
      * @param factory    the packet factory
      * @throws IllegalArgumentException if a client packet with the identifier is already registered
+     * @throws IllegalStateException    if the registry is frozen
      */
-    public void registerClientPacket(byte identifier, @NotNull ClientPacketFactory<?> factory) throws IllegalArgumentException {
+    public void registerClientPacket(byte identifier, @NotNull ClientPacketFactory<?> factory) throws IllegalArgumentException, IllegalStateException {
         requireNonNull(factory, "Client packet factory cannot be null");
 
-        if (clientPacketRegistry.get(identifier) != null)
+        if (frozen)
+            throw new IllegalStateException("Client packets cannot be registered after the registry is frozen");
+        if (clientPacketRegistry[identifier & 0xFF] != null)
             throw new IllegalArgumentException("A client packet with this identifier is already registered");
-        clientPacketRegistry.put(identifier, factory);
+        clientPacketRegistry[identifier & 0xFF] = factory;
     }
 
     /**
-     * Assigns a packet identifier to a server packet.
-     *
-     * @param identifier the identifier of the packet
-     * @param clazz      the server packet class
+     * Freezes the client packet registry, so no more packets can be registered.
+     * <p>
+     * The registry is a table indexed by the packet identifier,
+     * so choosing a factory for a received packet is a single array load.
+     * It is frozen before any packet is received, which makes it safe to read
+     * from every network thread without synchronization.
      */
-    public void registerServerPacket(byte identifier, @NotNull Class<? extends ServerPacket> clazz) throws IllegalArgumentException {
-        requireNonNull(clazz, "Server packet class cannot be null");
-        serverPacketRegistry.put(clazz, identifier);
+    public void freeze() {
+        frozen = true;
     }
 
     /**
@@ -68,17 +126,47 @@ public class PacketHandler {
      * @return the client packet factory, null if the identifier is not registered
      */
     public @Nullable ClientPacketFactory<?> getClientPacketFactory(byte identifier) {
-        return clientPacketRegistry.get(identifier);
+        return clientPacketRegistry[identifier & 0xFF];
     }
 
     /**
-     * Returns an identifier of a server packet that is registered in this packet handler.
+     * Processes every complete frame stored in a byte buffer.
+     * <p>
+     * The buffer is expected to be in write mode, containing received bytes
+     * up to its position. Every complete frame is processed using {@link #process(ClientConnection, ByteBuffer)}
+     * and the remaining bytes of an incomplete frame are compacted to the beginning of the buffer,
+     * so they can be completed by the next read.
      *
-     * @param packet the packet
-     * @return the packet identifier, null if the packet is not registered
+     * @param clientConnection the sender of the frames
+     * @param buffer           the received data in write mode
+     * @throws InvalidPacketMessageException if a frame has an invalid length, in which case the stream cannot be recovered
+     * @throws NetworkingException           if an error occurs
      */
-    public @Nullable Byte getServerPacketIdentifier(@NotNull ServerPacket packet) {
-        return serverPacketRegistry.get(packet.getClass());
+    public void processFrames(@NotNull ClientConnection clientConnection, @NotNull ByteBuffer buffer) throws InvalidPacketMessageException, NetworkingException {
+        buffer.flip();
+        try {
+            int limit = buffer.limit();
+            while (limit - buffer.position() >= FRAME_HEADER_SIZE) {
+                int start = buffer.position();
+                int length = buffer.getInt(start);
+                if (length <= 0 || length > MAX_FRAME_SIZE - FRAME_HEADER_SIZE)
+                    throw new InvalidPacketMessageException("Invalid frame length " + length);
+
+                int end = start + FRAME_HEADER_SIZE + length;
+                if (end > limit)
+                    break;
+
+                // Limit the buffer to the frame, so a malformed packet cannot read the next one
+                buffer.position(start + FRAME_HEADER_SIZE).limit(end);
+                try {
+                    process(clientConnection, buffer);
+                } finally {
+                    buffer.limit(limit).position(end);
+                }
+            }
+        } finally {
+            buffer.compact();
+        }
     }
 
     /**
@@ -87,47 +175,88 @@ public class PacketHandler {
      * A {@link ClientPacketFactory} is chosen using a client packet registry defined in this packet handler.
      * If the factory could not be chosen,
      * an {@link ServerErrorPacket.Error#INVALID_PACKET_IDENTIFIER INVALID_PACKET_IDENTIFIER} error is sent.
-     * Then a {@link ClientPacket} is constructed using the packet factory and processed by its needs.
+     * Then a {@link ClientPacket} is read by the {@link PacketDecoder} of the connection
+     * using the packet factory and processed by its needs.
      *
      * @param clientConnection the sender of the packet
-     * @param buffer           the packet data
+     * @param buffer           the packet data limited to a single frame
      * @throws NetworkingException if an error occurs
      */
     public void process(@NotNull ClientConnection clientConnection, @NotNull ByteBuffer buffer) throws NetworkingException {
         byte identifier = buffer.get();
+        clientConnection.getServer().getMetrics().receivedPackets(identifier).increment();
         ClientPacketFactory<?> factory = getClientPacketFactory(identifier);
         if (factory == null) {
-            LOGGER.info("Received invalid packet identifier '{}' from client {}", identifier, clientConnection.getUuid());
+            if (LOGGER.isInfoEnabled() && invalidLogLimiter.tryAcquire())
+                LOGGER.info("Received invalid packet identifier '{}' from client {}", identifier, clientConnection.getUuid());
             clientConnection.sendError(ServerErrorPacket.Error.INVALID_PACKET_IDENTIFIER);
             return;
         }
 
         try {
-            ClientPacket packet = factory.read(new PacketMessage(buffer));
+            ClientPacket packet = clientConnection.getDecoder().read(identifier, factory, buffer, reusePackets);
             packet.apply(clientConnection.getPacketListener());
-            LOGGER.debug("Received packet with identifier '{}' from client {}", identifier, clientConnection.getUuid());
+            if (LOGGER.isDebugEnabled() && receivedLogLimiter.tryAcquire())
+                LOGGER.debug("Received packet with identifier '{}' from client {}", identifier, clientConnection.getUuid());
         } catch (InvalidPacketMessageException e) {
-            LOGGER.info("Invalid packet message with identifier '{}' from client {} ({})", identifier, clientConnection.getUuid(), e.getMessage());
+            clientConnection.getServer().getMetrics().getDecodeErrors().increment();
+            if (LOGGER.isInfoEnabled() && invalidLogLimiter.tryAcquire())
+                LOGGER.info("Invalid packet message with identifier '{}' from client {} ({})", identifier, clientConnection.getUuid(), e.getMessage());
         }
     }
 
     /**
-     * Writes packet data to a byte buffer based on the protocol specification.
-     * The byte buffer is then ready to be sent to the client.
+     * Encodes a packet frame into a pooled buffer, which can be sent
+     * to any amount of clients using {@link ClientConnection#sendEncoded(PooledBuffer)}.
+     * <p>
+     * The packet is serialized only once, so broadcasting the same packet
+     * does not become more expensive with the amount of recipients.
+     * The returned buffer is flipped and owned by the caller,
+     * who must release it after it was handed to every client.
      * <p>
-     * The packet identifier is determined using a server packet registry
-     * defined in this packet handler. If the packet is not known
-     * in the registry, an {@link IllegalArgumentException} is thrown.
+     * The frame is written directly into a buffer of the size class
+     * of the last frame with the same identifier. If it does not fit,
+     * it is written again into a buffer of the next size class,
+     * so no thread needs a scratch buffer large enough for any frame.
+     *
+     * @param packet the packet to encode
+     * @return the pooled buffer containing the frame
+     * @throws BufferOverflowException if the frame is larger than {@link #MAX_SERVER_FRAME_SIZE}
+     */
+    public @NotNull PooledBuffer encode(@NotNull ServerPacket packet) throws BufferOverflowException {
+        int identifier = packet.getIdentifier() & 0xFF;
+        // The hints are read and written without synchronization, a stale hint only costs another attempt
+        int size = Math.max(BufferPool.MIN_SIZE, encodeSizeHints[identifier]);
+        while (true) {
+            PooledBuffer encoded = bufferPool.acquire(size);
+            ByteBuffer buffer = encoded.buffer();
+            try {
+                write(buffer, packet);
+            } catch (BufferOverflowException e) {
+                encoded.release();
+                if (buffer.capacity() >= MAX_SERVER_FRAME_SIZE)
+                    throw e;
+                size = buffer.capacity() * 2;
+                continue;
+            }
+            buffer.flip();
+            encodeSizeHints[identifier] = buffer.remaining();
+            return encoded;
+        }
+    }
+
+    /**
+     * Writes a packet frame to a byte buffer based on the protocol specification.
+     * The byte buffer is then ready to be sent to the client.
      *
      * @param buffer the byte buffer
      * @param packet the packet to write
-     * @throws IllegalArgumentException if the packet is not registered in this handler
      */
-    public void write(@NotNull ByteBuffer buffer, @NotNull ServerPacket packet) throws IllegalArgumentException {
-        Byte identifier = getServerPacketIdentifier(packet);
-        if (identifier == null)
-            throw new IllegalArgumentException("Server packet not registered");
-        buffer.put(identifier);
-        packet.write(new PacketMessage(buffer));
+    public void write(@NotNull ByteBuffer buffer, @NotNull ServerPacket packet) {
+        int start = buffer.position();
+        buffer.position(start + FRAME_HEADER_SIZE);
+        buffer.put(packet.getIdentifier());
+        packet.write(WRITE_MESSAGE.get().wrap(buffer));
+        buffer.putInt(start, buffer.position() - start - FRAME_HEADER_SIZE);
     }
 }
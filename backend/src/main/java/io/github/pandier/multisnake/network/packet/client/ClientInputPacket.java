@@ -0,0 +1,75 @@
+package io.github.pandier.multisnake.network.packet.client;
+
+import io.github.pandier.multisnake.game.Direction;
+import io.github.pandier.multisnake.network.packet.listener.PacketListener;
+import io.github.pandier.multisnake.network.packet.message.InvalidPacketMessageException;
+import io.github.pandier.multisnake.network.packet.message.PacketMessage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sent by a player to change the direction of its snake.
+ * The input is stamped with the latest tick the client has seen,
+ * so an input that arrives a few ticks late can still be applied at that tick.
+ * <p>
+ * This packet is mutable, so it can be reused when packets are decoded
+ * without allocation, see {@link ClientPacketFactory#read(PacketMessage, ClientPacket)}.
+ */
+public final class ClientInputPacket implements ClientPacket {
+    private long tick;
+    private Direction direction;
+
+    public ClientInputPacket(long tick, @NotNull Direction direction) {
+        this.tick = tick;
+        this.direction = direction;
+    }
+
+    @Override
+    public void apply(@NotNull PacketListener listener) {
+        listener.onInput(this);
+    }
+
+    /**
+     * Returns the tick the input is stamped with.
+     *
+     * @return the tick
+     */
+    public long tick() {
+        return tick;
+    }
+
+    /**
+     * Returns the new direction of the snake.
+     *
+     * @return the direction
+     */
+    public @NotNull Direction direction() {
+        return direction;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientInputPacket[tick=" + tick + ", direction=" + direction + "]";
+    }
+
+    public static class Factory implements ClientPacketFactory<ClientInputPacket> {
+
+        @Override
+        public @NotNull ClientInputPacket read(@NotNull PacketMessage message) throws InvalidPacketMessageException {
+            long tick = message.getLong();
+            Direction direction = message.getDirection();
+            return new ClientInputPacket(tick, direction);
+        }
+
+        @Override
+        public @NotNull ClientInputPacket create() {
+            return new ClientInputPacket(0, Direction.UP);
+        }
+
+        @Override
+        public @NotNull ClientInputPacket read(@NotNull PacketMessage message, @NotNull ClientInputPacket packet) throws InvalidPacketMessageException {
+            packet.tick = message.getLong();
+            packet.direction = message.getDirection();
+            return packet;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.pandier.multisnake.network.packet.client;
+
+import io.github.pandier.multisnake.network.packet.listener.PacketListener;
+import io.github.pandier.multisnake.network.packet.message.InvalidPacketMessageException;
+import io.github.pandier.multisnake.network.packet.message.PacketMessage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sent by a client that has nothing else to send, so it is not disconnected
+ * for being idle, see {@link io.github.pandier.multisnake.network.NetworkSettings#idleTimeout()}.
+ * <p>
+ * Players receive a {@link io.github.pandier.multisnake.network.packet.server.ServerKeepAlivePacket ServerKeepAlivePacket}
+ * with the same identifier in response, which lets clients measure the round-trip time.
+ * <p>
+ * This packet is mutable, so it can be reused when packets are decoded
+ * without allocation, see {@link ClientPacketFactory#read(PacketMessage, ClientPacket)}.
+ */
+public final class ClientKeepAlivePacket implements ClientPacket {
+    private long id;
+
+    public ClientKeepAlivePacket(long id) {
+        this.id = id;
+    }
+
+    @Override
+    public void apply(@NotNull PacketListener listener) {
+        listener.onKeepAlive(this);
+    }
+
+    /**
+     * Returns the identifier chosen by the client, which is echoed back by the server.
+     *
+     * @return the keep-alive identifier
+     */
+    public long id() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientKeepAlivePacket[id=" + id + "]";
+    }
+
+    public static class Factory implements ClientPacketFactory<ClientKeepAlivePacket> {
+
+        @Override
+        public @NotNull ClientKeepAlivePacket read(@NotNull PacketMessage message) throws InvalidPacketMessageException {
+            long id = message.getLong();
+            return new ClientKeepAlivePacket(id);
+        }
+
+        @Override
+        public @NotNull ClientKeepAlivePacket create() {
+            return new ClientKeepAlivePacket(0);
+        }
+
+        @Override
+        public @NotNull ClientKeepAlivePacket read(@NotNull PacketMessage message, @NotNull ClientKeepAlivePacket packet) throws InvalidPacketMessageException {
+            packet.id = message.getLong();
+            return packet;
+        }
+    }
+}
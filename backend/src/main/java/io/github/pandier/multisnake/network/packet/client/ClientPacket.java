@@ -9,6 +9,10 @@ import org.jetbrains.annotations.NotNull;
  * <p>
  * When a packet is received, it is applied to a {@link PacketListener}
  * using the {@link #apply(PacketListener) apply} method.
+ * <p>
+ * When the server reuses decoded packets, the same packet object is filled
+ * with the data of every received packet of its type, so listeners must not keep
+ * references to packets after they return.
  */
 public interface ClientPacket extends Packet {
 
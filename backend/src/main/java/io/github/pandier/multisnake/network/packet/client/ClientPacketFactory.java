@@ -3,6 +3,7 @@ package io.github.pandier.multisnake.network.packet.client;
 import io.github.pandier.multisnake.network.packet.message.InvalidPacketMessageException;
 import io.github.pandier.multisnake.network.packet.message.PacketMessage;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public interface ClientPacketFactory<T extends ClientPacket> {
 
@@ -14,4 +15,27 @@ public interface ClientPacketFactory<T extends ClientPacket> {
      * @throws InvalidPacketMessageException if the packet message is invalid
      */
     @NotNull T read(@NotNull PacketMessage message) throws InvalidPacketMessageException;
+
+    /**
+     * Creates a packet object that can be reused by {@link #read(PacketMessage, ClientPacket)}.
+     * Packets that are immutable return null and are always constructed by {@link #read(PacketMessage)}.
+     *
+     * @return the reusable packet object, null if the packet cannot be reused
+     */
+    default @Nullable T create() {
+        return null;
+    }
+
+    /**
+     * Reads a packet message into an existing packet object created by {@link #create()}.
+     * This avoids allocating a packet object for every received packet.
+     *
+     * @param message the packet message
+     * @param packet  the reused packet object
+     * @return the packet object containing the read data
+     * @throws InvalidPacketMessageException if the packet message is invalid
+     */
+    default @NotNull T read(@NotNull PacketMessage message, @NotNull T packet) throws InvalidPacketMessageException {
+        return read(message);
+    }
 }
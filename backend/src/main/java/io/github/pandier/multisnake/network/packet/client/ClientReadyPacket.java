@@ -9,16 +9,36 @@ import org.jetbrains.annotations.NotNull;
  * Sent by a player to the server when the player
  * is ready for the game. If all players are ready,
  * the game starts.
+ * <p>
+ * This packet is mutable, so it can be reused when packets are decoded
+ * without allocation, see {@link ClientPacketFactory#read(PacketMessage, ClientPacket)}.
  */
-public record ClientReadyPacket(
-        boolean ready
-) implements ClientPacket {
+public final class ClientReadyPacket implements ClientPacket {
+    private boolean ready;
+
+    public ClientReadyPacket(boolean ready) {
+        this.ready = ready;
+    }
 
     @Override
     public void apply(@NotNull PacketListener listener) {
         listener.onReady(this);
     }
 
+    /**
+     * Returns true if the player is ready.
+     *
+     * @return the ready status
+     */
+    public boolean ready() {
+        return ready;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientReadyPacket[ready=" + ready + "]";
+    }
+
     public static class Factory implements ClientPacketFactory<ClientReadyPacket> {
 
         @Override
@@ -26,5 +46,16 @@ public record ClientReadyPacket(
             boolean ready = message.getBoolean();
             return new ClientReadyPacket(ready);
         }
+
+        @Override
+        public @NotNull ClientReadyPacket create() {
+            return new ClientReadyPacket(false);
+        }
+
+        @Override
+        public @NotNull ClientReadyPacket read(@NotNull PacketMessage message, @NotNull ClientReadyPacket packet) throws InvalidPacketMessageException {
+            packet.ready = message.getBoolean();
+            return packet;
+        }
     }
 }
@@ -0,0 +1,34 @@
+package io.github.pandier.multisnake.network.packet.client;
+
+import io.github.pandier.multisnake.network.packet.listener.PacketListener;
+import io.github.pandier.multisnake.network.packet.message.InvalidPacketMessageException;
+import io.github.pandier.multisnake.network.packet.message.PacketMessage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sent by a client instead of {@link ClientLoginPacket} to watch a room without playing.
+ *
+ * @param room the identifier of the room, {@link #ANY_ROOM} to watch the room with the most players
+ */
+public record ClientSpectatePacket(
+        int room
+) implements ClientPacket {
+
+    /**
+     * The room identifier requesting the room with the most players.
+     */
+    public static final int ANY_ROOM = -1;
+
+    @Override
+    public void apply(@NotNull PacketListener listener) {
+        listener.onSpectate(this);
+    }
+
+    public static class Factory implements ClientPacketFactory<ClientSpectatePacket> {
+        @Override
+        public @NotNull ClientSpectatePacket read(@NotNull PacketMessage message) throws InvalidPacketMessageException {
+            int room = message.getInt();
+            return new ClientSpectatePacket(room);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.pandier.multisnake.network.packet.client;
+
+import io.github.pandier.multisnake.network.packet.listener.PacketListener;
+import io.github.pandier.multisnake.network.packet.message.InvalidPacketMessageException;
+import io.github.pandier.multisnake.network.packet.message.PacketMessage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sent by a player to acknowledge that the player's world state
+ * is up to date with the given tick. World updates are then
+ * delta-encoded against this tick.
+ * <p>
+ * This packet is mutable, so it can be reused when packets are decoded
+ * without allocation, see {@link ClientPacketFactory#read(PacketMessage, ClientPacket)}.
+ */
+public final class ClientWorldAckPacket implements ClientPacket {
+    private long tick;
+
+    public ClientWorldAckPacket(long tick) {
+        this.tick = tick;
+    }
+
+    @Override
+    public void apply(@NotNull PacketListener listener) {
+        listener.onWorldAck(this);
+    }
+
+    /**
+     * Returns the acknowledged tick.
+     *
+     * @return the tick
+     */
+    public long tick() {
+        return tick;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientWorldAckPacket[tick=" + tick + "]";
+    }
+
+    public static class Factory implements ClientPacketFactory<ClientWorldAckPacket> {
+
+        @Override
+        public @NotNull ClientWorldAckPacket read(@NotNull PacketMessage message) throws InvalidPacketMessageException {
+            long tick = message.getLong();
+            return new ClientWorldAckPacket(tick);
+        }
+
+        @Override
+        public @NotNull ClientWorldAckPacket create() {
+            return new ClientWorldAckPacket(0);
+        }
+
+        @Override
+        public @NotNull ClientWorldAckPacket read(@NotNull PacketMessage message, @NotNull ClientWorldAckPacket packet) throws InvalidPacketMessageException {
+            packet.tick = message.getLong();
+            return packet;
+        }
+    }
+}
@@ -3,24 +3,36 @@ package io.github.pandier.multisnake.network.packet.listener;
 import io.github.pandier.multisnake.Multisnake;
 import io.github.pandier.multisnake.network.NetworkingException;
 import io.github.pandier.multisnake.network.connection.ClientConnection;
+import io.github.pandier.multisnake.network.datagram.DatagramServer;
+import io.github.pandier.multisnake.network.datagram.DatagramSession;
 import io.github.pandier.multisnake.network.packet.client.ClientLoginPacket;
+import io.github.pandier.multisnake.network.packet.client.ClientSpectatePacket;
+import io.github.pandier.multisnake.network.packet.server.ServerDatagramSessionPacket;
 import io.github.pandier.multisnake.network.packet.server.ServerErrorPacket;
 import io.github.pandier.multisnake.network.packet.server.ServerLoginSuccessPacket;
 import io.github.pandier.multisnake.player.Player;
+import io.github.pandier.multisnake.player.Spectator;
+import io.github.pandier.multisnake.room.Room;
+import io.github.pandier.multisnake.scheduler.Timeout;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Controls the login process of a connection.
+ * <p>
+ * The connection is disconnected if it does not log in before its login timeout expires,
+ * see {@link io.github.pandier.multisnake.network.NetworkSettings#loginTimeout()}.
  */
-// TODO: Add timeout
 public class LoginPacketListener implements PacketListener {
     public static final Logger LOGGER = LoggerFactory.getLogger(LoginPacketListener.class);
 
     private final Multisnake multisnake;
     private final ClientConnection connection;
 
+    private volatile Timeout timeout = null;
+    private volatile boolean finished = false;
+
     /**
      * Constructs a packet listener for controlling
      * the login process of the given client connection.
@@ -33,6 +45,21 @@ public class LoginPacketListener implements PacketListener {
         this.connection = connection;
     }
 
+    /**
+     * Sets the timeout disconnecting the connection if it does not log in,
+     * which is cancelled once the login process finishes.
+     * <p>
+     * The timeout is set from the timer thread, so the login can finish before it is set,
+     * in which case it is cancelled immediately.
+     *
+     * @param timeout the login timeout
+     */
+    public void setTimeout(@NotNull Timeout timeout) {
+        this.timeout = timeout;
+        if (finished)
+            timeout.cancel();
+    }
+
     /**
      * Called when the server receives a login packet.
      * <p>
@@ -42,6 +69,8 @@ public class LoginPacketListener implements PacketListener {
      */
     @Override
     public void onLogin(@NotNull ClientLoginPacket packet) {
+        cancelTimeout();
+
         Player player = multisnake.getPlayerManager().create(connection, packet.username());
         if (player == null) {
             try {
@@ -54,15 +83,80 @@ public class LoginPacketListener implements PacketListener {
             return;
         }
 
-        connection.setPacketListener(new PlayerPacketListener(multisnake, player));
+        DatagramServer datagramServer = multisnake.getServer().getDatagramServer();
+        DatagramSession datagramSession = datagramServer != null ? datagramServer.createSession(player) : null;
+        player.setDatagramSession(datagramSession);
+
+        multisnake.getRoomManager().join(player);
+        PlayerPacketListener playerListener = new PlayerPacketListener(multisnake, player);
+        connection.setPacketListener(playerListener);
+
+        // A disconnect before the listener was swapped was handled by this listener,
+        // so the player has to be cleaned up here
+        if (connection.isClosed()) {
+            playerListener.handleDisconnect();
+            return;
+        }
 
         LOGGER.info("Authenticated '{}' as {}", player.getUsername(), connection.getUuid());
 
         try {
             connection.send(new ServerLoginSuccessPacket());
+            if (datagramSession != null)
+                connection.send(new ServerDatagramSessionPacket(datagramSession.getToken(), datagramServer.getPort()));
         } catch (NetworkingException e) {
             LOGGER.error("Failed to send login success packet to {}", connection.getUuid(), e);
             connection.disconnect();
         }
     }
+
+    /**
+     * Called when the server receives a spectate packet.
+     * <p>
+     * Lets the client watch a room instead of logging in as a player.
+     *
+     * @param packet the spectate packet
+     */
+    @Override
+    public void onSpectate(@NotNull ClientSpectatePacket packet) {
+        cancelTimeout();
+
+        Spectator spectator = new Spectator(connection);
+        connection.setPacketListener(new SpectatorPacketListener(multisnake, spectator));
+
+        Room room = multisnake.getRoomManager().findRoom(packet.room());
+        try {
+            // The room sends nothing before the spectator watches it, so the login success comes first
+            if (room != null) {
+                connection.send(new ServerLoginSuccessPacket());
+                connection.setLowPriority(true);
+                if (multisnake.getRoomManager().watch(spectator, room)) {
+                    // The spectator listener does not remove a spectator that was not watching yet
+                    if (connection.isClosed()) {
+                        multisnake.getRoomManager().stopWatching(spectator);
+                        return;
+                    }
+                    LOGGER.info("Client {} is spectating room {}", connection.getUuid(), room.getId());
+                    return;
+                }
+                connection.setLowPriority(false);
+            }
+            connection.sendError(ServerErrorPacket.Error.ROOM_NOT_FOUND);
+        } catch (NetworkingException e) {
+            LOGGER.error("Failed to send spectate response to {}", connection.getUuid(), e);
+        }
+        connection.disconnect();
+    }
+
+    @Override
+    public void handleDisconnect() {
+        cancelTimeout();
+    }
+
+    private void cancelTimeout() {
+        finished = true;
+        Timeout timeout = this.timeout;
+        if (timeout != null)
+            timeout.cancel();
+    }
 }
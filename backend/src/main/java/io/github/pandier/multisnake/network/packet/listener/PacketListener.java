@@ -1,7 +1,11 @@
 package io.github.pandier.multisnake.network.packet.listener;
 
+import io.github.pandier.multisnake.network.packet.client.ClientInputPacket;
+import io.github.pandier.multisnake.network.packet.client.ClientKeepAlivePacket;
 import io.github.pandier.multisnake.network.packet.client.ClientLoginPacket;
 import io.github.pandier.multisnake.network.packet.client.ClientReadyPacket;
+import io.github.pandier.multisnake.network.packet.client.ClientSpectatePacket;
+import io.github.pandier.multisnake.network.packet.client.ClientWorldAckPacket;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -31,6 +35,38 @@ public interface PacketListener {
     default void onReady(@NotNull ClientReadyPacket packet) {
     }
 
+    /**
+     * Called when the server receives a world acknowledgement packet.
+     *
+     * @param packet the world acknowledgement packet
+     */
+    default void onWorldAck(@NotNull ClientWorldAckPacket packet) {
+    }
+
+    /**
+     * Called when the server receives a keep-alive packet.
+     *
+     * @param packet the keep-alive packet
+     */
+    default void onKeepAlive(@NotNull ClientKeepAlivePacket packet) {
+    }
+
+    /**
+     * Called when the server receives an input packet.
+     *
+     * @param packet the input packet
+     */
+    default void onInput(@NotNull ClientInputPacket packet) {
+    }
+
+    /**
+     * Called when the server receives a spectate packet.
+     *
+     * @param packet the spectate packet
+     */
+    default void onSpectate(@NotNull ClientSpectatePacket packet) {
+    }
+
     /**
      * Called when a client disconnects from the server.
      */
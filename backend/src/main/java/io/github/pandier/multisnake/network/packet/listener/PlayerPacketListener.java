@@ -1,8 +1,16 @@
 package io.github.pandier.multisnake.network.packet.listener;
 
 import io.github.pandier.multisnake.Multisnake;
+import io.github.pandier.multisnake.game.Direction;
+import io.github.pandier.multisnake.network.NetworkingException;
+import io.github.pandier.multisnake.network.datagram.DatagramSession;
+import io.github.pandier.multisnake.network.packet.client.ClientInputPacket;
+import io.github.pandier.multisnake.network.packet.client.ClientKeepAlivePacket;
 import io.github.pandier.multisnake.network.packet.client.ClientReadyPacket;
+import io.github.pandier.multisnake.network.packet.client.ClientWorldAckPacket;
+import io.github.pandier.multisnake.network.packet.server.ServerKeepAlivePacket;
 import io.github.pandier.multisnake.player.Player;
+import io.github.pandier.multisnake.room.Room;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,17 +31,44 @@ public class PlayerPacketListener implements PacketListener {
 
     @Override
     public void onReady(@NotNull ClientReadyPacket packet) {
-        player.setReady(packet.ready());
+        boolean ready = packet.ready();
+        Room room = player.getRoom();
+        if (room != null)
+            room.execute(() -> room.setReady(player, ready));
+    }
 
-        LOGGER.info("Player {} has set ready to {}", player.getUuid(), packet.ready());
+    @Override
+    public void onWorldAck(@NotNull ClientWorldAckPacket packet) {
+        long tick = packet.tick();
+        Room room = player.getRoom();
+        if (room != null)
+            room.execute(() -> room.acknowledgeTick(player, tick));
+    }
 
-        if (packet.ready()) {
-            multisnake.startGame(false);
+    @Override
+    public void onKeepAlive(@NotNull ClientKeepAlivePacket packet) {
+        try {
+            player.getConnection().send(new ServerKeepAlivePacket(packet.id()));
+        } catch (NetworkingException e) {
+            LOGGER.error("Failed to send keep-alive packet to {}", player.getUuid(), e);
         }
     }
 
+    @Override
+    public void onInput(@NotNull ClientInputPacket packet) {
+        long tick = packet.tick();
+        Direction direction = packet.direction();
+        Room room = player.getRoom();
+        if (room != null)
+            room.execute(() -> room.queueInput(player, tick, direction));
+    }
+
     @Override
     public void handleDisconnect() {
+        DatagramSession datagramSession = player.getDatagramSession();
+        if (datagramSession != null)
+            datagramSession.getServer().removeSession(datagramSession);
         multisnake.getPlayerManager().remove(player);
+        multisnake.getRoomManager().leave(player);
     }
 }
@@ -0,0 +1,39 @@
+package io.github.pandier.multisnake.network.packet.listener;
+
+import io.github.pandier.multisnake.Multisnake;
+import io.github.pandier.multisnake.network.NetworkingException;
+import io.github.pandier.multisnake.network.packet.client.ClientKeepAlivePacket;
+import io.github.pandier.multisnake.network.packet.server.ServerKeepAlivePacket;
+import io.github.pandier.multisnake.player.Spectator;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handles packets of a spectator, which can only keep its connection alive.
+ */
+public class SpectatorPacketListener implements PacketListener {
+    public static final Logger LOGGER = LoggerFactory.getLogger(SpectatorPacketListener.class);
+
+    private final Multisnake multisnake;
+    private final Spectator spectator;
+
+    public SpectatorPacketListener(@NotNull Multisnake multisnake, @NotNull Spectator spectator) {
+        this.multisnake = multisnake;
+        this.spectator = spectator;
+    }
+
+    @Override
+    public void onKeepAlive(@NotNull ClientKeepAlivePacket packet) {
+        try {
+            spectator.getConnection().send(new ServerKeepAlivePacket(packet.id()));
+        } catch (NetworkingException e) {
+            LOGGER.error("Failed to send keep-alive packet to {}", spectator.getUuid(), e);
+        }
+    }
+
+    @Override
+    public void handleDisconnect() {
+        multisnake.getRoomManager().stopWatching(spectator);
+    }
+}
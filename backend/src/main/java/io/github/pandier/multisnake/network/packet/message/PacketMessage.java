@@ -1,5 +1,6 @@
 package io.github.pandier.multisnake.network.packet.message;
 
+import io.github.pandier.multisnake.game.Direction;
 import org.jetbrains.annotations.NotNull;
 
 import java.nio.BufferUnderflowException;
@@ -17,12 +18,24 @@ import java.util.UUID;
  */
 @SuppressWarnings("unused")
 public class PacketMessage {
-    private final ByteBuffer buffer;
+    private ByteBuffer buffer;
 
     public PacketMessage(@NotNull ByteBuffer buffer) {
         this.buffer = buffer;
     }
 
+    /**
+     * Replaces the buffer of this message, so a single message
+     * can be reused as a view over many buffers.
+     *
+     * @param buffer the new buffer
+     * @return this message
+     */
+    public @NotNull PacketMessage wrap(@NotNull ByteBuffer buffer) {
+        this.buffer = buffer;
+        return this;
+    }
+
     /**
      * Reads a byte at the buffer position and increments the position.
      *
@@ -77,6 +90,21 @@ public class PacketMessage {
         return getByte() == 1;
     }
 
+    /**
+     * Reads the next two bytes, composing a short value out of them.
+     * The position is incremented by two.
+     *
+     * @return the composed short value
+     * @throws InvalidPacketMessageException if there aren't enough bytes remaining
+     */
+    public short getShort() throws InvalidPacketMessageException {
+        try {
+            return buffer.getShort();
+        } catch (BufferUnderflowException e) {
+            throw new InvalidPacketMessageException("Expected short at position " + buffer.position() + " but found end of buffer instead");
+        }
+    }
+
     /**
      * Reads the next four bytes, composing an integer value out of them.
      * The position is incremented by four.
@@ -121,6 +149,9 @@ public class PacketMessage {
     /**
      * Reads a string using the given charset at the current position of the buffer.
      * The string is prefixed with an integer indicating the size of the string.
+     * <p>
+     * The string is decoded directly from the buffer without copying the bytes
+     * into an intermediate array.
      *
      * @param charset the charset to be used to decode the bytes
      * @return the decoded string
@@ -128,13 +159,30 @@ public class PacketMessage {
      */
     public @NotNull String getString(@NotNull Charset charset) throws InvalidPacketMessageException {
         int previousPosition = buffer.position();
+        int length = getStringLength(previousPosition);
+
+        String string;
+        if (buffer.hasArray()) {
+            string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, charset);
+        } else {
+            string = charset.decode(buffer.slice(buffer.position(), length)).toString();
+        }
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    private int getStringLength(int previousPosition) throws InvalidPacketMessageException {
+        int length;
         try {
-            int length = getInt();
-            byte[] bytes = getBytes(length);
-            return new String(bytes, charset);
+            length = getInt();
         } catch (InvalidPacketMessageException e) {
             throw new InvalidPacketMessageException("Expected string at position " + previousPosition + " but found end of buffer instead");
         }
+        if (length < 0)
+            throw new InvalidPacketMessageException("Expected string at position " + previousPosition + " but found negative length " + length);
+        if (length > buffer.remaining())
+            throw new InvalidPacketMessageException("Expected string at position " + previousPosition + " but found end of buffer instead");
+        return length;
     }
 
     /**
@@ -157,6 +205,23 @@ public class PacketMessage {
         }
     }
 
+    /**
+     * Reads a byte containing the ordinal of a {@link Direction}.
+     * The position is incremented by one.
+     *
+     * @return the direction
+     * @throws InvalidPacketMessageException if there aren't enough bytes remaining or the ordinal is invalid
+     */
+    public @NotNull Direction getDirection() throws InvalidPacketMessageException {
+        int previousPosition = buffer.position();
+        byte ordinal = getByte();
+        try {
+            return Direction.byOrdinal(ordinal);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPacketMessageException("Expected direction at position " + previousPosition + " but found " + ordinal + " instead");
+        }
+    }
+
     /**
      * Writes the given byte into the buffer at the current position and increments the position.
      *
@@ -186,6 +251,16 @@ public class PacketMessage {
         putByte(b ? (byte) 0x01 : 0x00);
     }
 
+    /**
+     * Writes two bytes containing the given short value into the buffer
+     * at the current position and increments the position by two.
+     *
+     * @param s the short value
+     */
+    public void putShort(short s) {
+        buffer.putShort(s);
+    }
+
     /**
      * Writes four bytes containing the given integer value into the buffer
      * at the current position and increments the position by four.
@@ -0,0 +1,33 @@
+package io.github.pandier.multisnake.network.packet.server;
+
+import io.github.pandier.multisnake.network.packet.message.PacketMessage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sent by the server after a successful login if the UDP path is enabled.
+ * <p>
+ * The client opens its datagram session by sending any datagram
+ * starting with the token to the given port, see
+ * {@link io.github.pandier.multisnake.network.datagram.DatagramServer DatagramServer}.
+ *
+ * @param token the secret token identifying the session
+ * @param port  the UDP port of the server
+ */
+public record ServerDatagramSessionPacket(long token, int port) implements ServerPacket {
+
+    /**
+     * The identifier of this packet.
+     */
+    public static final byte IDENTIFIER = 0x06;
+
+    @Override
+    public byte getIdentifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public void write(@NotNull PacketMessage message) {
+        message.putLong(token);
+        message.putInt(port);
+    }
+}
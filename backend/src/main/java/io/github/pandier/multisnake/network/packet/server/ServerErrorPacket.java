@@ -12,6 +12,16 @@ public record ServerErrorPacket(
         @NotNull Error error
 ) implements ServerPacket {
 
+    /**
+     * The identifier of this packet.
+     */
+    public static final byte IDENTIFIER = 0x00;
+
+    @Override
+    public byte getIdentifier() {
+        return IDENTIFIER;
+    }
+
     @Override
     public void write(@NotNull PacketMessage message) {
         message.putByte(error.getCode());
@@ -32,7 +42,12 @@ public record ServerErrorPacket(
         /**
          * Caused when the client tries to log in with a username that is already connected.
          */
-        USERNAME_TAKEN((byte) 0x01);
+        USERNAME_TAKEN((byte) 0x01),
+
+        /**
+         * Caused when the client tries to spectate a room that does not exist.
+         */
+        ROOM_NOT_FOUND((byte) 0x02);
 
         private final byte code;
 
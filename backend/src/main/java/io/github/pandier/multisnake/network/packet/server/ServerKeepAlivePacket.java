@@ -0,0 +1,30 @@
+package io.github.pandier.multisnake.network.packet.server;
+
+import io.github.pandier.multisnake.network.packet.message.PacketMessage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sent by the server in response to a
+ * {@link io.github.pandier.multisnake.network.packet.client.ClientKeepAlivePacket ClientKeepAlivePacket}.
+ *
+ * @param id the identifier of the received keep-alive packet
+ */
+public record ServerKeepAlivePacket(
+        long id
+) implements ServerPacket {
+
+    /**
+     * The identifier of this packet.
+     */
+    public static final byte IDENTIFIER = 0x05;
+
+    @Override
+    public byte getIdentifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public void write(@NotNull PacketMessage message) {
+        message.putLong(id);
+    }
+}
@@ -8,6 +8,16 @@ import org.jetbrains.annotations.NotNull;
  */
 public record ServerLoginSuccessPacket() implements ServerPacket {
 
+    /**
+     * The identifier of this packet.
+     */
+    public static final byte IDENTIFIER = 0x01;
+
+    @Override
+    public byte getIdentifier() {
+        return IDENTIFIER;
+    }
+
     @Override
     public void write(@NotNull PacketMessage message) {
     }
@@ -8,6 +8,14 @@ import org.jetbrains.annotations.NotNull;
  */
 public interface ServerPacket {
 
+    /**
+     * Returns the packet identifier written in front of the packet data.
+     * Implementations return a constant, so no registry lookup is needed when writing.
+     *
+     * @return the packet identifier
+     */
+    byte getIdentifier();
+
     /**
      * Writes data of the packet into a {@link PacketMessage}.
      *
@@ -0,0 +1,54 @@
+package io.github.pandier.multisnake.network.packet.server;
+
+import io.github.pandier.multisnake.game.Game;
+import io.github.pandier.multisnake.game.Snake;
+import io.github.pandier.multisnake.network.packet.message.PacketMessage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sent by the server with the full state of the game.
+ * <p>
+ * Keyframes are sent when a game starts, periodically for resynchronization
+ * and whenever a client is too far behind to be updated with a {@link ServerWorldUpdatePacket}.
+ * The packet reads the game while it is written, so it must be sent on the game thread.
+ *
+ * @param game the game
+ */
+public record ServerWorldKeyframePacket(
+        @NotNull Game game
+) implements ServerPacket {
+
+    /**
+     * The identifier of this packet.
+     */
+    public static final byte IDENTIFIER = 0x03;
+
+    @Override
+    public byte getIdentifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public void write(@NotNull PacketMessage message) {
+        message.putLong(game.getTick());
+        message.putShort((short) game.getSettings().width());
+        message.putShort((short) game.getSettings().height());
+
+        message.putShort((short) game.getSnakes().size());
+        for (Snake snake : game.getSnakes()) {
+            message.putBoolean(snake.isAlive());
+            if (!snake.isAlive())
+                continue;
+
+            message.putByte((byte) snake.getDirection().ordinal());
+            message.putInt(snake.getLength());
+            for (int i = 0; i < snake.getLength(); i++)
+                message.putInt(snake.getSegment(i));
+        }
+
+        int[] food = game.getFood();
+        message.putShort((short) food.length);
+        for (int cell : food)
+            message.putInt(cell);
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.pandier.multisnake.network.packet.server;
+
+import io.github.pandier.multisnake.game.DeltaHistory;
+import io.github.pandier.multisnake.game.WorldDelta;
+import io.github.pandier.multisnake.network.packet.message.PacketMessage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sent by the server every tick with the changes of the game
+ * since the state the client has acknowledged.
+ * <p>
+ * The packet contains the deltas of every tick after the base tick
+ * up to the latest tick of the history. Clients apply only the ticks
+ * newer than their current state, so the base tick can be older than
+ * the state of the client.
+ * The packet reads the history while it is written, so it must be sent on the game thread.
+ *
+ * @param history  the delta history of the game
+ * @param baseTick the tick of the state the deltas are applied to
+ */
+public record ServerWorldUpdatePacket(
+        @NotNull DeltaHistory history,
+        long baseTick
+) implements ServerPacket {
+
+    /**
+     * The identifier of this packet.
+     */
+    public static final byte IDENTIFIER = 0x04;
+
+    @Override
+    public byte getIdentifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public void write(@NotNull PacketMessage message) {
+        long latestTick = history.getLatestTick();
+        message.putLong(baseTick);
+        message.putShort((short) (latestTick - baseTick));
+
+        for (long tick = baseTick + 1; tick <= latestTick; tick++) {
+            WorldDelta delta = history.get(tick);
+            if (delta == null)
+                throw new IllegalStateException("Tick " + tick + " is not in the history");
+            writeDelta(message, delta);
+        }
+    }
+
+    private static void writeDelta(@NotNull PacketMessage message, @NotNull WorldDelta delta) {
+        message.putShort((short) delta.getUpdatedSnakes());
+        for (int id = 0; id < delta.getSnakes(); id++) {
+            byte flags = delta.getFlags(id);
+            if (flags == 0)
+                continue;
+
+            message.putShort((short) id);
+            message.putByte(flags);
+            if ((flags & WorldDelta.MOVED) != 0)
+                message.putInt(delta.getHead(id));
+        }
+
+        message.putShort((short) delta.getFoodSpawnCount());
+        for (int i = 0; i < delta.getFoodSpawnCount(); i++)
+            message.putInt(delta.getFoodSpawn(i));
+
+        message.putShort((short) delta.getFoodDespawnCount());
+        for (int i = 0; i < delta.getFoodDespawnCount(); i++)
+            message.putInt(delta.getFoodDespawn(i));
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.pandier.multisnake.network.packet.server;
+
+import io.github.pandier.multisnake.game.Game;
+import io.github.pandier.multisnake.game.Snake;
+import io.github.pandier.multisnake.game.Viewport;
+import io.github.pandier.multisnake.game.WorldDelta;
+import io.github.pandier.multisnake.network.packet.message.PacketMessage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sent by the server every tick instead of world updates and keyframes
+ * when the room culls updates by area of interest, see {@link Viewport}.
+ * <p>
+ * The packet contains only the changes inside of the viewport of the player:
+ * <pre>
+ * [long tick][boolean reset][if reset: short width, short height]
+ * [short minX][short minY][short maxX][short maxY]
+ * [short left][left x short id]
+ * [short entered][entered x (short id, byte direction, int length, length x int segment)]
+ * [short updated][updated x (short id, byte flags, if moved: int head)]
+ * [short eaten][eaten x int cell]
+ * [short food][food x int cell]
+ * </pre>
+ * A reset replaces everything the client knows, otherwise the packet applies to the previous tick.
+ * The client drops food outside of the rectangle on its own.
+ * Because every packet depends on the previous one, these packets are only sent over TCP.
+ * The packet reads the game while it is written, so it must be sent on the game thread.
+ *
+ * @param game     the game
+ * @param viewport the viewport of the player, updated for the current tick
+ */
+public record ServerWorldViewPacket(
+        @NotNull Game game,
+        @NotNull Viewport viewport
+) implements ServerPacket {
+
+    /**
+     * The identifier of this packet.
+     */
+    public static final byte IDENTIFIER = 0x07;
+
+    @Override
+    public byte getIdentifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public void write(@NotNull PacketMessage message) {
+        message.putLong(viewport.getTick());
+        message.putBoolean(viewport.isReset());
+        if (viewport.isReset()) {
+            message.putShort((short) game.getSettings().width());
+            message.putShort((short) game.getSettings().height());
+        }
+        message.putShort((short) viewport.getMinX());
+        message.putShort((short) viewport.getMinY());
+        message.putShort((short) viewport.getMaxX());
+        message.putShort((short) viewport.getMaxY());
+
+        message.putShort((short) viewport.getLeftCount());
+        for (int i = 0; i < viewport.getLeftCount(); i++)
+            message.putShort((short) viewport.getLeft(i));
+
+        message.putShort((short) viewport.getEnteredCount());
+        for (int i = 0; i < viewport.getEnteredCount(); i++) {
+            Snake snake = game.getSnake(viewport.getEntered(i));
+            message.putShort((short) snake.getId());
+            message.putByte((byte) snake.getDirection().ordinal());
+            message.putInt(snake.getLength());
+            for (int j = 0; j < snake.getLength(); j++)
+                message.putInt(snake.getSegment(j));
+        }
+
+        WorldDelta delta = game.getHistory().get(viewport.getTick());
+        message.putShort((short) viewport.getUpdatedCount());
+        for (int i = 0; i < viewport.getUpdatedCount(); i++) {
+            int id = viewport.getUpdated(i);
+            byte flags = delta.getFlags(id);
+            message.putShort((short) id);
+            message.putByte(flags);
+            if ((flags & WorldDelta.MOVED) != 0)
+                message.putInt(delta.getHead(id));
+        }
+
+        message.putShort((short) viewport.getFoodLeftCount());
+        for (int i = 0; i < viewport.getFoodLeftCount(); i++)
+            message.putInt(viewport.getFoodLeft(i));
+
+        message.putShort((short) viewport.getFoodEnteredCount());
+        for (int i = 0; i < viewport.getFoodEnteredCount(); i++)
+            message.putInt(viewport.getFoodEntered(i));
+    }
+}
@@ -1,26 +1,102 @@
 package io.github.pandier.multisnake.player;
 
+import io.github.pandier.multisnake.game.Snake;
+import io.github.pandier.multisnake.game.Viewport;
 import io.github.pandier.multisnake.network.connection.ClientConnection;
+import io.github.pandier.multisnake.network.datagram.DatagramSession;
+import io.github.pandier.multisnake.room.Room;
+import io.github.pandier.multisnake.simulation.SnakeController;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.UUID;
 
 /**
  * Represents a player that has passed the login process
  * and can participate in the game.
+ * <p>
+ * A player is either connected through a {@link ClientConnection}
+ * or is a bot on the server, whose snake is driven by a {@link SnakeController}.
+ * Bots never log in and only exist inside of their room.
  */
 public class Player {
-
     private final ClientConnection connection;
+    private final SnakeController controller;
+    private final UUID uuid;
     private final String username;
 
+    // Index in the dense array of the player manager, guarded by the manager
+    int index = -1;
+
+    private volatile Room room = null;
+    private volatile DatagramSession datagramSession = null;
+
     private boolean ready = false;
+    private Snake snake = null;
+    private Viewport viewport = null;
+
+    private long acknowledgedTick = -1;
+    private long keyframeTick = -1;
+    private long sentTick = -1;
 
     public Player(@NotNull ClientConnection connection, @NotNull String username) {
         this.connection = connection;
+        this.controller = null;
+        this.uuid = connection.getUuid();
+        this.username = username;
+    }
+
+    /**
+     * Constructs a bot player without a connection.
+     *
+     * @param username   the username of the bot
+     * @param controller the controller driving the snake of the bot
+     */
+    public Player(@NotNull String username, @NotNull SnakeController controller) {
+        this.connection = null;
+        this.controller = controller;
+        this.uuid = UUID.randomUUID();
         this.username = username;
     }
 
+    /**
+     * Changes the room this player is in.
+     * This is called by the {@link io.github.pandier.multisnake.room.RoomManager RoomManager}.
+     *
+     * @param room the room, null if the player is not in a room
+     */
+    public void setRoom(@Nullable Room room) {
+        this.room = room;
+    }
+
+    /**
+     * Returns the room this player is in.
+     *
+     * @return the room, null if the player is not in a room
+     */
+    public @Nullable Room getRoom() {
+        return room;
+    }
+
+    /**
+     * Changes the datagram session of this player.
+     * This is called once the player logs in, if datagrams are enabled.
+     *
+     * @param datagramSession the datagram session, null if the player only uses TCP
+     */
+    public void setDatagramSession(@Nullable DatagramSession datagramSession) {
+        this.datagramSession = datagramSession;
+    }
+
+    /**
+     * Returns the datagram session of this player.
+     *
+     * @return the datagram session, null if the player only uses TCP
+     */
+    public @Nullable DatagramSession getDatagramSession() {
+        return datagramSession;
+    }
+
     /**
      * Changes the ready status to the given boolean value.
      *
@@ -39,24 +115,158 @@ public class Player {
         return ready;
     }
 
+    /**
+     * Changes the snake controlled by this player.
+     * This method must be called on the thread of the player's room.
+     *
+     * @param snake the snake, null if the player is not in a game
+     */
+    public void setSnake(@Nullable Snake snake) {
+        this.snake = snake;
+    }
+
+    /**
+     * Returns the snake controlled by this player.
+     * This method must be called on the thread of the player's room.
+     *
+     * @return the snake, null if the player is not in a game
+     */
+    public @Nullable Snake getSnake() {
+        return snake;
+    }
+
+    /**
+     * Changes the area of interest of this player.
+     * This method must be called on the thread of the player's room.
+     *
+     * @param viewport the viewport, null if the player receives the whole arena
+     */
+    public void setViewport(@Nullable Viewport viewport) {
+        this.viewport = viewport;
+    }
+
+    /**
+     * Returns the area of interest of this player.
+     * This method must be called on the thread of the player's room.
+     *
+     * @return the viewport, null if the player receives the whole arena
+     */
+    public @Nullable Viewport getViewport() {
+        return viewport;
+    }
+
+    /**
+     * Records that the client of this player is up to date with the given tick.
+     * Older acknowledgements than the current one are ignored.
+     * This method must be called on the thread of the player's room,
+     * which checks that the tick was already simulated.
+     *
+     * @param tick the acknowledged tick
+     */
+    public void acknowledgeTick(long tick) {
+        if (tick > acknowledgedTick)
+            acknowledgedTick = tick;
+    }
+
+    /**
+     * Returns the latest tick acknowledged by the client of this player.
+     * This method must be called on the thread of the player's room.
+     *
+     * @return the acknowledged tick, -1 if no tick has been acknowledged
+     */
+    public long getAcknowledgedTick() {
+        return acknowledgedTick;
+    }
+
+    /**
+     * Forgets the acknowledged tick, the tick of the last keyframe and the last sent tick.
+     * This is called when a new game starts.
+     */
+    public void resetTicks() {
+        acknowledgedTick = -1;
+        keyframeTick = -1;
+        sentTick = -1;
+    }
+
+    /**
+     * Changes the latest tick sent to this player, whether or not it was acknowledged.
+     * This method must be called on the thread of the player's room.
+     *
+     * @param sentTick the tick, -1 if nothing was sent
+     */
+    public void setSentTick(long sentTick) {
+        this.sentTick = sentTick;
+    }
+
+    /**
+     * Returns the latest tick sent to this player, whether or not it was acknowledged.
+     * This method must be called on the thread of the player's room.
+     *
+     * @return the tick, -1 if nothing was sent
+     */
+    public long getSentTick() {
+        return sentTick;
+    }
+
+    /**
+     * Changes the tick of the last keyframe sent to this player.
+     * This method must be called on the thread of the player's room.
+     *
+     * @param keyframeTick the tick of the keyframe, -1 if no keyframe was sent
+     */
+    public void setKeyframeTick(long keyframeTick) {
+        this.keyframeTick = keyframeTick;
+    }
+
+    /**
+     * Returns the tick of the last keyframe sent to this player.
+     * This method must be called on the thread of the player's room.
+     *
+     * @return the tick of the keyframe, -1 if no keyframe was sent
+     */
+    public long getKeyframeTick() {
+        return keyframeTick;
+    }
+
     /**
      * Returns the unique identifier of this player.
      *
      * @return the uuid of player
      */
     public @NotNull UUID getUuid() {
-        return getConnection().getUuid();
+        return uuid;
+    }
+
+    /**
+     * Returns true if this player is a bot without a connection.
+     *
+     * @return true if bot
+     */
+    public boolean isBot() {
+        return connection == null;
     }
 
     /**
      * Returns the network connection of this player.
      *
      * @return the connection
+     * @throws IllegalStateException if the player is a bot
      */
-    public @NotNull ClientConnection getConnection() {
+    public @NotNull ClientConnection getConnection() throws IllegalStateException {
+        if (connection == null)
+            throw new IllegalStateException("Bot " + username + " has no connection");
         return connection;
     }
 
+    /**
+     * Returns the controller driving the snake of this player.
+     *
+     * @return the controller, null if the player is not a bot
+     */
+    public @Nullable SnakeController getController() {
+        return controller;
+    }
+
     /**
      * Returns the username of this player
      * determined in the login process.
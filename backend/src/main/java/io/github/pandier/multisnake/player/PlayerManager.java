@@ -4,17 +4,35 @@ import io.github.pandier.multisnake.network.connection.ClientConnection;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 import static java.util.Objects.requireNonNull;
 
 /**
  * Manages {@link Player} instances.
+ * <p>
+ * Players are indexed by their username, uuid and connection, so every lookup,
+ * creation and removal takes constant time. All players are also kept in a dense array,
+ * from which removed players are swapped out with the last player.
+ * <p>
+ * This class is thread-safe, players are created and removed by network threads.
  */
 public class PlayerManager {
-    private final List<Player> players = new ArrayList<>();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, Player> playersByUsername = new HashMap<>();
+    private final Map<UUID, Player> playersByUuid = new HashMap<>();
+    private final Map<ClientConnection, Player> playersByConnection = new HashMap<>();
+
+    private Player[] players = new Player[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private volatile List<Player> snapshot = List.of();
 
     /**
      * Creates a new player instance with the given connection and the given username.
@@ -24,14 +42,23 @@ public class PlayerManager {
      * @param username the username of the player
      * @return the new player instance, null if a player with the given username already exists
      */
-    public @Nullable Player create(@NotNull ClientConnection connection, @NotNull String username) {
+    public synchronized @Nullable Player create(@NotNull ClientConnection connection, @NotNull String username) {
+        requireNonNull(connection, "Connection cannot be null");
         requireNonNull(username, "Username cannot be null");
 
-        if (getPlayer(username).isPresent())
+        if (playersByUsername.containsKey(username))
             return null;
 
         Player player = new Player(connection, username);
-        players.add(player);
+        playersByUsername.put(username, player);
+        playersByUuid.put(player.getUuid(), player);
+        playersByConnection.put(connection, player);
+
+        if (size == players.length)
+            players = Arrays.copyOf(players, size * 2);
+        player.index = size;
+        players[size++] = player;
+        snapshot = null;
         return player;
     }
 
@@ -41,8 +68,21 @@ public class PlayerManager {
      * @param player the player that will be removed
      * @return true if the player existed in the manager
      */
-    public boolean remove(@Nullable Player player) {
-        return players.remove(player);
+    public synchronized boolean remove(@Nullable Player player) {
+        if (player == null || playersByConnection.get(player.getConnection()) != player)
+            return false;
+
+        playersByUsername.remove(player.getUsername());
+        playersByUuid.remove(player.getUuid());
+        playersByConnection.remove(player.getConnection());
+
+        Player last = players[--size];
+        players[player.index] = last;
+        last.index = player.index;
+        players[size] = null;
+        player.index = -1;
+        snapshot = null;
+        return true;
     }
 
     /**
@@ -51,10 +91,8 @@ public class PlayerManager {
      * @param connection the connection of the player
      * @return an optional describing the found player, empty if not found
      */
-    public @NotNull Optional<Player> getPlayer(@Nullable ClientConnection connection) {
-        return players.stream()
-                .filter(player -> player.getConnection().equals(connection))
-                .findFirst();
+    public synchronized @NotNull Optional<Player> getPlayer(@Nullable ClientConnection connection) {
+        return Optional.ofNullable(playersByConnection.get(connection));
     }
 
     /**
@@ -63,18 +101,46 @@ public class PlayerManager {
      * @param username the username of the player
      * @return an optional describing the found player, empty if not found
      */
-    public @NotNull Optional<Player> getPlayer(@Nullable String username) {
-        return players.stream()
-                .filter(player -> player.getUsername().equals(username))
-                .findFirst();
+    public synchronized @NotNull Optional<Player> getPlayer(@Nullable String username) {
+        return Optional.ofNullable(playersByUsername.get(username));
+    }
+
+    /**
+     * Finds a player with the given uuid.
+     *
+     * @param uuid the uuid of the player
+     * @return an optional describing the found player, empty if not found
+     */
+    public synchronized @NotNull Optional<Player> getPlayer(@Nullable UUID uuid) {
+        return Optional.ofNullable(playersByUuid.get(uuid));
     }
 
     /**
-     * Returns all players managed in this manager.
+     * Returns the amount of players managed in this manager.
      *
-     * @return list of all players
+     * @return the amount of players
+     */
+    public synchronized int getPlayerCount() {
+        return size;
+    }
+
+    /**
+     * Returns a snapshot of all players managed in this manager.
+     * <p>
+     * The snapshot is cached until a player is created or removed,
+     * so repeated calls without changes do not copy the players.
+     *
+     * @return unmodifiable list of all players
      */
     public @NotNull List<Player> getPlayers() {
-        return players;
+        List<Player> snapshot = this.snapshot;
+        if (snapshot != null)
+            return snapshot;
+
+        synchronized (this) {
+            if (this.snapshot == null)
+                this.snapshot = List.of(Arrays.copyOf(players, size));
+            return this.snapshot;
+        }
     }
 }
@@ -0,0 +1,86 @@
+package io.github.pandier.multisnake.player;
+
+import io.github.pandier.multisnake.network.connection.ClientConnection;
+import io.github.pandier.multisnake.room.Room;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Represents a client watching a room without playing.
+ * <p>
+ * Spectators do not log in as players, so they are not managed by the {@link PlayerManager}
+ * and do not take part in the readiness checks of their room.
+ * Their connection has a {@link ClientConnection#isLowPriority() low priority}.
+ */
+public class Spectator {
+    private final ClientConnection connection;
+
+    private volatile Room room = null;
+    private long sentTick = -1;
+
+    public Spectator(@NotNull ClientConnection connection) {
+        this.connection = requireNonNull(connection, "Connection cannot be null");
+    }
+
+    /**
+     * Changes the room this spectator watches.
+     * This is called by the {@link io.github.pandier.multisnake.room.RoomManager RoomManager}.
+     *
+     * @param room the room, null if the spectator does not watch a room
+     */
+    public void setRoom(@Nullable Room room) {
+        this.room = room;
+    }
+
+    /**
+     * Returns the room this spectator watches.
+     *
+     * @return the room, null if the spectator does not watch a room
+     */
+    public @Nullable Room getRoom() {
+        return room;
+    }
+
+    /**
+     * Changes the tick of the last world state sent to this spectator.
+     * This method must be called on the thread of the spectator's room.
+     *
+     * @param sentTick the tick, -1 if the spectator needs a keyframe
+     */
+    public void setSentTick(long sentTick) {
+        this.sentTick = sentTick;
+    }
+
+    /**
+     * Returns the tick of the last world state sent to this spectator.
+     * Updates are reliable over TCP, so this is the state the next update is based on.
+     * This method must be called on the thread of the spectator's room.
+     *
+     * @return the tick, -1 if the spectator needs a keyframe
+     */
+    public long getSentTick() {
+        return sentTick;
+    }
+
+    /**
+     * Returns the unique identifier of this spectator.
+     *
+     * @return the uuid of the connection
+     */
+    public @NotNull UUID getUuid() {
+        return connection.getUuid();
+    }
+
+    /**
+     * Returns the network connection of this spectator.
+     *
+     * @return the connection
+     */
+    public @NotNull ClientConnection getConnection() {
+        return connection;
+    }
+}
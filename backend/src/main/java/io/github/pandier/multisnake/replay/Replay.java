@@ -0,0 +1,244 @@
+package io.github.pandier.multisnake.replay;
+
+import io.github.pandier.multisnake.game.Direction;
+import io.github.pandier.multisnake.game.Game;
+import io.github.pandier.multisnake.game.GameSettings;
+import io.github.pandier.multisnake.network.packet.PacketHandler;
+import io.github.pandier.multisnake.network.packet.message.PacketMessage;
+import io.github.pandier.multisnake.network.packet.server.ServerWorldKeyframePacket;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A recorded match, which can be replayed headlessly.
+ * <p>
+ * The replay file is memory-mapped and the recorded calls are made on a new game
+ * as fast as possible, without waiting for the tick rate.
+ * Because the game is deterministic, this reproduces the match tick by tick.
+ * Every recorded keyframe is compared to the replayed state, so a replay that does not match
+ * its recording, for example after a change of the game rules, is reported as desynchronized.
+ */
+public class Replay {
+    private final Path path;
+    private final ByteBuffer buffer;
+
+    private final long startMillis;
+    private final int room;
+    private final long seed;
+    private final int snakes;
+    private final GameSettings settings;
+
+    private Replay(@NotNull Path path, @NotNull ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+
+        try {
+            if (buffer.getInt() != ReplayFormat.MAGIC)
+                throw new IOException("File " + path + " is not a replay");
+            short version = buffer.getShort();
+            if (version != ReplayFormat.VERSION)
+                throw new IOException("Unsupported replay version " + version);
+
+            this.startMillis = buffer.getLong();
+            this.room = buffer.getInt();
+            this.seed = buffer.getLong();
+            this.snakes = buffer.getShort();
+            this.settings = new GameSettings(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                    buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Replay " + path + " has an incomplete header", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Replay " + path + " has invalid game settings", e);
+        }
+    }
+
+    /**
+     * Memory-maps a replay file and reads its header.
+     *
+     * @param path the path of the replay file
+     * @return the replay
+     * @throws IOException if the file could not be read or is not a replay
+     */
+    public static @NotNull Replay open(@NotNull Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Replay(path, buffer);
+        }
+    }
+
+    /**
+     * Replays the match on a new game as fast as possible.
+     * The replay can be played any amount of times.
+     * <p>
+     * A record cut off by the end of the file is the end of an interrupted recording,
+     * everything before it is replayed. Any other invalid record means the file is corrupted.
+     *
+     * @return the result of the replay
+     * @throws IOException if the replay contains an invalid record
+     */
+    public @NotNull Result play() throws IOException {
+        Game game = new Game(settings, snakes, seed);
+        ByteBuffer records = buffer.duplicate().position(ReplayFormat.HEADER_SIZE);
+        ByteBuffer scratch = ByteBuffer.allocate(PacketHandler.MAX_SERVER_FRAME_SIZE);
+
+        int keyframes = 0;
+        long desyncTick = -1;
+        boolean complete = false;
+
+        long start = System.nanoTime();
+        int offset = records.position();
+        try {
+            loop:
+            while (records.hasRemaining()) {
+                offset = records.position();
+                byte type = records.get();
+                switch (type) {
+                    case ReplayFormat.INPUT -> {
+                        int snakeId = readSnakeId(records);
+                        long tick = records.getLong();
+                        Direction direction = Direction.byOrdinal(records.get());
+                        game.queueInput(snakeId, tick, direction);
+                    }
+                    case ReplayFormat.FORFEIT -> game.forfeit(readSnakeId(records));
+                    case ReplayFormat.TICK -> {
+                        game.rewind();
+                        game.tick();
+                    }
+                    case ReplayFormat.KEYFRAME -> {
+                        long tick = records.getLong();
+                        int length = records.getInt();
+                        if (length < 1)
+                            throw new IllegalArgumentException("Invalid keyframe length " + length);
+                        if (length > records.remaining())
+                            throw new BufferUnderflowException();
+                        ByteBuffer recorded = records.slice(records.position() + 1, length - 1);
+                        records.position(records.position() + length);
+
+                        keyframes++;
+                        if (desyncTick < 0 && (tick != game.getTick() || !matches(game, recorded, scratch)))
+                            desyncTick = tick;
+                    }
+                    case ReplayFormat.END -> {
+                        complete = true;
+                        break loop;
+                    }
+                    default -> throw new IllegalArgumentException("Invalid record type " + type);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            // An interrupted recording ends with an incomplete record, everything before it was replayed
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Replay " + path + " is corrupted at offset " + offset, e);
+        }
+        long nanos = System.nanoTime() - start;
+
+        return new Result(game, keyframes, desyncTick, complete, nanos);
+    }
+
+    private int readSnakeId(@NotNull ByteBuffer records) throws BufferUnderflowException, IllegalArgumentException {
+        int snakeId = records.getShort();
+        if (snakeId < 0 || snakeId >= snakes)
+            throw new IllegalArgumentException("Invalid snake identifier " + snakeId);
+        return snakeId;
+    }
+
+    private static boolean matches(@NotNull Game game, @NotNull ByteBuffer recorded, @NotNull ByteBuffer scratch) {
+        scratch.clear();
+        try {
+            new ServerWorldKeyframePacket(game).write(new PacketMessage(scratch));
+        } catch (BufferOverflowException e) {
+            return false;
+        }
+        scratch.flip();
+        return scratch.equals(recorded);
+    }
+
+    /**
+     * Returns the path of the replay file.
+     *
+     * @return the path
+     */
+    public @NotNull Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the wall-clock time the recording started at.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Returns the identifier of the room the match was played in.
+     *
+     * @return the room identifier
+     */
+    public int getRoom() {
+        return room;
+    }
+
+    /**
+     * Returns the seed the game was created with.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the amount of snakes in the match.
+     *
+     * @return the amount of snakes
+     */
+    public int getSnakes() {
+        return snakes;
+    }
+
+    /**
+     * Returns the settings of the game.
+     *
+     * @return the game settings
+     */
+    public @NotNull GameSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * The result of replaying a match.
+     *
+     * @param game       the game in its final replayed state
+     * @param keyframes  the amount of recorded keyframes compared to the replayed state
+     * @param desyncTick the tick of the first keyframe that did not match, -1 if every keyframe matched
+     * @param complete   true if the recording ended normally, false if it was interrupted
+     * @param nanos      the time spent replaying in nanoseconds
+     */
+    public record Result(
+            @NotNull Game game,
+            int keyframes,
+            long desyncTick,
+            boolean complete,
+            long nanos
+    ) {
+
+        /**
+         * Returns true if every recorded keyframe matched the replayed state.
+         *
+         * @return true if in sync
+         */
+        public boolean isSynchronized() {
+            return desyncTick < 0;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.pandier.multisnake.replay;
+
+/**
+ * Constants of the binary replay format.
+ * <p>
+ * A replay starts with a header and continues with records, each starting with its type:
+ * <pre>
+ * header:   [int magic][short version][long startMillis][int room][long seed][short snakes]
+ *           [int width][int height][int tickRate][int maxCatchUpTicks][int initialLength]
+ *           [int food][int deltaHistory][int keyframeInterval][int maxRewindTicks]
+ * INPUT:    [byte type][short snakeId][long tick][byte direction]
+ * FORFEIT:  [byte type][short snakeId]
+ * TICK:     [byte type]
+ * KEYFRAME: [byte type][long tick][int length][byte identifier][keyframe packet]
+ * END:      [byte type]
+ * </pre>
+ * Records are the calls made on the game in the order they were made, so replaying them
+ * on a game constructed from the header reproduces the match, see {@link Replay}.
+ * A {@code TICK} is a {@link io.github.pandier.multisnake.game.Game#rewind() rewind}
+ * followed by a {@link io.github.pandier.multisnake.game.Game#tick() tick}.
+ * A keyframe is a length-prefixed {@link io.github.pandier.multisnake.network.packet.server.ServerWorldKeyframePacket}
+ * frame of the state after the preceding tick, which the replayed state is compared to.
+ * A replay without an {@code END} record was interrupted and ends with its last complete record.
+ */
+public final class ReplayFormat {
+
+    /**
+     * The first four bytes of every replay, "MSRP".
+     */
+    public static final int MAGIC = 0x4D535250;
+
+    /**
+     * The version of the format.
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * The size of the header in bytes.
+     */
+    public static final int HEADER_SIZE = Integer.BYTES + Short.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES + Short.BYTES + 9 * Integer.BYTES;
+
+    public static final byte INPUT = 1;
+    public static final byte FORFEIT = 2;
+    public static final byte TICK = 3;
+    public static final byte KEYFRAME = 4;
+    public static final byte END = 5;
+
+    /**
+     * The file extension of replays.
+     */
+    public static final String EXTENSION = ".replay";
+
+    private ReplayFormat() {
+    }
+}
@@ -0,0 +1,152 @@
+package io.github.pandier.multisnake.replay;
+
+import io.github.pandier.multisnake.game.Direction;
+import io.github.pandier.multisnake.game.Game;
+import io.github.pandier.multisnake.game.GameSettings;
+import io.github.pandier.multisnake.network.buffer.PooledBuffer;
+import io.github.pandier.multisnake.network.packet.PacketHandler;
+import io.github.pandier.multisnake.network.packet.server.ServerWorldKeyframePacket;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the calls made on a single game into a replay, see {@link ReplayFormat}.
+ * <p>
+ * Records are written into a pooled chunk on the thread of the game. Full chunks,
+ * and partially filled chunks once per flush interval, are handed over to the {@link ReplayWriter}.
+ * Apart from the periodic keyframes, recording does not allocate.
+ * All methods must be called on the thread of the game, in the order the calls are made on the game.
+ */
+public class ReplayRecorder {
+    private static final int INPUT_SIZE = 1 + Short.BYTES + Long.BYTES + 1;
+    private static final int KEYFRAME_HEADER_SIZE = 1 + Long.BYTES;
+
+    private final ReplayWriter writer;
+    private final Path path;
+    private final PacketHandler packetHandler;
+    private final int keyframeInterval;
+    private final long flushNanos;
+
+    private PooledBuffer chunk;
+    private long lastSubmitNanos = System.nanoTime();
+
+    // Accessed by the writer thread only
+    FileChannel channel = null;
+    boolean dirty = false;
+    boolean failed = false;
+
+    ReplayRecorder(@NotNull ReplayWriter writer, @NotNull Path path, @NotNull PacketHandler packetHandler, @NotNull ReplaySettings settings,
+                   long startMillis, int room, @NotNull Game game, long seed) {
+        this.writer = writer;
+        this.path = path;
+        this.packetHandler = packetHandler;
+        this.keyframeInterval = settings.keyframeInterval();
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(settings.flushInterval());
+        this.chunk = writer.acquire();
+
+        GameSettings gameSettings = game.getSettings();
+        chunk.buffer()
+                .putInt(ReplayFormat.MAGIC)
+                .putShort(ReplayFormat.VERSION)
+                .putLong(startMillis)
+                .putInt(room)
+                .putLong(seed)
+                .putShort((short) game.getSnakes().size())
+                .putInt(gameSettings.width())
+                .putInt(gameSettings.height())
+                .putInt(gameSettings.tickRate())
+                .putInt(gameSettings.maxCatchUpTicks())
+                .putInt(gameSettings.initialLength())
+                .putInt(gameSettings.food())
+                .putInt(gameSettings.deltaHistory())
+                .putInt(gameSettings.keyframeInterval())
+                .putInt(gameSettings.maxRewindTicks());
+    }
+
+    /**
+     * Records a call to {@link Game#queueInput(int, long, Direction)}.
+     *
+     * @param snakeId   the snake identifier
+     * @param tick      the tick the input is stamped with
+     * @param direction the direction
+     */
+    public void recordInput(int snakeId, long tick, @NotNull Direction direction) {
+        ensureRemaining(INPUT_SIZE);
+        chunk.buffer()
+                .put(ReplayFormat.INPUT)
+                .putShort((short) snakeId)
+                .putLong(tick)
+                .put((byte) direction.ordinal());
+    }
+
+    /**
+     * Records a call to {@link Game#forfeit(int)}.
+     *
+     * @param snakeId the snake identifier
+     */
+    public void recordForfeit(int snakeId) {
+        ensureRemaining(1 + Short.BYTES);
+        chunk.buffer()
+                .put(ReplayFormat.FORFEIT)
+                .putShort((short) snakeId);
+    }
+
+    /**
+     * Records a call to {@link Game#rewind()} followed by a call to {@link Game#tick()},
+     * and a keyframe of the game once per {@link ReplaySettings#keyframeInterval() keyframe interval}.
+     *
+     * @param game the game after the tick
+     */
+    public void recordTick(@NotNull Game game) {
+        ensureRemaining(1);
+        chunk.buffer().put(ReplayFormat.TICK);
+
+        if (game.getTick() % keyframeInterval == 0) {
+            ensureRemaining(KEYFRAME_HEADER_SIZE);
+            chunk.buffer()
+                    .put(ReplayFormat.KEYFRAME)
+                    .putLong(game.getTick());
+            submit(false);
+            // The encoded frame is handed over as it is, it already starts with its length
+            writer.submit(this, packetHandler.encode(new ServerWorldKeyframePacket(game)), false);
+        } else if (System.nanoTime() - lastSubmitNanos >= flushNanos) {
+            submit(false);
+        }
+    }
+
+    /**
+     * Records the end of the game and hands the rest of the replay over to the writer.
+     * The recorder cannot be used afterward.
+     */
+    public void end() {
+        ensureRemaining(1);
+        chunk.buffer().put(ReplayFormat.END);
+        submit(true);
+    }
+
+    private void ensureRemaining(int size) {
+        if (chunk.buffer().remaining() < size)
+            submit(false);
+    }
+
+    private void submit(boolean last) {
+        ByteBuffer buffer = chunk.buffer();
+        buffer.flip();
+        writer.submit(this, chunk, last);
+        chunk = last ? null : writer.acquire();
+        lastSubmitNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the path of the replay file.
+     *
+     * @return the path
+     */
+    public @NotNull Path getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.pandier.multisnake.replay;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Settings of match replay recording.
+ *
+ * @param enabled          true if every game is recorded
+ * @param directory        the directory replay files are written to
+ * @param flushInterval    the amount of milliseconds between two flushes of written replays to the disk
+ * @param keyframeInterval the amount of ticks between two keyframes in a replay,
+ *                         which are used to detect desynchronization when replaying
+ */
+public record ReplaySettings(
+        boolean enabled,
+        @NotNull Path directory,
+        int flushInterval,
+        int keyframeInterval
+) {
+
+    public ReplaySettings {
+        requireNonNull(directory, "Directory cannot be null");
+        if (flushInterval < 1)
+            throw new IllegalArgumentException("Flush interval must be at least one millisecond");
+        if (keyframeInterval < 1)
+            throw new IllegalArgumentException("Keyframe interval must be at least one tick");
+    }
+
+    /**
+     * Creates replay settings using values of system properties.
+     * If a property is not defined, its default value is used.
+     * <ul>
+     *     <li>{@code multisnake.replay.enabled} (default false)</li>
+     *     <li>{@code multisnake.replay.directory} (default replays)</li>
+     *     <li>{@code multisnake.replay.flushInterval} (default 1000)</li>
+     *     <li>{@code multisnake.replay.keyframeInterval} (default 100)</li>
+     * </ul>
+     *
+     * @return the replay settings
+     */
+    public static @NotNull ReplaySettings fromSystemProperties() {
+        return new ReplaySettings(
+                Boolean.getBoolean("multisnake.replay.enabled"),
+                Path.of(System.getProperty("multisnake.replay.directory", "replays")),
+                Integer.getInteger("multisnake.replay.flushInterval", 1000),
+                Integer.getInteger("multisnake.replay.keyframeInterval", 100)
+        );
+    }
+}
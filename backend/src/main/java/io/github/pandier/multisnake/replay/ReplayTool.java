@@ -0,0 +1,62 @@
+package io.github.pandier.multisnake.replay;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Replays recorded matches headlessly and reports whether they are in sync with their recordings.
+ * <p>
+ * Every argument is the path of a replay file. The process exits with status 1
+ * if a replay could not be read, is corrupted or desynchronized.
+ */
+public class ReplayTool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplayTool.class);
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            LOGGER.error("Usage: ReplayTool <replay>...");
+            System.exit(2);
+        }
+
+        boolean failed = false;
+        for (String argument : args) {
+            Replay replay;
+            try {
+                replay = Replay.open(Path.of(argument));
+            } catch (IOException e) {
+                LOGGER.error("Failed to open replay {}", argument, e);
+                failed = true;
+                continue;
+            }
+
+            Replay.Result result;
+            try {
+                result = replay.play();
+            } catch (IOException e) {
+                LOGGER.error("Failed to replay {}", argument, e);
+                failed = true;
+                continue;
+            }
+
+            long ticks = result.game().getTick();
+            double millis = result.nanos() / 1e6;
+            double speed = ticks * replay.getSettings().tickNanos() / (double) Math.max(1, result.nanos());
+            LOGGER.info("Replayed {} ticks of {} snakes from room {} in {} ms ({}x real time){}",
+                    ticks, replay.getSnakes(), replay.getRoom(), String.format("%.2f", millis), String.format("%.0f", speed),
+                    result.complete() ? "" : ", the recording was interrupted");
+
+            if (result.isSynchronized()) {
+                LOGGER.info("All {} keyframes of {} match", result.keyframes(), argument);
+            } else {
+                LOGGER.error("Replay {} desynchronized at tick {}", argument, result.desyncTick());
+                failed = true;
+            }
+        }
+
+        if (failed)
+            System.exit(1);
+    }
+}
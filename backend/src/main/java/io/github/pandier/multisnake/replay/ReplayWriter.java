@@ -0,0 +1,224 @@
+package io.github.pandier.multisnake.replay;
+
+import io.github.pandier.multisnake.game.Game;
+import io.github.pandier.multisnake.metrics.Counter;
+import io.github.pandier.multisnake.metrics.MetricsRegistry;
+import io.github.pandier.multisnake.network.buffer.BufferPool;
+import io.github.pandier.multisnake.network.buffer.PooledBuffer;
+import io.github.pandier.multisnake.network.packet.PacketHandler;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Writes the replays of all rooms to append-only files on a dedicated thread.
+ * <p>
+ * Rooms record into pooled chunks through a {@link ReplayRecorder} and hand full chunks over
+ * through a lock-free queue, so recording costs the tick thread a few buffer writes and never waits for the disk.
+ * The writer thread appends the chunks with a {@link FileChannel} and forces written files
+ * to the disk once per {@link ReplaySettings#flushInterval() flush interval}, rather than after every write.
+ * If the disk cannot keep up, chunks wait in the queue in memory.
+ */
+public class ReplayWriter implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplayWriter.class);
+
+    /**
+     * The size of the chunks replays are recorded into.
+     */
+    public static final int CHUNK_SIZE = 64 * 1024;
+
+    private final ReplaySettings settings;
+    private final BufferPool bufferPool = new BufferPool(CHUNK_SIZE, false);
+    private final Queue<Chunk> chunks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    private final Counter writtenBytes;
+    private final Counter failedReplays;
+
+    private volatile Thread thread = null;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a replay writer.
+     *
+     * @param settings the replay settings
+     * @param registry the registry of the metrics of the writer
+     */
+    public ReplayWriter(@NotNull ReplaySettings settings, @NotNull MetricsRegistry registry) {
+        this.settings = requireNonNull(settings, "Replay settings cannot be null");
+        this.writtenBytes = registry.counter("multisnake_replay_written_bytes_total", "Bytes written to replay files");
+        this.failedReplays = registry.counter("multisnake_replay_failures_total", "Replays that could not be written");
+    }
+
+    /**
+     * Creates the replay directory and starts the writer thread.
+     *
+     * @throws IOException if the directory could not be created
+     */
+    public void start() throws IOException {
+        Files.createDirectories(settings.directory());
+        thread = new Thread(this, "multisnake-replay");
+        thread.start();
+        LOGGER.info("Recording replays to {}", settings.directory().toAbsolutePath());
+    }
+
+    /**
+     * Writes the remaining chunks, closes the files and stops the writer thread.
+     * Replays of games that are still running end with their last handed over chunk.
+     *
+     * @throws InterruptedException if interrupted while waiting for the writer thread
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread thread = this.thread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join();
+        }
+    }
+
+    /**
+     * Starts recording a game that was just created.
+     * This must be called on the thread of the game.
+     *
+     * @param room          the identifier of the room of the game
+     * @param game          the game at its first tick
+     * @param seed          the seed the game was created with
+     * @param packetHandler the packet handler encoding keyframes
+     * @return the recorder of the game
+     */
+    public @NotNull ReplayRecorder record(int room, @NotNull Game game, long seed, @NotNull PacketHandler packetHandler) {
+        long startMillis = System.currentTimeMillis();
+        Path path = settings.directory().resolve("room-" + room + "-" + startMillis + "-" + sequence.incrementAndGet() + ReplayFormat.EXTENSION);
+        return new ReplayRecorder(this, path, packetHandler, settings, startMillis, room, game, seed);
+    }
+
+    @NotNull PooledBuffer acquire() {
+        return bufferPool.acquire(CHUNK_SIZE);
+    }
+
+    void submit(@NotNull ReplayRecorder recorder, @NotNull PooledBuffer buffer, boolean last) {
+        chunks.add(new Chunk(recorder, buffer, last));
+        if (last)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * Writes handed over chunks until the writer is stopped.
+     */
+    @Override
+    public void run() {
+        long flushNanos = TimeUnit.MILLISECONDS.toNanos(settings.flushInterval());
+        long nextFlush = System.nanoTime() + flushNanos;
+        List<ReplayRecorder> dirty = new ArrayList<>();
+        List<ReplayRecorder> open = new ArrayList<>();
+
+        while (true) {
+            boolean stopping = !running;
+
+            Chunk chunk;
+            while ((chunk = chunks.poll()) != null)
+                write(chunk, dirty, open);
+
+            long now = System.nanoTime();
+            if (stopping || now - nextFlush >= 0) {
+                flush(dirty);
+                nextFlush = now + flushNanos;
+            }
+
+            if (stopping)
+                break;
+            LockSupport.parkNanos(this, nextFlush - now);
+        }
+
+        for (ReplayRecorder recorder : open)
+            close(recorder);
+    }
+
+    private void write(@NotNull Chunk chunk, @NotNull List<ReplayRecorder> dirty, @NotNull List<ReplayRecorder> open) {
+        ReplayRecorder recorder = chunk.recorder();
+        try {
+            if (!recorder.failed) {
+                if (recorder.channel == null) {
+                    recorder.channel = FileChannel.open(recorder.getPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                    open.add(recorder);
+                }
+
+                ByteBuffer buffer = chunk.buffer().buffer();
+                int length = buffer.remaining();
+                while (buffer.hasRemaining())
+                    recorder.channel.write(buffer);
+                writtenBytes.add(length);
+
+                if (!recorder.dirty) {
+                    recorder.dirty = true;
+                    dirty.add(recorder);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to write replay {}", recorder.getPath(), e);
+            failedReplays.increment();
+            recorder.failed = true;
+        } finally {
+            chunk.buffer().release();
+        }
+
+        if (chunk.last() || recorder.failed) {
+            if (recorder.dirty) {
+                recorder.dirty = false;
+                dirty.remove(recorder);
+            }
+            if (open.remove(recorder))
+                close(recorder);
+        }
+    }
+
+    private void flush(@NotNull List<ReplayRecorder> dirty) {
+        for (ReplayRecorder recorder : dirty) {
+            recorder.dirty = false;
+            try {
+                recorder.channel.force(false);
+            } catch (IOException e) {
+                LOGGER.error("Failed to flush replay {}", recorder.getPath(), e);
+            }
+        }
+        dirty.clear();
+    }
+
+    private void close(@NotNull ReplayRecorder recorder) {
+        try {
+            recorder.channel.force(false);
+            recorder.channel.close();
+        } catch (IOException e) {
+            LOGGER.error("Failed to close replay {}", recorder.getPath(), e);
+        }
+    }
+
+    /**
+     * Returns the replay settings of this writer.
+     *
+     * @return the replay settings
+     */
+    public @NotNull ReplaySettings getSettings() {
+        return settings;
+    }
+
+    private record Chunk(@NotNull ReplayRecorder recorder, @NotNull PooledBuffer buffer, boolean last) {
+    }
+}
@@ -0,0 +1,648 @@
+package io.github.pandier.multisnake.room;
+
+import io.github.pandier.multisnake.game.Direction;
+import io.github.pandier.multisnake.game.Game;
+import io.github.pandier.multisnake.game.GameSettings;
+import io.github.pandier.multisnake.game.Snake;
+import io.github.pandier.multisnake.game.Viewport;
+import io.github.pandier.multisnake.network.MultisnakeServer;
+import io.github.pandier.multisnake.network.NetworkingException;
+import io.github.pandier.multisnake.network.buffer.PooledBuffer;
+import io.github.pandier.multisnake.network.connection.ClientConnection;
+import io.github.pandier.multisnake.network.datagram.DatagramSession;
+import io.github.pandier.multisnake.network.packet.server.ServerGameStartPacket;
+import io.github.pandier.multisnake.network.packet.server.ServerPacket;
+import io.github.pandier.multisnake.network.packet.server.ServerWorldKeyframePacket;
+import io.github.pandier.multisnake.network.packet.server.ServerWorldUpdatePacket;
+import io.github.pandier.multisnake.network.packet.server.ServerWorldViewPacket;
+import io.github.pandier.multisnake.player.Player;
+import io.github.pandier.multisnake.player.Spectator;
+import io.github.pandier.multisnake.replay.ReplayRecorder;
+import io.github.pandier.multisnake.replay.ReplayWriter;
+import io.github.pandier.multisnake.simulation.BotController;
+import io.github.pandier.multisnake.scheduler.Timeout;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A lobby of players that play their own independent games.
+ * <p>
+ * The room is pinned to a single {@link RoomWorker}, which ticks its game.
+ * Everything in the room except {@link #execute(Runnable)} must be accessed
+ * on the thread of the worker, so other threads hand their changes over using that method.
+ */
+public class Room {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Room.class);
+
+    private final int id;
+    private final MultisnakeServer server;
+    private final GameSettings gameSettings;
+    private final RoomSettings settings;
+    private final RoomWorker worker;
+
+    private final List<Player> players = new ArrayList<>();
+    private final List<Player> bots = new ArrayList<>();
+    private final List<Spectator> spectators = new ArrayList<>();
+    private final BotController botController;
+
+    private Game game = null;
+    private PooledBuffer[] encodedUpdates = null;
+    private PooledBuffer encodedKeyframe = null;
+    private ReplayRecorder recorder = null;
+    private volatile boolean running = false;
+    private Timeout countdown = null;
+
+    // Guarded by the room manager
+    int members = 0;
+
+    /**
+     * Constructs a room.
+     *
+     * @param id           the identifier of the room
+     * @param server       the server the players are connected to
+     * @param gameSettings the settings of games played in the room
+     * @param settings     the room settings
+     * @param worker       the worker ticking the room
+     */
+    public Room(int id, @NotNull MultisnakeServer server, @NotNull GameSettings gameSettings, @NotNull RoomSettings settings, @NotNull RoomWorker worker) {
+        this.id = id;
+        this.server = server;
+        this.gameSettings = gameSettings;
+        this.settings = settings;
+        this.worker = worker;
+
+        this.botController = new BotController(settings.botBudget());
+        for (int i = 0; i < settings.bots(); i++)
+            bots.add(new Player("Bot " + (i + 1), botController));
+    }
+
+    /**
+     * Executes a task on the thread of this room.
+     * Tasks are executed in the order they were submitted.
+     *
+     * @param task the task
+     */
+    public void execute(@NotNull Runnable task) {
+        worker.execute(task);
+    }
+
+    /**
+     * Adds a player to this room.
+     * This method must be called on the thread of this room.
+     *
+     * @param player the player
+     */
+    void addPlayer(@NotNull Player player) {
+        players.add(player);
+        LOGGER.info("Player {} has joined room {}", player.getUuid(), id);
+    }
+
+    /**
+     * Removes a player from this room, killing its snake if there is a running game.
+     * This method must be called on the thread of this room.
+     *
+     * @param player the player
+     */
+    void removePlayer(@NotNull Player player) {
+        players.remove(player);
+        if (player.getSnake() != null) {
+            game.forfeit(player.getSnake().getId());
+            if (recorder != null)
+                recorder.recordForfeit(player.getSnake().getId());
+            player.setSnake(null);
+            player.setViewport(null);
+        }
+        updateCountdown();
+    }
+
+    /**
+     * Adds a spectator to this room.
+     * This method must be called on the thread of this room.
+     * <p>
+     * The spectator receives a keyframe with the next world update sent to spectators.
+     *
+     * @param spectator the spectator
+     */
+    void addSpectator(@NotNull Spectator spectator) {
+        spectators.add(spectator);
+        spectator.setSentTick(-1);
+        if (game != null)
+            sendToSpectator(spectator, new ServerGameStartPacket());
+    }
+
+    /**
+     * Removes a spectator from this room.
+     * This method must be called on the thread of this room.
+     *
+     * @param spectator the spectator
+     */
+    void removeSpectator(@NotNull Spectator spectator) {
+        spectators.remove(spectator);
+    }
+
+    /**
+     * Ends the running game and disconnects every spectator of this room,
+     * which is called once the room is removed.
+     * Ending the game also ends its replay, so the file is complete.
+     * This method must be called on the thread of this room.
+     */
+    void close() {
+        if (game != null)
+            endGame();
+        disconnectSpectators();
+    }
+
+    private void disconnectSpectators() {
+        for (int i = spectators.size() - 1; i >= 0; i--)
+            spectators.get(i).getConnection().disconnect();
+        spectators.clear();
+    }
+
+    /**
+     * Changes the ready status of a player in this room.
+     * This method must be called on the thread of this room.
+     * <p>
+     * Once everyone is ready, the game starts after the {@link RoomSettings#countdown() countdown}.
+     * The countdown is cancelled if the game can no longer start,
+     * for example because a player is not ready anymore.
+     *
+     * @param player the player
+     * @param ready  the ready status
+     */
+    public void setReady(@NotNull Player player, boolean ready) {
+        player.setReady(ready);
+
+        LOGGER.info("Player {} has set ready to {}", player.getUuid(), ready);
+
+        updateCountdown();
+    }
+
+    /**
+     * Queues a direction input of a player, stamped with the tick the client saw when it made the input.
+     * This method must be called on the thread of this room.
+     * Nothing happens if the player is not in a game.
+     * <p>
+     * Inputs that arrive a few ticks late are still applied at their tick,
+     * see {@link Game#queueInput(int, long, Direction)}.
+     *
+     * @param player    the player
+     * @param tick      the tick the input is stamped with
+     * @param direction the direction
+     */
+    public void queueInput(@NotNull Player player, long tick, @NotNull Direction direction) {
+        if (game == null || player.getSnake() == null)
+            return;
+        game.queueInput(player.getSnake().getId(), tick, direction);
+        if (recorder != null)
+            recorder.recordInput(player.getSnake().getId(), tick, direction);
+    }
+
+    /**
+     * Records that the client of a player is up to date with the given tick.
+     * This method must be called on the thread of this room.
+     * Acknowledgements of ticks that were not simulated yet, for example ticks of a previous game,
+     * and acknowledgements of players that are not in a game are ignored.
+     *
+     * @param player the player
+     * @param tick   the acknowledged tick
+     */
+    public void acknowledgeTick(@NotNull Player player, long tick) {
+        if (game == null || player.getSnake() == null || tick < 0 || tick > game.getTick())
+            return;
+        player.acknowledgeTick(tick);
+    }
+
+    private void updateCountdown() {
+        if (!canStartGame()) {
+            if (countdown != null) {
+                countdown.cancel();
+                countdown = null;
+                LOGGER.info("Countdown in room {} was cancelled", id);
+            }
+        } else if (settings.countdown() == 0) {
+            startGame(false);
+        } else if (countdown == null) {
+            LOGGER.info("Starting the game in room {} in {} ticks", id, settings.countdown());
+            countdown = worker.schedule(settings.countdown(), () -> {
+                countdown = null;
+                startGame(false);
+            });
+        }
+    }
+
+    /**
+     * Starts the game.
+     * This method must be called on the thread of this room.
+     * If force is false, it first checks if the game can start.
+     * If the game cannot start, false is returned.
+     *
+     * @param force true if checks should be ignored
+     * @return true if the game started successfully
+     * @see #canStartGame()
+     */
+    public boolean startGame(boolean force) {
+        if (!force && !canStartGame())
+            return false;
+
+        LOGGER.info("Starting the game in room {}", id);
+
+        long seed = System.nanoTime();
+        game = new Game(gameSettings, players.size() + bots.size(), seed);
+        ReplayWriter replayWriter = server.getMultisnake().getReplayWriter();
+        if (replayWriter != null)
+            recorder = replayWriter.record(id, game, seed, server.getPacketHandler());
+        worker.getMetrics().getPlayers().record(players.size());
+        encodedUpdates = new PooledBuffer[gameSettings.deltaHistory()];
+        running = true;
+
+        for (int i = 0; i < players.size(); i++) {
+            Player player = players.get(i);
+            player.setSnake(game.getSnake(i));
+            player.resetTicks();
+            DatagramSession session = player.getDatagramSession();
+            if (session != null)
+                session.resetTicks();
+            player.setKeyframeTick(game.getTick());
+            player.setViewport(settings.cullsUpdates() ? new Viewport(game, settings.viewRadius() + settings.viewMargin()) : null);
+        }
+        for (int i = 0; i < bots.size(); i++)
+            bots.get(i).setSnake(game.getSnake(players.size() + i));
+
+        broadcast(new ServerGameStartPacket());
+        if (settings.cullsUpdates())
+            sendViews(true);
+        else
+            broadcast(new ServerWorldKeyframePacket(game));
+
+        for (int i = 0; i < spectators.size(); i++) {
+            Spectator spectator = spectators.get(i);
+            spectator.setSentTick(-1);
+            sendToSpectator(spectator, new ServerGameStartPacket());
+        }
+        return true;
+    }
+
+    /**
+     * Sends a packet to every player in this room.
+     * This method must be called on the thread of this room.
+     * <p>
+     * The packet is encoded only once and the same bytes are sent to every player.
+     * Players that fail to receive the packet are disconnected.
+     *
+     * @param packet the packet
+     */
+    public void broadcast(@NotNull ServerPacket packet) {
+        PooledBuffer frame = server.getPacketHandler().encode(packet);
+        try {
+            for (int i = 0; i < players.size(); i++)
+                sendEncoded(players.get(i), frame);
+        } finally {
+            frame.release();
+        }
+    }
+
+    private void sendToSpectator(@NotNull Spectator spectator, @NotNull ServerPacket packet) {
+        try {
+            spectator.getConnection().send(packet);
+        } catch (NetworkingException e) {
+            LOGGER.error("Failed to send a packet to spectator {}", spectator.getUuid(), e);
+            spectator.getConnection().disconnect();
+        }
+    }
+
+    private void sendEncoded(@NotNull Player player, @NotNull PooledBuffer frame) {
+        try {
+            player.getConnection().sendEncoded(frame);
+        } catch (NetworkingException e) {
+            LOGGER.error("Failed to send a packet to {}", player.getUuid(), e);
+            player.getConnection().disconnect();
+        }
+    }
+
+    /**
+     * Simulates a tick of the running game, if there is any.
+     * This is called by the worker of this room.
+     * <p>
+     * Late inputs received since the last tick are applied first by rewinding the game,
+     * then the bots decide their moves for the tick.
+     * <p>
+     * Spectators receive the changes once per {@link RoomSettings#spectatorInterval() spectator interval},
+     * after the players, and the final state of the game.
+     * <p>
+     * When at most one snake remains alive, or only bots remain alive, the game ends.
+     */
+    void tick() {
+        if (game == null)
+            return;
+
+        int rewound = game.rewind();
+        if (rewound > 0)
+            worker.getMetrics().getRewoundTicks().record(rewound);
+        controlBots();
+        game.tick();
+        if (recorder != null)
+            recorder.recordTick(game);
+
+        boolean ending = game.getAliveSnakes() <= 1 || (!bots.isEmpty() && !isAnyPlayerAlive());
+        try {
+            if (settings.cullsUpdates())
+                sendViews(false);
+            else
+                sendWorldUpdates();
+            if (!spectators.isEmpty() && (ending || game.getTick() % settings.spectatorInterval() == 0))
+                sendSpectatorUpdates();
+        } finally {
+            // The frames are shared by the players and the spectators, so they are released once both were sent to
+            releaseEncodedFrames();
+        }
+        if (ending)
+            endGame();
+    }
+
+    private void controlBots() {
+        int alive = 0;
+        for (int i = 0; i < bots.size(); i++) {
+            Snake snake = bots.get(i).getSnake();
+            if (snake != null && snake.isAlive())
+                alive++;
+        }
+        if (alive == 0)
+            return;
+        botController.setBudget(Math.max(BotController.MIN_BUDGET, settings.botBudget() / alive));
+
+        for (int i = 0; i < bots.size(); i++) {
+            Player bot = bots.get(i);
+            Snake snake = bot.getSnake();
+            if (snake == null || !snake.isAlive())
+                continue;
+
+            Direction direction = bot.getController().control(game, snake);
+            if (direction != null && direction != snake.getNextDirection())
+                queueInput(bot, game.getTick(), direction);
+        }
+    }
+
+    private boolean isAnyPlayerAlive() {
+        for (int i = 0; i < players.size(); i++) {
+            Snake snake = players.get(i).getSnake();
+            if (snake != null && snake.isAlive())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sends the changes of the last tick to every player in the game.
+     * <p>
+     * Updates are delta-encoded against the newest state the player is known to have,
+     * which is either the acknowledged tick or the last keyframe sent to the player.
+     * A keyframe is sent instead if that state is no longer in the delta history,
+     * or if that state or any newer tick already sent to the player was {@link Game#isRewritten(long) rewritten}
+     * by a rewind, see {@link Game#needsKeyframe(long, long)},
+     * and to every player once per {@link GameSettings#keyframeInterval() keyframe interval}.
+     * <p>
+     * Every distinct packet is encoded only once per tick and shared by all players
+     * and spectators with the same base tick, so the encoding cost depends on how far behind
+     * players are rather than on the amount of players.
+     * <p>
+     * Players with an open {@link DatagramSession} receive updates as datagrams,
+     * keyframes are always sent over TCP.
+     */
+    private void sendWorldUpdates() {
+        long tick = game.getTick();
+        boolean keyframeTick = tick % gameSettings.keyframeInterval() == 0;
+
+        for (int i = 0; i < players.size(); i++) {
+            Player player = players.get(i);
+            if (player.getSnake() == null)
+                continue;
+
+            DatagramSession session = player.getDatagramSession();
+            if (session != null) {
+                long acknowledgedTick = session.pollAcknowledgedTick();
+                if (acknowledgedTick >= 0)
+                    acknowledgeTick(player, acknowledgedTick);
+            }
+
+            long baseTick = Math.max(player.getAcknowledgedTick(), player.getKeyframeTick());
+            if (keyframeTick || game.needsKeyframe(baseTick, Math.max(baseTick, player.getSentTick()))) {
+                sendEncoded(player, getEncodedKeyframe());
+                player.setKeyframeTick(tick);
+            } else {
+                PooledBuffer update = getEncodedUpdate(baseTick);
+                if (session == null || !session.send(update, tick))
+                    sendEncoded(player, update);
+            }
+            player.setSentTick(tick);
+        }
+    }
+
+    /**
+     * Sends the changes since the last sent state to every spectator.
+     * <p>
+     * Spectators receive the same encoded packets as players, shared by all spectators with the same base tick.
+     * Updates to spectators are reliable, so they are based on the last state sent to the spectator
+     * rather than on acknowledgements, and a keyframe is only sent to new spectators
+     * and to spectators whose base is no longer in the delta history.
+     * <p>
+     * The packets are only queued, the {@link ClientConnection#isLowPriority() low priority}
+     * of spectator connections makes the network workers write them after the packets of players.
+     * A spectator that has not received its previous packet yet skips the update,
+     * so slow spectators fall back to larger updates instead of piling up packets.
+     */
+    private void sendSpectatorUpdates() {
+        long tick = game.getTick();
+
+        for (int i = 0; i < spectators.size(); i++) {
+            Spectator spectator = spectators.get(i);
+            ClientConnection connection = spectator.getConnection();
+            if (connection.getOutboundQueueSize() > 0)
+                continue;
+
+            long baseTick = spectator.getSentTick();
+            PooledBuffer frame;
+            if (baseTick < 0 || game.needsKeyframe(baseTick, baseTick))
+                frame = getEncodedKeyframe();
+            else
+                frame = getEncodedUpdate(baseTick);
+
+            try {
+                connection.sendEncoded(frame);
+                spectator.setSentTick(tick);
+            } catch (NetworkingException e) {
+                LOGGER.error("Failed to send a packet to spectator {}", spectator.getUuid(), e);
+                connection.disconnect();
+            }
+        }
+    }
+
+    private @NotNull PooledBuffer getEncodedKeyframe() {
+        if (encodedKeyframe == null)
+            encodedKeyframe = server.getPacketHandler().encode(new ServerWorldKeyframePacket(game));
+        return encodedKeyframe;
+    }
+
+    private @NotNull PooledBuffer getEncodedUpdate(long baseTick) {
+        int index = (int) (game.getTick() - baseTick - 1);
+        if (encodedUpdates[index] == null)
+            encodedUpdates[index] = server.getPacketHandler().encode(new ServerWorldUpdatePacket(game.getHistory(), baseTick));
+        return encodedUpdates[index];
+    }
+
+    private void releaseEncodedFrames() {
+        if (encodedKeyframe != null) {
+            encodedKeyframe.release();
+            encodedKeyframe = null;
+        }
+        for (int i = 0; i < encodedUpdates.length; i++) {
+            if (encodedUpdates[i] != null) {
+                encodedUpdates[i].release();
+                encodedUpdates[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Sends the changes of the last tick inside of the area of interest of every player in the game,
+     * so the size of the packets depends on the amount of entities near the player
+     * rather than on the amount of players.
+     * <p>
+     * Unlike world updates, the packets are built for every player separately and depend on the previous one,
+     * so they are always sent over TCP. A player receives a reset with everything in its view instead
+     * once per {@link GameSettings#keyframeInterval() keyframe interval}
+     * and when its previous view was {@link Game#isRewritten(long) rewritten} by a rewind.
+     *
+     * @param reset true if every player receives a reset
+     */
+    private void sendViews(boolean reset) {
+        long tick = game.getTick();
+        boolean keyframeTick = reset || tick % gameSettings.keyframeInterval() == 0;
+
+        for (int i = 0; i < players.size(); i++) {
+            Player player = players.get(i);
+            Snake snake = player.getSnake();
+            Viewport viewport = player.getViewport();
+            if (snake == null || viewport == null)
+                continue;
+
+            boolean playerReset = keyframeTick || viewport.getTick() != tick - 1 || game.isRewritten(viewport.getTick());
+            viewport.update(game, snake.getHead(), playerReset);
+
+            PooledBuffer frame = server.getPacketHandler().encode(new ServerWorldViewPacket(game, viewport));
+            try {
+                sendEncoded(player, frame);
+            } finally {
+                frame.release();
+            }
+        }
+    }
+
+    private void endGame() {
+        LOGGER.info("The game in room {} has ended after {} ticks", id, game.getTick());
+
+        if (recorder != null) {
+            recorder.end();
+            recorder = null;
+        }
+        game = null;
+        encodedUpdates = null;
+        running = false;
+        for (Player player : players) {
+            player.setSnake(null);
+            player.setViewport(null);
+            player.setReady(false);
+        }
+        for (Player bot : bots)
+            bot.setSnake(null);
+    }
+
+    /**
+     * Returns true if a game isn't already running,
+     * if there are at least two players in the room, counting bots, and if every player is ready.
+     * This method must be called on the thread of this room.
+     *
+     * @return true if the game can start
+     */
+    public boolean canStartGame() {
+        if (game != null || players.isEmpty() || players.size() + bots.size() < 2)
+            return false;
+        for (Player player : players) {
+            if (!player.isReady())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the players in this room.
+     * This method must be called on the thread of this room.
+     *
+     * @return unmodifiable view of the players
+     */
+    public @NotNull List<Player> getPlayers() {
+        return Collections.unmodifiableList(players);
+    }
+
+    /**
+     * Returns the bots in this room, which play in every game alongside the players.
+     *
+     * @return unmodifiable view of the bots
+     */
+    public @NotNull List<Player> getBots() {
+        return Collections.unmodifiableList(bots);
+    }
+
+    /**
+     * Returns the spectators watching this room.
+     * This method must be called on the thread of this room.
+     *
+     * @return unmodifiable view of the spectators
+     */
+    public @NotNull List<Spectator> getSpectators() {
+        return Collections.unmodifiableList(spectators);
+    }
+
+    /**
+     * Returns the running game.
+     * This method must be called on the thread of this room.
+     *
+     * @return the running game, null if no game is running
+     */
+    public @Nullable Game getGame() {
+        return game;
+    }
+
+    /**
+     * Returns true if a game is running in this room.
+     * Unlike {@link #getGame()}, this method can be called from any thread.
+     *
+     * @return true if a game is running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the worker this room is pinned to.
+     *
+     * @return the room worker
+     */
+    public @NotNull RoomWorker getWorker() {
+        return worker;
+    }
+
+    /**
+     * Returns the identifier of this room.
+     *
+     * @return the room identifier
+     */
+    public int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,296 @@
+package io.github.pandier.multisnake.room;
+
+import io.github.pandier.multisnake.game.GameSettings;
+import io.github.pandier.multisnake.network.MultisnakeServer;
+import io.github.pandier.multisnake.player.Player;
+import io.github.pandier.multisnake.player.Spectator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Puts players into {@link Room} instances and shards the rooms
+ * across a fixed pool of {@link RoomWorker} threads.
+ * <p>
+ * A joining player is put into a room that is neither full nor playing,
+ * or into a new room if there is no such room. New rooms are pinned to the worker
+ * with the fewest rooms. Rooms are removed once their last player leaves,
+ * which disconnects their spectators.
+ * <p>
+ * This class is thread-safe, players join and leave from network threads.
+ * The lock of the manager is only held while choosing a room,
+ * the rooms themselves are ticked without it. It is a {@link ReentrantLock} rather than a monitor,
+ * so virtual threads of the {@link io.github.pandier.multisnake.network.VirtualThreadTransport virtual thread transport}
+ * waiting for it or logging while holding it do not pin their carrier threads.
+ */
+public class RoomManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoomManager.class);
+
+    private final MultisnakeServer server;
+    private final GameSettings gameSettings;
+    private final RoomSettings settings;
+
+    private final RoomWorker[] workers;
+    private final int[] workerRooms;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Room> rooms = new ArrayList<>();
+    private int nextId = 0;
+    private int spectators = 0;
+
+    /**
+     * Constructs a room manager and its workers.
+     * The workers are not started until {@link #start()} is called.
+     *
+     * @param server       the server the players are connected to
+     * @param gameSettings the settings of games played in the rooms
+     * @param settings     the room settings
+     * @throws IllegalArgumentException if the arena cannot fit every player and bot of a full room
+     */
+    public RoomManager(@NotNull MultisnakeServer server, @NotNull GameSettings gameSettings, @NotNull RoomSettings settings) throws IllegalArgumentException {
+        this.server = requireNonNull(server, "Server cannot be null");
+        this.gameSettings = requireNonNull(gameSettings, "Game settings cannot be null");
+        this.settings = requireNonNull(settings, "Room settings cannot be null");
+        if (settings.maxPlayers() + settings.bots() > gameSettings.maxSnakes())
+            throw new IllegalArgumentException("The arena fits at most " + gameSettings.maxSnakes() + " snakes, but a room can have "
+                    + settings.maxPlayers() + " players and " + settings.bots() + " bots");
+
+        RoomMetrics metrics = new RoomMetrics(server.getMultisnake().getMetrics());
+
+        this.workers = new RoomWorker[settings.workerThreads()];
+        this.workerRooms = new int[workers.length];
+        for (int i = 0; i < workers.length; i++)
+            workers[i] = new RoomWorker(gameSettings, metrics);
+    }
+
+    /**
+     * Starts the worker threads.
+     */
+    public void start() {
+        for (int i = 0; i < workers.length; i++)
+            workers[i].start("multisnake-room-" + i);
+        LOGGER.info("Started {} room workers", workers.length);
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void stop() {
+        for (RoomWorker worker : workers)
+            worker.stop();
+    }
+
+    /**
+     * Puts a player into a room.
+     * The player is added to the room on the thread of the room.
+     *
+     * @param player the player
+     * @return the room the player has joined
+     */
+    public @NotNull Room join(@NotNull Player player) {
+        requireNonNull(player, "Player cannot be null");
+
+        lock.lock();
+        try {
+            Room room = findOpenRoom();
+            if (room == null)
+                room = createRoom();
+
+            room.members++;
+            player.setRoom(room);
+
+            Room joined = room;
+            room.execute(() -> joined.addPlayer(player));
+            return room;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a player from its room.
+     * The room is removed if the player was the last one in it.
+     *
+     * @param player the player
+     */
+    public void leave(@NotNull Player player) {
+        lock.lock();
+        try {
+            Room room = player.getRoom();
+            if (room == null)
+                return;
+
+            player.setRoom(null);
+            room.execute(() -> room.removePlayer(player));
+
+            if (--room.members == 0) {
+                rooms.remove(room);
+                for (int i = 0; i < workers.length; i++) {
+                    if (workers[i] == room.getWorker())
+                        workerRooms[i]--;
+                }
+                room.execute(() -> {
+                    room.close();
+                    room.getWorker().remove(room);
+                });
+                LOGGER.info("Removed empty room {}", room.getId());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds a room that can be watched.
+     *
+     * @param id the identifier of the room, {@link io.github.pandier.multisnake.network.packet.client.ClientSpectatePacket#ANY_ROOM ANY_ROOM}
+     *           for the running room with the most players, or any room if none is running
+     * @return the room, null if there is no such room
+     */
+    public @Nullable Room findRoom(int id) {
+        lock.lock();
+        try {
+            Room found = null;
+            for (Room room : rooms) {
+                if (id >= 0) {
+                    if (room.getId() == id)
+                        return room;
+                } else if (found == null || (room.isRunning() && !found.isRunning())
+                        || (room.isRunning() == found.isRunning() && room.members > found.members)) {
+                    found = room;
+                }
+            }
+            return found;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lets a spectator watch a room.
+     * The spectator is added to the room on the thread of the room.
+     *
+     * @param spectator the spectator
+     * @param room      the room
+     * @return true if the spectator watches the room, false if the room was already removed
+     */
+    public boolean watch(@NotNull Spectator spectator, @NotNull Room room) {
+        requireNonNull(spectator, "Spectator cannot be null");
+        requireNonNull(room, "Room cannot be null");
+
+        lock.lock();
+        try {
+            if (!rooms.contains(room))
+                return false;
+
+            spectators++;
+            spectator.setRoom(room);
+            room.execute(() -> room.addSpectator(spectator));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops a spectator from watching its room.
+     *
+     * @param spectator the spectator
+     */
+    public void stopWatching(@NotNull Spectator spectator) {
+        lock.lock();
+        try {
+            Room room = spectator.getRoom();
+            if (room == null)
+                return;
+
+            spectators--;
+            spectator.setRoom(null);
+            room.execute(() -> room.removeSpectator(spectator));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Room findOpenRoom() {
+        for (Room room : rooms) {
+            if (room.members < settings.maxPlayers() && !room.isRunning())
+                return room;
+        }
+        return null;
+    }
+
+    private Room createRoom() {
+        int worker = 0;
+        for (int i = 1; i < workers.length; i++) {
+            if (workerRooms[i] < workerRooms[worker])
+                worker = i;
+        }
+
+        Room room = new Room(nextId++, server, gameSettings, settings, workers[worker]);
+        workerRooms[worker]++;
+        rooms.add(room);
+        room.execute(() -> room.getWorker().add(room));
+
+        LOGGER.info("Created room {} on worker {}", room.getId(), worker);
+        return room;
+    }
+
+    /**
+     * Returns a snapshot of all rooms.
+     *
+     * @return unmodifiable list of all rooms
+     */
+    public @NotNull List<Room> getRooms() {
+        lock.lock();
+        try {
+            return List.copyOf(rooms);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the amount of rooms.
+     *
+     * @return the amount of rooms
+     */
+    public int getRoomCount() {
+        lock.lock();
+        try {
+            return rooms.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the amount of spectators watching a room.
+     *
+     * @return the amount of spectators
+     */
+    public int getSpectatorCount() {
+        lock.lock();
+        try {
+            return spectators;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the workers ticking the rooms.
+     *
+     * @return list of the room workers
+     */
+    public @NotNull List<RoomWorker> getWorkers() {
+        return List.of(workers);
+    }
+}
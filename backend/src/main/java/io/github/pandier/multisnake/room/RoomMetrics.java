@@ -0,0 +1,58 @@
+package io.github.pandier.multisnake.room;
+
+import io.github.pandier.multisnake.metrics.Histogram;
+import io.github.pandier.multisnake.metrics.MetricsRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Metrics of the rooms of a {@link RoomManager}, shared by all its workers.
+ */
+public class RoomMetrics {
+    private static final double NANOS_TO_SECONDS = 1e-9;
+
+    private final Histogram tickDuration;
+    private final Histogram players;
+    private final Histogram rewoundTicks;
+
+    /**
+     * Registers the room metrics.
+     *
+     * @param registry the registry
+     */
+    public RoomMetrics(@NotNull MetricsRegistry registry) {
+        requireNonNull(registry, "Registry cannot be null");
+
+        this.tickDuration = registry.histogram("multisnake_room_tick_seconds", "Time spent ticking a room", NANOS_TO_SECONDS);
+        this.players = registry.histogram("multisnake_room_players", "Players in a room when its game starts", 1);
+        this.rewoundTicks = registry.histogram("multisnake_room_rewound_ticks", "Ticks simulated again to apply late inputs", 1);
+    }
+
+    /**
+     * Returns the histogram of nanoseconds spent ticking a room.
+     *
+     * @return the histogram
+     */
+    public @NotNull Histogram getTickDuration() {
+        return tickDuration;
+    }
+
+    /**
+     * Returns the histogram of players in a room when its game starts.
+     *
+     * @return the histogram
+     */
+    public @NotNull Histogram getPlayers() {
+        return players;
+    }
+
+    /**
+     * Returns the histogram of ticks simulated again when a room rewinds its game.
+     *
+     * @return the histogram
+     */
+    public @NotNull Histogram getRewoundTicks() {
+        return rewoundTicks;
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.pandier.multisnake.room;
+
+import io.github.pandier.multisnake.game.Board;
+import io.github.pandier.multisnake.simulation.BotController;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Settings of game rooms.
+ *
+ * @param maxPlayers        the maximum amount of players in a single room
+ * @param workerThreads     the amount of threads ticking the rooms
+ * @param countdown         the amount of ticks between everyone being ready and the start of the game
+ * @param viewRadius        the amount of cells a player sees in every direction from the head of its snake,
+ *                          0 to send the whole arena to every player
+ * @param viewMargin        the amount of cells around the view that are sent as well,
+ *                          so entities are known to the client before they become visible
+ * @param bots              the amount of server-side bots playing in every game of a room
+ * @param botBudget         the maximum amount of cells all bots of a room visit together per tick when deciding their moves,
+ *                          split evenly between the living bots
+ * @param spectatorInterval the amount of ticks between two world updates sent to spectators
+ */
+public record RoomSettings(
+        int maxPlayers,
+        int workerThreads,
+        int countdown,
+        int viewRadius,
+        int viewMargin,
+        int bots,
+        int botBudget,
+        int spectatorInterval
+) {
+
+    public RoomSettings {
+        if (maxPlayers < 2 || maxPlayers > Board.MAX_SNAKES)
+            throw new IllegalArgumentException("Invalid maximum amount of players " + maxPlayers);
+        if (workerThreads < 1)
+            throw new IllegalArgumentException("At least one worker thread is required");
+        if (countdown < 0)
+            throw new IllegalArgumentException("Countdown cannot be negative");
+        if (viewRadius < 0 || viewMargin < 0)
+            throw new IllegalArgumentException("View radius and margin cannot be negative");
+        if (bots < 0 || bots > Board.MAX_SNAKES - maxPlayers)
+            throw new IllegalArgumentException("Invalid amount of bots " + bots);
+        if (botBudget < BotController.MIN_BUDGET)
+            throw new IllegalArgumentException("Bot budget must be at least " + BotController.MIN_BUDGET + " cells");
+        if (spectatorInterval < 1)
+            throw new IllegalArgumentException("Spectator interval must be at least one tick");
+    }
+
+    /**
+     * Returns true if world updates are culled by the area of interest of every player.
+     *
+     * @return true if culled
+     */
+    public boolean cullsUpdates() {
+        return viewRadius > 0;
+    }
+
+    /**
+     * Creates room settings using values of system properties.
+     * If a property is not defined, its default value is used.
+     * <ul>
+     *     <li>{@code multisnake.room.maxPlayers} (default 8)</li>
+     *     <li>{@code multisnake.room.workerThreads} (default is the amount of available processors)</li>
+     *     <li>{@code multisnake.room.countdown} (default 0)</li>
+     *     <li>{@code multisnake.room.viewRadius} (default 0)</li>
+     *     <li>{@code multisnake.room.viewMargin} (default 4)</li>
+     *     <li>{@code multisnake.room.bots} (default 0)</li>
+     *     <li>{@code multisnake.room.botBudget} (default 16384)</li>
+     *     <li>{@code multisnake.room.spectatorInterval} (default 2)</li>
+     * </ul>
+     *
+     * @return the room settings
+     */
+    public static @NotNull RoomSettings fromSystemProperties() {
+        return new RoomSettings(
+                Integer.getInteger("multisnake.room.maxPlayers", 8),
+                Integer.getInteger("multisnake.room.workerThreads", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("multisnake.room.countdown", 0),
+                Integer.getInteger("multisnake.room.viewRadius", 0),
+                Integer.getInteger("multisnake.room.viewMargin", 4),
+                Integer.getInteger("multisnake.room.bots", 0),
+                Integer.getInteger("multisnake.room.botBudget", 16384),
+                Integer.getInteger("multisnake.room.spectatorInterval", 2)
+        );
+    }
+}
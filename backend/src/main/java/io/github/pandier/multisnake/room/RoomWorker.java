@@ -0,0 +1,138 @@
+package io.github.pandier.multisnake.room;
+
+import io.github.pandier.multisnake.game.GameLoop;
+import io.github.pandier.multisnake.game.GameSettings;
+import io.github.pandier.multisnake.scheduler.Timeout;
+import io.github.pandier.multisnake.scheduler.TimingWheel;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ticks a set of rooms on a single {@link GameLoop} thread.
+ * <p>
+ * Every room is pinned to one worker for its whole life, so the state of a room
+ * is only ever accessed by the thread of its worker and rooms never share locks.
+ * <p>
+ * Delayed events of the rooms are scheduled in a {@link TimingWheel} measured in ticks,
+ * which is advanced by the worker before its rooms are ticked.
+ */
+public class RoomWorker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoomWorker.class);
+
+    private static final int TIMER_WHEEL_SIZE = 256;
+
+    private final GameLoop gameLoop;
+    private final RoomMetrics metrics;
+
+    private final List<Room> rooms = new ArrayList<>();
+    private final TimingWheel timers = new TimingWheel(1, TIMER_WHEEL_SIZE, 0);
+    private long ticks = 0;
+
+    /**
+     * Constructs a room worker.
+     *
+     * @param settings the game settings containing the tick rate
+     * @param metrics  the metrics of the rooms
+     */
+    public RoomWorker(@NotNull GameSettings settings, @NotNull RoomMetrics metrics) {
+        this.gameLoop = new GameLoop(settings, this::tick);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Starts the worker thread with the given name.
+     *
+     * @param name the thread name
+     */
+    public void start(@NotNull String name) {
+        gameLoop.start(name);
+    }
+
+    /**
+     * Stops the worker thread after the current tick.
+     */
+    public void stop() {
+        gameLoop.stop();
+    }
+
+    /**
+     * Executes a task on the worker thread before the next tick.
+     *
+     * @param task the task
+     * @see GameLoop#execute(Runnable)
+     */
+    public void execute(@NotNull Runnable task) {
+        gameLoop.execute(task);
+    }
+
+    /**
+     * Schedules a task to be executed on the worker thread after the given amount of ticks.
+     * This method must be called on the worker thread.
+     *
+     * @param ticks the delay in ticks
+     * @param task  the task
+     * @return the timeout, which can be used to cancel the task
+     */
+    public @NotNull Timeout schedule(long ticks, @NotNull Runnable task) {
+        return timers.schedule(ticks, task);
+    }
+
+    /**
+     * Starts ticking the given room.
+     * This method must be called on the worker thread.
+     *
+     * @param room the room
+     */
+    void add(@NotNull Room room) {
+        rooms.add(room);
+    }
+
+    /**
+     * Stops ticking the given room.
+     * This method must be called on the worker thread.
+     *
+     * @param room the room
+     */
+    void remove(@NotNull Room room) {
+        rooms.remove(room);
+    }
+
+    private void tick() {
+        timers.advance(++ticks);
+
+        for (int i = 0; i < rooms.size(); i++) {
+            Room room = rooms.get(i);
+            long start = System.nanoTime();
+            try {
+                room.tick();
+            } catch (Exception e) {
+                // A failing room must not stop the other rooms of this worker
+                LOGGER.error("Failed to tick room {}", room.getId(), e);
+            }
+            if (room.isRunning())
+                metrics.getTickDuration().record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the metrics of the rooms of this worker.
+     *
+     * @return the room metrics
+     */
+    public @NotNull RoomMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the game loop running this worker.
+     *
+     * @return the game loop
+     */
+    public @NotNull GameLoop getGameLoop() {
+        return gameLoop;
+    }
+}
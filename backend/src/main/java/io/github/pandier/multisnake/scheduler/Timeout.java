@@ -0,0 +1,46 @@
+package io.github.pandier.multisnake.scheduler;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A handle of a task scheduled in a {@link TimingWheel}.
+ */
+public final class Timeout {
+    final TimingWheel wheel;
+    final Runnable task;
+    final long deadline;
+
+    Timeout prev;
+    Timeout next;
+    boolean linked;
+
+    private volatile boolean cancelled = false;
+
+    Timeout(@NotNull TimingWheel wheel, @NotNull Runnable task, long deadline) {
+        this.wheel = wheel;
+        this.task = task;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Cancels the task, so it is never executed.
+     * <p>
+     * On the thread of the wheel, the timeout is unlinked from its bucket immediately.
+     * This method can also be called from other threads, in which case the timeout
+     * is only marked and dropped once the wheel reaches its bucket.
+     * Cancelling an expired or already cancelled timeout has no effect.
+     */
+    public void cancel() {
+        cancelled = true;
+        wheel.cancel(this);
+    }
+
+    /**
+     * Returns true if this timeout was cancelled.
+     *
+     * @return true if cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,175 @@
+package io.github.pandier.multisnake.scheduler;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A hashed timing wheel executing delayed tasks.
+ * <p>
+ * Time is divided into ticks of a fixed duration and every tick maps to one bucket
+ * of the wheel, which is a doubly-linked list of {@link Timeout timeouts}.
+ * Scheduling and cancelling a task therefore takes constant time,
+ * no matter how many tasks are pending, and no thread is needed per task.
+ * Tasks are executed at the granularity of a tick.
+ * <p>
+ * The wheel does not run on its own thread, instead its owner advances it
+ * using {@link #advance(long)}, for example after every selector wakeup or game tick.
+ * The wheel is not thread-safe, tasks must only be scheduled on the thread that advances it,
+ * with the exception of {@link Timeout#cancel()}, which can be called from any thread.
+ */
+public class TimingWheel {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimingWheel.class);
+
+    private final long tickDuration;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final long start;
+
+    private final List<Timeout> expired = new ArrayList<>();
+
+    private long tick = 0;
+    private int size = 0;
+    private volatile Thread thread;
+
+    /**
+     * Constructs a timing wheel.
+     *
+     * @param tickDuration the duration of a single tick in the time units passed to {@link #advance(long)}
+     * @param wheelSize    the amount of buckets, rounded up to a power of two
+     * @param start        the current time
+     */
+    public TimingWheel(long tickDuration, int wheelSize, long start) {
+        if (tickDuration < 1)
+            throw new IllegalArgumentException("Tick duration must be positive");
+        if (wheelSize < 1 || wheelSize > 1 << 30)
+            throw new IllegalArgumentException("Invalid wheel size " + wheelSize);
+
+        int capacity = 1;
+        while (capacity < wheelSize)
+            capacity <<= 1;
+
+        this.tickDuration = tickDuration;
+        this.buckets = new Timeout[capacity];
+        this.mask = buckets.length - 1;
+        this.start = start;
+    }
+
+    /**
+     * Schedules a task to be executed after the given delay.
+     * This method must be called on the thread that advances this wheel.
+     * <p>
+     * The delay is rounded up to whole ticks and measured from the tick
+     * the wheel was last advanced to.
+     *
+     * @param delay the delay in the time units of this wheel
+     * @param task  the task
+     * @return the timeout, which can be used to cancel the task
+     */
+    public @NotNull Timeout schedule(long delay, @NotNull Runnable task) {
+        requireNonNull(task, "Task cannot be null");
+
+        long ticks = Math.max(1, (Math.max(0, delay) + tickDuration - 1) / tickDuration);
+        Timeout timeout = new Timeout(this, task, tick + ticks);
+
+        int index = (int) (timeout.deadline & mask);
+        Timeout head = buckets[index];
+        timeout.next = head;
+        if (head != null)
+            head.prev = timeout;
+        buckets[index] = timeout;
+        timeout.linked = true;
+        size++;
+        return timeout;
+    }
+
+    void cancel(@NotNull Timeout timeout) {
+        // Other threads only mark the timeout, it is dropped when its bucket is reached
+        if (Thread.currentThread() == thread && timeout.linked)
+            unlink(timeout);
+    }
+
+    private void unlink(@NotNull Timeout timeout) {
+        if (timeout.prev != null)
+            timeout.prev.next = timeout.next;
+        else
+            buckets[(int) (timeout.deadline & mask)] = timeout.next;
+        if (timeout.next != null)
+            timeout.next.prev = timeout.prev;
+
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.linked = false;
+        size--;
+    }
+
+    /**
+     * Advances the wheel to the given time and executes every task whose deadline has passed.
+     * <p>
+     * If the wheel fell behind by more than a full rotation, every bucket is visited only once.
+     *
+     * @param now the current time
+     */
+    public void advance(long now) {
+        thread = Thread.currentThread();
+
+        long target = (now - start) / tickDuration;
+        long steps = Math.min(target - tick, buckets.length);
+        for (long i = 1; i <= steps; i++)
+            collectExpired((int) ((tick + i) & mask), target);
+        if (target > tick)
+            tick = target;
+
+        for (int i = 0; i < expired.size(); i++) {
+            Timeout timeout = expired.get(i);
+            if (timeout.isCancelled())
+                continue;
+            try {
+                timeout.task.run();
+            } catch (Exception e) {
+                LOGGER.error("Failed to execute a scheduled task", e);
+            }
+        }
+        expired.clear();
+    }
+
+    private void collectExpired(int index, long target) {
+        Timeout timeout = buckets[index];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.deadline <= target || timeout.isCancelled()) {
+                unlink(timeout);
+                expired.add(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * Returns the time remaining until the next tick of this wheel,
+     * which can be used as a timeout of a blocking wait.
+     *
+     * @param now the current time
+     * @return the time until the next tick, -1 if no task is scheduled
+     */
+    public long timeUntilNextTick(long now) {
+        if (size == 0)
+            return -1;
+        return Math.max(0, start + (tick + 1) * tickDuration - now);
+    }
+
+    /**
+     * Returns the amount of scheduled tasks, including cancelled tasks
+     * that were not dropped from the wheel yet.
+     *
+     * @return the amount of scheduled tasks
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,217 @@
+package io.github.pandier.multisnake.simulation;
+
+import io.github.pandier.multisnake.game.Board;
+import io.github.pandier.multisnake.game.Cell;
+import io.github.pandier.multisnake.game.Direction;
+import io.github.pandier.multisnake.game.Game;
+import io.github.pandier.multisnake.game.Snake;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A controller that searches for food and avoids running into small spaces, used by server-side bots.
+ * <p>
+ * Every tick, a breadth-first search over the free cells of the {@link Board} looks for the nearest food.
+ * Then every possible move is checked with a flood fill of the space behind it and next to heads of other snakes.
+ * The bot moves towards the food if that move is safe, otherwise it moves into the largest space.
+ * <p>
+ * Both searches stop after a fixed amount of visited cells, the budget, so the cost of a bot per tick
+ * does not depend on the size of the arena. Half of the budget is spent on the search for food
+ * and the other half is split between the possible moves.
+ * The controller keeps no state of its snake, so a single controller can drive many bots
+ * and a room can adjust the budget of its bots every tick.
+ * The scratch arrays of the searches are shared by all bots of a thread and marked with a generation
+ * instead of being cleared, so deciding does not allocate.
+ */
+public class BotController implements SnakeController {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * The smallest allowed budget.
+     */
+    public static final int MIN_BUDGET = 16;
+
+    private int budget;
+
+    /**
+     * Constructs a bot controller.
+     *
+     * @param budget the maximum amount of cells visited per decision
+     */
+    public BotController(int budget) {
+        setBudget(budget);
+    }
+
+    @Override
+    public @Nullable Direction control(@NotNull Game game, @NotNull Snake snake) {
+        Board board = game.getBoard();
+        Scratch scratch = SCRATCH.get();
+        scratch.ensureCapacity(board.getWidth() * board.getHeight());
+
+        Direction food = findFood(board, snake, scratch, budget / 2);
+
+        int spaceBudget = budget / 2 / (DIRECTIONS.length - 1);
+        int required = Math.min(snake.getLength(), spaceBudget);
+        Direction best = null;
+        int bestScore = -1;
+        for (Direction direction : DIRECTIONS) {
+            if (direction == snake.getDirection().opposite())
+                continue;
+            int next = Cell.offset(snake.getHead(), direction);
+            if (!isFree(board.get(next)))
+                continue;
+
+            int space = measureSpace(board, next, scratch, spaceBudget);
+            boolean contested = isNextToHead(game, board, snake, next);
+            boolean safe = space >= required && !contested;
+            if (safe && direction == food)
+                return direction;
+
+            // Safe moves first, then larger spaces
+            int score = (safe ? spaceBudget + 1 : 0) + space - (contested ? 1 : 0);
+            if (score > bestScore) {
+                bestScore = score;
+                best = direction;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Searches the nearest food reachable through free cells.
+     *
+     * @return the first move towards the food, null if no food was found within the budget
+     */
+    private @Nullable Direction findFood(@NotNull Board board, @NotNull Snake snake, @NotNull Scratch scratch, int limit) {
+        int width = board.getWidth();
+        int generation = scratch.nextGeneration();
+        int head = 0, tail = 0;
+
+        for (Direction direction : DIRECTIONS) {
+            if (direction == snake.getDirection().opposite())
+                continue;
+            int next = Cell.offset(snake.getHead(), direction);
+            short value = board.get(next);
+            if (value == Board.FOOD)
+                return direction;
+            if (value == Board.EMPTY) {
+                int index = Cell.y(next) * width + Cell.x(next);
+                scratch.marks[index] = generation;
+                scratch.firstMoves[index] = (byte) direction.ordinal();
+                scratch.queue[tail++] = next;
+            }
+        }
+
+        while (head < tail && tail < limit) {
+            int cell = scratch.queue[head++];
+            byte firstMove = scratch.firstMoves[Cell.y(cell) * width + Cell.x(cell)];
+            for (Direction direction : DIRECTIONS) {
+                int next = Cell.offset(cell, direction);
+                short value = board.get(next);
+                if (value == Board.FOOD)
+                    return DIRECTIONS[firstMove];
+                if (value != Board.EMPTY)
+                    continue;
+
+                int index = Cell.y(next) * width + Cell.x(next);
+                if (scratch.marks[index] == generation)
+                    continue;
+                scratch.marks[index] = generation;
+                scratch.firstMoves[index] = firstMove;
+                scratch.queue[tail++] = next;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts the free cells reachable from a cell, up to the limit.
+     */
+    private static int measureSpace(@NotNull Board board, int start, @NotNull Scratch scratch, int limit) {
+        int width = board.getWidth();
+        int generation = scratch.nextGeneration();
+        int head = 0, tail = 0;
+
+        scratch.marks[Cell.y(start) * width + Cell.x(start)] = generation;
+        scratch.queue[tail++] = start;
+        while (head < tail && tail < limit) {
+            int cell = scratch.queue[head++];
+            for (Direction direction : DIRECTIONS) {
+                int next = Cell.offset(cell, direction);
+                if (!isFree(board.get(next)))
+                    continue;
+
+                int index = Cell.y(next) * width + Cell.x(next);
+                if (scratch.marks[index] == generation)
+                    continue;
+                scratch.marks[index] = generation;
+                scratch.queue[tail++] = next;
+            }
+        }
+        return Math.min(tail, limit);
+    }
+
+    /**
+     * Returns true if the head of another living snake can move into the cell in the same tick.
+     */
+    private static boolean isNextToHead(@NotNull Game game, @NotNull Board board, @NotNull Snake snake, int cell) {
+        for (Direction direction : DIRECTIONS) {
+            int neighbour = Cell.offset(cell, direction);
+            short value = board.get(neighbour);
+            if (value > 0 && value != Board.owner(snake.getId()) && game.getSnake(value - 1).getHead() == neighbour)
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isFree(short value) {
+        return value == Board.EMPTY || value == Board.FOOD;
+    }
+
+    /**
+     * Changes the maximum amount of cells visited per decision.
+     *
+     * @param budget the budget, at least {@link #MIN_BUDGET}
+     */
+    public void setBudget(int budget) {
+        if (budget < MIN_BUDGET)
+            throw new IllegalArgumentException("Budget must be at least " + MIN_BUDGET + " cells");
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the maximum amount of cells visited per decision.
+     *
+     * @return the budget
+     */
+    public int getBudget() {
+        return budget;
+    }
+
+    private static class Scratch {
+        private int[] marks = new int[0];
+        private byte[] firstMoves = new byte[0];
+        private int[] queue = new int[0];
+        private int generation = 0;
+
+        private void ensureCapacity(int cells) {
+            if (marks.length < cells) {
+                marks = new int[cells];
+                firstMoves = new byte[cells];
+                queue = new int[cells];
+                generation = 0;
+            }
+        }
+
+        private int nextGeneration() {
+            if (++generation == 0) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+            return generation;
+        }
+    }
+}
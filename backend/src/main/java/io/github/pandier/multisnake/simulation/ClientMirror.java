@@ -0,0 +1,194 @@
+package io.github.pandier.multisnake.simulation;
+
+import io.github.pandier.multisnake.game.DeltaHistory;
+import io.github.pandier.multisnake.game.Game;
+import io.github.pandier.multisnake.game.Snake;
+import io.github.pandier.multisnake.game.WorldDelta;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * A client of a checked {@link Simulation}, which rebuilds the game from keyframes and world updates
+ * the same way as clients of a room, so the state a client ends up with can be compared to the game.
+ * <p>
+ * The client is sent a keyframe or an update after every tick, decided the same way as a room decides it.
+ * A player client loses some of its updates and acknowledges its state late or not at all,
+ * like a player receiving datagrams. A spectator client receives every update,
+ * but only once every few ticks, and never acknowledges anything.
+ */
+final class ClientMirror {
+    private static final int LOSS_CHANCE = 5;
+    private static final int ACK_LOSS_CHANCE = 4;
+    private static final int MAX_ACK_DELAY = 3;
+    private static final int SPECTATOR_INTERVAL = 3;
+
+    private final boolean spectator;
+    private final boolean[] alive;
+    private final List<ArrayDeque<Integer>> bodies;
+    private final List<Integer> food = new ArrayList<>();
+    private long tick = -1;
+
+    private final List<long[]> pendingAcks = new ArrayList<>();
+    private long acknowledgedTick = -1;
+    private long keyframeTick = -1;
+    private long sentTick = -1;
+
+    /**
+     * Constructs a client that has not received anything yet.
+     *
+     * @param snakes    the amount of snakes of the game
+     * @param spectator true if the client is a spectator
+     */
+    ClientMirror(int snakes, boolean spectator) {
+        this.spectator = spectator;
+        this.alive = new boolean[snakes];
+        this.bodies = new ArrayList<>(snakes);
+        for (int i = 0; i < snakes; i++)
+            bodies.add(new ArrayDeque<>());
+    }
+
+    /**
+     * Sends the client the changes of the last tick and lets it acknowledge its state.
+     *
+     * @param game   the game
+     * @param random the random generator deciding the losses and delays
+     * @throws IllegalStateException if the client cannot apply what it was sent
+     */
+    void update(@NotNull Game game, @NotNull SplittableRandom random) {
+        if (spectator) {
+            updateSpectator(game);
+            return;
+        }
+
+        long now = game.getTick();
+        pendingAcks.removeIf(ack -> {
+            if (ack[1] > now)
+                return false;
+            acknowledgedTick = Math.max(acknowledgedTick, ack[0]);
+            return true;
+        });
+
+        long baseTick = Math.max(acknowledgedTick, keyframeTick);
+        if (now % game.getSettings().keyframeInterval() == 0 || game.needsKeyframe(baseTick, Math.max(baseTick, sentTick))) {
+            applyKeyframe(game);
+            keyframeTick = now;
+        } else if (random.nextInt(LOSS_CHANCE) != 0) {
+            applyUpdate(game, baseTick);
+        }
+        sentTick = now;
+
+        if (random.nextInt(ACK_LOSS_CHANCE) != 0)
+            pendingAcks.add(new long[]{tick, now + random.nextInt(MAX_ACK_DELAY + 1)});
+    }
+
+    private void updateSpectator(@NotNull Game game) {
+        long now = game.getTick();
+        if (now % SPECTATOR_INTERVAL != 0)
+            return;
+
+        if (sentTick < 0 || game.needsKeyframe(sentTick, sentTick))
+            applyKeyframe(game);
+        else
+            applyUpdate(game, sentTick);
+        sentTick = now;
+    }
+
+    private void applyKeyframe(@NotNull Game game) {
+        for (Snake snake : game.getSnakes()) {
+            ArrayDeque<Integer> body = bodies.get(snake.getId());
+            body.clear();
+            alive[snake.getId()] = snake.isAlive();
+            if (!snake.isAlive())
+                continue;
+            for (int i = 0; i < snake.getLength(); i++)
+                body.addLast(snake.getSegment(i));
+        }
+
+        food.clear();
+        for (int i = 0; i < game.getFoodCount(); i++)
+            food.add(game.getFoodCell(i));
+        tick = game.getTick();
+    }
+
+    /**
+     * Applies the deltas of every tick after the base tick, skipping the ticks the client already has.
+     */
+    private void applyUpdate(@NotNull Game game, long baseTick) {
+        if (baseTick > tick)
+            throw new IllegalStateException("Update based on tick " + baseTick + " was sent to a client at tick " + tick);
+
+        DeltaHistory history = game.getHistory();
+        for (long t = baseTick + 1; t <= history.getLatestTick(); t++) {
+            WorldDelta delta = history.get(t);
+            if (delta == null)
+                throw new IllegalStateException("Update based on tick " + baseTick + " is missing tick " + t);
+            if (t > tick)
+                applyDelta(delta);
+        }
+        tick = history.getLatestTick();
+    }
+
+    private void applyDelta(@NotNull WorldDelta delta) {
+        for (int i = 0; i < delta.getSnakes(); i++) {
+            byte flags = delta.getFlags(i);
+            ArrayDeque<Integer> body = bodies.get(i);
+            if ((flags & WorldDelta.TAIL_REMOVED) != 0)
+                body.pollLast();
+            if ((flags & WorldDelta.MOVED) != 0)
+                body.addFirst(delta.getHead(i));
+            if ((flags & WorldDelta.DIED) != 0) {
+                alive[i] = false;
+                body.clear();
+            }
+        }
+
+        for (int i = 0; i < delta.getFoodDespawnCount(); i++)
+            food.remove((Integer) delta.getFoodDespawn(i));
+        for (int i = 0; i < delta.getFoodSpawnCount(); i++)
+            food.add(delta.getFoodSpawn(i));
+    }
+
+    /**
+     * Checks that the client shows every snake and every food the same way as the game.
+     * A client that has not caught up with the latest tick is not checked.
+     *
+     * @param game the game
+     * @throws IllegalStateException if the client differs from the game
+     */
+    void check(@NotNull Game game) {
+        if (tick != game.getTick())
+            return;
+
+        String client = spectator ? "Spectator" : "Player";
+        for (Snake snake : game.getSnakes()) {
+            int id = snake.getId();
+            if (alive[id] != snake.isAlive())
+                throw new IllegalStateException(client + " shows snake " + id + (alive[id] ? " alive" : " dead") + " at tick " + tick);
+            if (!snake.isAlive())
+                continue;
+
+            ArrayDeque<Integer> body = bodies.get(id);
+            boolean matches = body.size() == snake.getLength();
+            int i = 0;
+            for (int cell : body) {
+                if (!matches)
+                    break;
+                matches = cell == snake.getSegment(i++);
+            }
+            if (!matches)
+                throw new IllegalStateException(client + " shows a different body of snake " + id + " at tick " + tick);
+        }
+
+        int[] expected = game.getFood();
+        int[] actual = food.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(expected);
+        Arrays.sort(actual);
+        if (!Arrays.equals(expected, actual))
+            throw new IllegalStateException(client + " shows different food at tick " + tick);
+    }
+}
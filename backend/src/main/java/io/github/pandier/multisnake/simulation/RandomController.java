@@ -0,0 +1,57 @@
+package io.github.pandier.multisnake.simulation;
+
+import io.github.pandier.multisnake.game.Board;
+import io.github.pandier.multisnake.game.Cell;
+import io.github.pandier.multisnake.game.Direction;
+import io.github.pandier.multisnake.game.Game;
+import io.github.pandier.multisnake.game.Snake;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.SplittableRandom;
+
+/**
+ * A controller that wanders randomly, which is cheap enough to fuzz the game rules with many snakes.
+ * <p>
+ * It occasionally turns in a random direction and otherwise keeps going,
+ * unless the next cell is occupied, in which case it turns to a free cell if there is one.
+ */
+public class RandomController implements SnakeController {
+    private static final int TURN_CHANCE = 8;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final SplittableRandom random;
+
+    /**
+     * Constructs a random controller.
+     *
+     * @param seed the seed of the random decisions
+     */
+    public RandomController(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public @Nullable Direction control(@NotNull Game game, @NotNull Snake snake) {
+        Direction current = snake.getDirection();
+        Direction direction = random.nextInt(TURN_CHANCE) == 0 ? DIRECTIONS[random.nextInt(DIRECTIONS.length)] : current;
+        if (direction == current.opposite())
+            direction = current;
+        if (isFree(game, snake, direction))
+            return direction;
+
+        // Try the other directions starting at a random one
+        int offset = random.nextInt(DIRECTIONS.length);
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            Direction candidate = DIRECTIONS[(offset + i) % DIRECTIONS.length];
+            if (candidate != current.opposite() && isFree(game, snake, candidate))
+                return candidate;
+        }
+        return direction;
+    }
+
+    private static boolean isFree(@NotNull Game game, @NotNull Snake snake, @NotNull Direction direction) {
+        short value = game.getBoard().get(Cell.offset(snake.getHead(), direction));
+        return value == Board.EMPTY || value == Board.FOOD;
+    }
+}
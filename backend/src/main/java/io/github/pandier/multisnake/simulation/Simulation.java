@@ -0,0 +1,207 @@
+package io.github.pandier.multisnake.simulation;
+
+import io.github.pandier.multisnake.game.Board;
+import io.github.pandier.multisnake.game.Cell;
+import io.github.pandier.multisnake.game.Direction;
+import io.github.pandier.multisnake.game.Game;
+import io.github.pandier.multisnake.game.GameSettings;
+import io.github.pandier.multisnake.game.Snake;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.SplittableRandom;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A single headless match, whose snakes are driven by {@link SnakeController controllers}
+ * and whose ticks are simulated as fast as possible, without a room or any connections.
+ * <p>
+ * The inputs of the controllers are queued the same way as inputs of players,
+ * stamped with the current tick. The match can optionally check the invariants of the board
+ * after every tick, so rule changes can be fuzzed with many random matches.
+ * <p>
+ * A checked match also exercises what a room does with its game. Some inputs are stamped
+ * with an earlier tick, so the game is rewound, a snake may forfeit in the middle of the match,
+ * and a player and a spectator {@link ClientMirror client} are sent the changes of every tick
+ * and compared to the game. A checked match therefore plays differently than the same seed unchecked.
+ */
+public class Simulation {
+    private static final int LATE_INPUT_CHANCE = 8;
+    private static final int FORFEIT_CHANCE = 2;
+    private static final int MAX_FORFEIT_TICK = 64;
+
+    private final Game game;
+    private final long seed;
+    private final SnakeController[] controllers;
+    private final boolean checkInvariants;
+
+    private final SplittableRandom random;
+    private final ClientMirror[] clients;
+    private final long forfeitTick;
+
+    /**
+     * Constructs a match.
+     *
+     * @param settings        the game settings
+     * @param snakes          the amount of snakes
+     * @param seed            the seed of the game and the controllers
+     * @param factory         the factory of the controllers of the snakes
+     * @param checkInvariants true if the board and the clients are checked after every tick
+     */
+    public Simulation(@NotNull GameSettings settings, int snakes, long seed, @NotNull SnakeController.Factory factory, boolean checkInvariants) {
+        requireNonNull(settings, "Game settings cannot be null");
+        requireNonNull(factory, "Controller factory cannot be null");
+
+        this.game = new Game(settings, snakes, seed);
+        this.seed = seed;
+        this.controllers = new SnakeController[snakes];
+        this.checkInvariants = checkInvariants;
+        for (int i = 0; i < snakes; i++)
+            controllers[i] = factory.create(game, i, mix(seed + i + 1));
+
+        this.random = new SplittableRandom(mix(seed));
+        if (checkInvariants) {
+            this.clients = new ClientMirror[]{new ClientMirror(snakes, false), new ClientMirror(snakes, true)};
+            this.forfeitTick = random.nextInt(FORFEIT_CHANCE) == 0 ? 1 + random.nextInt(MAX_FORFEIT_TICK) : -1;
+        } else {
+            this.clients = new ClientMirror[0];
+            this.forfeitTick = -1;
+        }
+    }
+
+    /**
+     * Simulates the match until at most one snake remains alive or the tick limit is reached.
+     * A broken invariant ends the match and is reported in the result.
+     *
+     * @param maxTicks the maximum amount of ticks
+     * @return the result of the match
+     */
+    public @NotNull Result run(int maxTicks) {
+        long start = System.nanoTime();
+        String failure = null;
+        try {
+            while (game.getAliveSnakes() > 1 && game.getTick() < maxTicks) {
+                for (int i = 0; i < controllers.length; i++) {
+                    Snake snake = game.getSnake(i);
+                    if (!snake.isAlive())
+                        continue;
+                    Direction direction = controllers[i].control(game, snake);
+                    if (direction != null)
+                        game.queueInput(i, getInputTick(), direction);
+                }
+
+                if (game.getTick() == forfeitTick)
+                    game.forfeit(random.nextInt(controllers.length));
+
+                game.rewind();
+                game.tick();
+                if (checkInvariants) {
+                    checkInvariants();
+                    for (ClientMirror client : clients) {
+                        client.update(game, random);
+                        client.check(game);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            failure = e.toString();
+        }
+        long nanos = System.nanoTime() - start;
+
+        int winner = -1;
+        if (game.getAliveSnakes() == 1) {
+            for (Snake snake : game.getSnakes()) {
+                if (snake.isAlive())
+                    winner = snake.getId();
+            }
+        }
+        return new Result(seed, game.getTick(), winner, nanos, failure);
+    }
+
+    /**
+     * Returns the tick an input is stamped with, which is an earlier tick for some inputs
+     * of a checked match, as if the input arrived late.
+     */
+    private long getInputTick() {
+        int maxRewind = game.getSettings().maxRewindTicks();
+        if (!checkInvariants || maxRewind == 0 || random.nextInt(LATE_INPUT_CHANCE) != 0)
+            return game.getTick();
+        return game.getTick() - 1 - random.nextInt(maxRewind);
+    }
+
+    /**
+     * Checks that every living snake and every food occupies its cells on the board
+     * and that no other cell of the arena is occupied.
+     *
+     * @throws IllegalStateException if an invariant is broken
+     */
+    private void checkInvariants() {
+        Board board = game.getBoard();
+        int occupied = game.getFoodCount();
+        for (Snake snake : game.getSnakes()) {
+            if (!snake.isAlive())
+                continue;
+            occupied += snake.getLength();
+            for (int i = 0; i < snake.getLength(); i++) {
+                int cell = snake.getSegment(i);
+                if (!game.isInside(cell) || board.get(cell) != Board.owner(snake.getId()))
+                    throw new IllegalStateException("Segment " + i + " of snake " + snake.getId() + " is not on the board at tick " + game.getTick());
+            }
+        }
+        for (int i = 0; i < game.getFoodCount(); i++) {
+            if (board.get(game.getFoodCell(i)) != Board.FOOD)
+                throw new IllegalStateException("Food " + i + " is not on the board at tick " + game.getTick());
+        }
+
+        int cells = 0;
+        for (int y = 0; y < board.getHeight(); y++) {
+            for (int x = 0; x < board.getWidth(); x++) {
+                if (board.get(Cell.pack(x, y)) != Board.EMPTY)
+                    cells++;
+            }
+        }
+        if (cells != occupied)
+            throw new IllegalStateException(cells + " cells are occupied instead of " + occupied + " at tick " + game.getTick());
+    }
+
+    /**
+     * Scrambles a seed, so consecutive seeds produce unrelated matches.
+     *
+     * @param seed the seed
+     * @return the scrambled seed
+     */
+    static long mix(long seed) {
+        long z = seed * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns the simulated game.
+     *
+     * @return the game
+     */
+    public @NotNull Game getGame() {
+        return game;
+    }
+
+    /**
+     * The result of a match.
+     *
+     * @param seed    the seed of the match, which reproduces it
+     * @param ticks   the amount of simulated ticks
+     * @param winner  the identifier of the last living snake, -1 if there is none
+     * @param nanos   the time spent simulating in nanoseconds
+     * @param failure the broken invariant or thrown exception, null if the match was valid
+     */
+    public record Result(
+            long seed,
+            long ticks,
+            int winner,
+            long nanos,
+            @Nullable String failure
+    ) {
+    }
+}
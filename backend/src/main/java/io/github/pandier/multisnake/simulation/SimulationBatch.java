@@ -0,0 +1,122 @@
+package io.github.pandier.multisnake.simulation;
+
+import io.github.pandier.multisnake.game.GameSettings;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Simulates many headless matches in parallel.
+ * <p>
+ * The matches are split in halves recursively on a {@link ForkJoinPool}, so every worker
+ * simulates whole matches and idle workers steal the remaining ones. Matches share no state,
+ * the seed of every match is derived from its index, so any match can be reproduced on its own.
+ */
+public class SimulationBatch {
+    private final GameSettings gameSettings;
+    private final SimulationSettings settings;
+    private final SnakeController.Factory factory;
+
+    /**
+     * Constructs a batch of matches.
+     *
+     * @param gameSettings the game settings of every match
+     * @param settings     the simulation settings
+     * @param factory      the factory of the controllers of the snakes
+     * @throws IllegalArgumentException if the arena cannot fit the snakes of a match
+     */
+    public SimulationBatch(@NotNull GameSettings gameSettings, @NotNull SimulationSettings settings, @NotNull SnakeController.Factory factory) throws IllegalArgumentException {
+        this.gameSettings = requireNonNull(gameSettings, "Game settings cannot be null");
+        this.settings = requireNonNull(settings, "Simulation settings cannot be null");
+        this.factory = requireNonNull(factory, "Controller factory cannot be null");
+        if (settings.snakes() > gameSettings.maxSnakes())
+            throw new IllegalArgumentException("The arena fits at most " + gameSettings.maxSnakes() + " snakes");
+    }
+
+    /**
+     * Simulates every match and waits for them to finish.
+     *
+     * @return the summary of the matches
+     */
+    public @NotNull Summary run() {
+        ForkJoinPool pool = new ForkJoinPool(settings.parallelism());
+        try {
+            long start = System.nanoTime();
+            Summary summary = pool.invoke(new MatchTask(0, settings.matches()));
+            return new Summary(summary.matches(), summary.ticks(), summary.nanos(), System.nanoTime() - start, summary.draws(), summary.failures());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the seed of a match of this batch.
+     *
+     * @param index the index of the match
+     * @return the seed
+     */
+    public long getSeed(int index) {
+        return Simulation.mix(settings.seed() + index);
+    }
+
+    private class MatchTask extends RecursiveTask<Summary> {
+        private final int from;
+        private final int to;
+
+        private MatchTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Summary compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                MatchTask left = new MatchTask(from, middle);
+                left.fork();
+                Summary right = new MatchTask(middle, to).compute();
+                return left.join().merge(right);
+            }
+
+            Simulation simulation = new Simulation(gameSettings, settings.snakes(), getSeed(from), factory, settings.checkInvariants());
+            Simulation.Result result = simulation.run(settings.maxTicks());
+            return new Summary(1, result.ticks(), result.nanos(), 0, result.winner() < 0 ? 1 : 0,
+                    result.failure() != null ? List.of(result) : List.of());
+        }
+    }
+
+    /**
+     * The summary of a batch of matches.
+     *
+     * @param matches   the amount of matches
+     * @param ticks     the amount of ticks simulated in all matches
+     * @param nanos     the time spent simulating by all workers together in nanoseconds
+     * @param wallNanos the time the whole batch took in nanoseconds
+     * @param draws     the amount of matches without a winner
+     * @param failures  the results of the matches that broke an invariant
+     */
+    public record Summary(
+            int matches,
+            long ticks,
+            long nanos,
+            long wallNanos,
+            int draws,
+            @NotNull List<Simulation.Result> failures
+    ) {
+
+        private @NotNull Summary merge(@NotNull Summary other) {
+            List<Simulation.Result> failures = this.failures;
+            if (!other.failures.isEmpty()) {
+                failures = new ArrayList<>(this.failures);
+                failures.addAll(other.failures);
+            }
+            return new Summary(matches + other.matches, ticks + other.ticks, nanos + other.nanos,
+                    Math.max(wallNanos, other.wallNanos), draws + other.draws, failures);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.pandier.multisnake.simulation;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Settings of a batch of headless matches.
+ *
+ * @param matches         the amount of matches
+ * @param snakes          the amount of snakes in every match
+ * @param maxTicks        the maximum amount of ticks of a match
+ * @param seed            the seed the seeds of the matches are derived from
+ * @param parallelism     the amount of matches simulated at once
+ * @param checkInvariants true if the board and mirrored clients are checked after every tick,
+ *                        which also rewinds and forfeits in the matches, see {@link Simulation}
+ * @param controller      the controller driving the snakes
+ * @param botBudget       the amount of cells a {@link BotController bot controller} visits per decision
+ */
+public record SimulationSettings(
+        int matches,
+        int snakes,
+        int maxTicks,
+        long seed,
+        int parallelism,
+        boolean checkInvariants,
+        @NotNull Controller controller,
+        int botBudget
+) {
+
+    public SimulationSettings {
+        if (matches < 1)
+            throw new IllegalArgumentException("There must be at least one match");
+        if (snakes < 2)
+            throw new IllegalArgumentException("There must be at least two snakes");
+        if (maxTicks < 1)
+            throw new IllegalArgumentException("Max ticks must be at least one");
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least one");
+        requireNonNull(controller, "Controller cannot be null");
+        if (botBudget < BotController.MIN_BUDGET)
+            throw new IllegalArgumentException("Bot budget must be at least " + BotController.MIN_BUDGET + " cells");
+    }
+
+    /**
+     * Creates simulation settings using values of system properties.
+     * If a property is not defined, its default value is used.
+     * <ul>
+     *     <li>{@code multisnake.simulation.matches} (default 64)</li>
+     *     <li>{@code multisnake.simulation.snakes} (default 8)</li>
+     *     <li>{@code multisnake.simulation.maxTicks} (default 10000)</li>
+     *     <li>{@code multisnake.simulation.seed} (default based on the current time)</li>
+     *     <li>{@code multisnake.simulation.parallelism} (default the amount of processors)</li>
+     *     <li>{@code multisnake.simulation.checkInvariants} (default true)</li>
+     *     <li>{@code multisnake.simulation.controller} (default random)</li>
+     *     <li>{@code multisnake.simulation.botBudget} (default 256)</li>
+     * </ul>
+     *
+     * @return the simulation settings
+     */
+    public static @NotNull SimulationSettings fromSystemProperties() {
+        return new SimulationSettings(
+                Integer.getInteger("multisnake.simulation.matches", 64),
+                Integer.getInteger("multisnake.simulation.snakes", 8),
+                Integer.getInteger("multisnake.simulation.maxTicks", 10000),
+                Long.getLong("multisnake.simulation.seed", System.currentTimeMillis()),
+                Integer.getInteger("multisnake.simulation.parallelism", Runtime.getRuntime().availableProcessors()),
+                Boolean.parseBoolean(System.getProperty("multisnake.simulation.checkInvariants", "true")),
+                Controller.valueOf(System.getProperty("multisnake.simulation.controller", "random").toUpperCase(Locale.ROOT)),
+                Integer.getInteger("multisnake.simulation.botBudget", 256)
+        );
+    }
+
+    /**
+     * Creates the controller factory of these settings.
+     *
+     * @return the controller factory
+     */
+    public @NotNull SnakeController.Factory createControllerFactory() {
+        return switch (controller) {
+            case RANDOM -> (game, snakeId, seed) -> new RandomController(seed);
+            case BOT -> (game, snakeId, seed) -> new BotController(botBudget);
+        };
+    }
+
+    /**
+     * The controllers the snakes can be driven by.
+     */
+    public enum Controller {
+        RANDOM,
+        BOT
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.pandier.multisnake.simulation;
+
+import io.github.pandier.multisnake.game.GameSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * Simulates a batch of headless matches and reports the simulation speed.
+ * <p>
+ * The matches are configured by the {@code multisnake.game.*} and {@code multisnake.simulation.*}
+ * system properties. The process exits with status 1 if a match broke an invariant,
+ * the seeds of the failed matches are logged so they can be reproduced.
+ * <p>
+ * If arguments are given, every argument is the seed of a single match to reproduce
+ * instead of simulating a batch.
+ */
+public class SimulationTool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimulationTool.class);
+
+    public static void main(String[] args) {
+        GameSettings gameSettings = GameSettings.fromSystemProperties();
+        SimulationSettings settings = SimulationSettings.fromSystemProperties();
+        SnakeController.Factory factory = settings.createControllerFactory();
+
+        if (args.length > 0) {
+            boolean failed = false;
+            for (String argument : args) {
+                Simulation simulation = new Simulation(gameSettings, settings.snakes(), Long.parseLong(argument), factory, settings.checkInvariants());
+                Simulation.Result result = simulation.run(settings.maxTicks());
+                LOGGER.info("Match with seed {} ended after {} ticks, winner {}", result.seed(), result.ticks(), result.winner());
+                if (result.failure() != null) {
+                    LOGGER.error("Match with seed {} failed: {}", result.seed(), result.failure());
+                    failed = true;
+                }
+            }
+            if (failed)
+                System.exit(1);
+            return;
+        }
+
+        LOGGER.info("Simulating {} matches of {} snakes with {} controllers on {} workers with seed {}",
+                settings.matches(), settings.snakes(), settings.controller().name().toLowerCase(Locale.ROOT), settings.parallelism(), settings.seed());
+
+        SimulationBatch batch = new SimulationBatch(gameSettings, settings, factory);
+        SimulationBatch.Summary summary = batch.run();
+
+        double seconds = summary.wallNanos() / 1e9;
+        LOGGER.info("Simulated {} ticks in {} s, {} ticks per second, {} ticks per second per worker, {} draws",
+                summary.ticks(), String.format("%.2f", seconds),
+                String.format("%.0f", summary.ticks() / seconds),
+                String.format("%.0f", summary.ticks() / (summary.nanos() / 1e9)),
+                summary.draws());
+
+        for (Simulation.Result failure : summary.failures())
+            LOGGER.error("Match with seed {} failed: {}", failure.seed(), failure.failure());
+        if (!summary.failures().isEmpty())
+            System.exit(1);
+    }
+}
@@ -0,0 +1,43 @@
+package io.github.pandier.multisnake.simulation;
+
+import io.github.pandier.multisnake.game.Direction;
+import io.github.pandier.multisnake.game.Game;
+import io.github.pandier.multisnake.game.Snake;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Decides the direction of a snake without a client, for example from a script or an AI.
+ * <p>
+ * A controller is asked once per tick, before the tick is simulated,
+ * and is only ever called by the thread of its game.
+ */
+@FunctionalInterface
+public interface SnakeController {
+
+    /**
+     * Decides the direction the snake moves in the next tick.
+     *
+     * @param game  the game
+     * @param snake the living snake controlled by this controller
+     * @return the direction, null to keep the current direction
+     */
+    @Nullable Direction control(@NotNull Game game, @NotNull Snake snake);
+
+    /**
+     * Creates a controller for every snake of a game.
+     */
+    @FunctionalInterface
+    interface Factory {
+
+        /**
+         * Creates the controller of a snake.
+         *
+         * @param game    the game at its first tick
+         * @param snakeId the identifier of the controlled snake
+         * @param seed    a seed for controllers that make random decisions
+         * @return the controller
+         */
+        @NotNull SnakeController create(@NotNull Game game, int snakeId, long seed);
+    }
+}